@@ -0,0 +1,13 @@
+package com.example.springreader.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Enables @Async methods, which run on Spring Boot's application task executor.
+ * The executor is configured with the spring.task.execution.* properties.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+}
@@ -0,0 +1,13 @@
+package com.example.springreader.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled methods, which run on Spring Boot's task scheduler.
+ * The scheduler is configured with the spring.task.scheduling.* properties.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
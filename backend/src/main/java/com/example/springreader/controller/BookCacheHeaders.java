@@ -0,0 +1,95 @@
+package com.example.springreader.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP caching headers for one representation of a book.
+ *
+ * Every representation is derived from the book's EPUB file alone, so each gets a strong ETag made of the file's
+ * content hash and a representation name, and conditional requests can be answered before any work is done. Responses are only
+ * marked immutable when the URL is versioned with the book's content hash (the v parameter): an unversioned URL
+ * could serve a different book if its id is ever reused, so those are cached but revalidated on every use.
+ *
+ * @param eTag The unquoted ETag value.
+ * @param cacheControl The Cache-Control to send with the representation.
+ */
+record BookCacheHeaders(String eTag, CacheControl cacheControl) {
+
+    static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+    static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    /**
+     * @param contentHash The book's content hash.
+     * @param representation Names the representation, e.g. "meta" or "chapter-3".
+     * @param version The v request parameter, may be null.
+     * @return The headers for this representation.
+     */
+    static BookCacheHeaders of(String contentHash, String representation, String version) {
+        return of(contentHash, representation, version, true);
+    }
+
+    /**
+     * @param contentHash The book's content hash.
+     * @param representation Names the representation, e.g. "meta" or "chapter-3".
+     * @param version The v request parameter, may be null.
+     * @param stable False when the representation served for this URL may still change, e.g. a cover thumbnail
+     *               that has not been generated yet, which prevents it being marked immutable.
+     * @return The headers for this representation.
+     */
+    static BookCacheHeaders of(String contentHash, String representation, String version, boolean stable) {
+        boolean immutable = stable && contentHash.equals(version);
+        return new BookCacheHeaders(contentHash + "-" + representation, immutable ? IMMUTABLE : REVALIDATE);
+    }
+
+    /**
+     * Checks the request's If-None-Match header against this ETag, leaving the response untouched.
+     * WebRequest.checkNotModified would write this ETag to the response straight away: the returned 304 would then
+     * repeat it, and a different representation sent after all would go out under it.
+     *
+     * @return true if the client's copy is current and a 304 response should be sent
+     */
+    boolean isNotModified(WebRequest request) {
+        if(request instanceof NativeWebRequest nativeRequest
+                && nativeRequest.getNativeRequest(HttpServletRequest.class) instanceof HttpServletRequest servletRequest){
+            return new ServletWebRequest(servletRequest).checkNotModified(eTag);
+        }
+        return request.checkNotModified(eTag);
+    }
+
+    /**
+     * @return A 304 Not Modified response carrying the validators
+     */
+    <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+    }
+
+    /**
+     * @param requestHeaders The request headers the representation was negotiated on, e.g. Accept-Encoding.
+     * @return A 304 Not Modified response carrying the validators and the Vary header
+     */
+    <T> ResponseEntity<T> notModifiedVaryingBy(String... requestHeaders) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).varyBy(requestHeaders).build();
+    }
+
+    /**
+     * @return A 200 OK response builder carrying the validators
+     */
+    ResponseEntity.BodyBuilder ok() {
+        return status(HttpStatus.OK);
+    }
+
+    /**
+     * @return A response builder with the given status, carrying the validators
+     */
+    ResponseEntity.BodyBuilder status(HttpStatus status) {
+        return ResponseEntity.status(status).eTag(eTag).cacheControl(cacheControl);
+    }
+}
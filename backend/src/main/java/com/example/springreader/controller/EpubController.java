@@ -2,26 +2,45 @@ package com.example.springreader.controller;
 
 import com.example.springreader.dto.BookMetaDTO;
 import com.example.springreader.dto.ChapterContentDTO;
+import com.example.springreader.dto.ChapterParagraphDTO;
+import com.example.springreader.dto.ChapterSliceDTO;
+import com.example.springreader.dto.TocPageDTO;
+import com.example.springreader.model.CoverSize;
 import com.example.springreader.model.User;
 import com.example.springreader.repository.UserBookRepository;
+import com.example.springreader.service.ChapterParagraphs;
 import com.example.springreader.service.LibraryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * REST controller for accessing EPUB book content.
  * Provides endpoints to retrieve specific chapters and metadata for books stored in the system.
+ * Responses carry a strong ETag derived from the book's content hash, and conditional requests
+ * are answered with 304 Not Modified before the chapter or metadata is loaded.
  */
 @RestController
 @RequestMapping("/api/epub")
@@ -31,46 +50,279 @@ public class EpubController {
 
     private final LibraryService libraryService;
     private final UserBookRepository userBookRepository;
+    private final ObjectMapper objectMapper;
+
+    private static final String NDJSON_VALUE = "application/x-ndjson";
 
 
     /**
      * Retrieves the content of a specific chapter from a book identified by its ID.
+     * Clients accepting gzip are sent the chapter's JSON as precompressed at ingest, with Content-Encoding: gzip,
+     * so the response costs neither serialization nor compression. The encoded variant has its own ETag.
+     * Chapters that were not precompressed are sent as identity, under the identity ETag.
      *
      * @param bookId The unique ID of the book.
      * @param index  The zero-based index of the chapter to retrieve.
-     * @return A ResponseEntity containing the chapter content DTO upon success.
+     * @param version The book's content hash, makes the response cacheable as immutable.
+     * @param acceptEncoding The request's Accept-Encoding header, may be null.
+     * @return A ResponseEntity containing the chapter content DTO, or its gzip encoded JSON, upon success.
      * @throws IOException if an error occurs during file processing by the service layer.
      */
     @GetMapping("/{bookId}/chapter/{index}")
-    public ResponseEntity<ChapterContentDTO> getEpubChapter(
+    public ResponseEntity<?> getEpubChapter(
             @PathVariable Long bookId,
             @PathVariable Integer index,
-    @AuthenticationPrincipal User user) throws IOException {
+            @RequestParam(name = "v", required = false) String version,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @AuthenticationPrincipal User user,
+            WebRequest webRequest) throws IOException {
+
+        //The representation is resolved first, so the conditional check and the response use its own ETag
+        boolean gzip = acceptsGzip(acceptEncoding) && libraryService.hasCompressedChapterContent(bookId, user.getId(), index);
+        Optional<BookCacheHeaders> cacheHeaders = cacheHeaders(bookId, user, "chapter-" + index + (gzip ? "-gzip" : ""), version);
+        if(cacheHeaders.isPresent() && cacheHeaders.get().isNotModified(webRequest)){
+            return cacheHeaders.get().notModifiedVaryingBy(HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        if(gzip){
+            Optional<byte[]> compressed = libraryService.getCompressedChapterContent(bookId, user.getId(), index);
+            if(compressed.isPresent()){
+                return cacheHeaders.map(BookCacheHeaders::ok).orElseGet(ResponseEntity::ok)
+                        .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .contentLength(compressed.get().length)
+                        .body(compressed.get());
+            }
+            //The store could not be read after all, nothing has been written yet so identity is sent instead
+            cacheHeaders = cacheHeaders(bookId, user, "chapter-" + index, version);
+        }
 
         ChapterContentDTO chapterContentDTO = libraryService.getChapterContent(bookId, user.getId(), index);
-        return ResponseEntity.ok(chapterContentDTO);
+        return cacheHeaders.map(BookCacheHeaders::ok).orElseGet(ResponseEntity::ok)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .body(chapterContentDTO);
+    }
+
+
+    /**
+     * Retrieves a range of paragraphs of a chapter, so clients can show the start of a chapter quickly
+     * and fetch the rest lazily. Paragraph offsets are stable for a given book.
+     *
+     * @param bookId The unique ID of the book.
+     * @param index  The zero-based index of the chapter.
+     * @param offset The index of the first paragraph to return.
+     * @param limit  The maximum number of paragraphs to return.
+     * @param version The book's content hash, makes the response cacheable as immutable.
+     * @return A ResponseEntity containing the chapter slice DTO upon success.
+     * @throws IOException if an error occurs during file processing by the service layer.
+     */
+    @GetMapping(value = "/{bookId}/chapter/{index}", params = "limit")
+    public ResponseEntity<ChapterSliceDTO> getEpubChapterSlice(
+            @PathVariable Long bookId,
+            @PathVariable Integer index,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam int limit,
+            @RequestParam(name = "v", required = false) String version,
+            @AuthenticationPrincipal User user,
+            WebRequest webRequest) throws IOException {
+
+        Optional<BookCacheHeaders> cacheHeaders = cacheHeaders(bookId, user, "chapter-" + index + "-" + offset + "-" + limit, version);
+        if(cacheHeaders.isPresent() && cacheHeaders.get().isNotModified(webRequest)){
+            return cacheHeaders.get().notModified();
+        }
+
+        ChapterSliceDTO chapterSliceDTO = libraryService.getChapterSlice(bookId, user.getId(), index, offset, limit);
+        return cacheHeaders.map(BookCacheHeaders::ok).orElseGet(ResponseEntity::ok).body(chapterSliceDTO);
+    }
+
+
+    /**
+     * Streams the content of a chapter as newline delimited JSON, one {"text": "..."} object per paragraph,
+     * written as the paragraphs are read so the client can render before the whole chapter has arrived.
+     * Memory used per request stays bounded regardless of the chapter's size.
+     *
+     * @param bookId The unique ID of the book.
+     * @param index  The zero-based index of the chapter to stream.
+     * @param version The book's content hash, makes the response cacheable as immutable.
+     * @return A ResponseEntity streaming the chapter's paragraphs.
+     * @throws IOException if the book's EPUB file cannot be found.
+     */
+    @GetMapping(value = "/{bookId}/chapter/{index}/stream", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamEpubChapter(
+            @PathVariable Long bookId,
+            @PathVariable Integer index,
+            @RequestParam(name = "v", required = false) String version,
+            @AuthenticationPrincipal User user,
+            WebRequest webRequest) throws IOException {
+
+        Optional<BookCacheHeaders> cacheHeaders = cacheHeaders(bookId, user, "chapter-" + index + "-ndjson", version);
+        if(cacheHeaders.isPresent() && cacheHeaders.get().isNotModified(webRequest)){
+            return cacheHeaders.get().notModified();
+        }
+
+        ChapterParagraphs paragraphs = libraryService.getChapterParagraphs(bookId, user.getId(), index);
+        ObjectWriter paragraphWriter = objectMapper.writerFor(ChapterParagraphDTO.class);
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            paragraphs.writeTo(paragraph -> {
+                writer.write(paragraphWriter.writeValueAsString(new ChapterParagraphDTO(paragraph)));
+                writer.write('\n');
+            });
+            writer.flush();
+        };
+        return cacheHeaders.map(BookCacheHeaders::ok).orElseGet(ResponseEntity::ok)
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
     }
 
 
     /**
      * Retrieves the metadata (like title, author, etc.) for a book identified by its ID.
+     * Books with a content hash are sent the JSON serialized at ingest, so once the book is found in the
+     * user's library the response costs no entity loading or serialization.
      *
      * @param bookId The unique ID of the book.
-     * @return A ResponseEntity containing the book metadata DTO upon success.
+     * @param version The book's content hash, makes the response cacheable as immutable.
+     * @return A ResponseEntity containing the book metadata JSON, or DTO for books without a content hash, upon success.
+     * @throws IOException if the metadata of a book ingested before it was stored cannot be serialized.
      */
     @GetMapping("/{bookId}/meta")
-    public ResponseEntity<BookMetaDTO> getEpubMeta(@PathVariable Long bookId, @AuthenticationPrincipal User user) {
-        BookMetaDTO bookMetaDTO = libraryService.getBookMeta(bookId, user.getId());
-        return ResponseEntity.ok(bookMetaDTO);
+    public ResponseEntity<?> getEpubMeta(
+            @PathVariable Long bookId,
+            @RequestParam(name = "v", required = false) String version,
+            @AuthenticationPrincipal User user,
+            WebRequest webRequest) throws IOException {
+
+        Optional<BookCacheHeaders> cacheHeaders = cacheHeaders(bookId, user, "meta", version);
+        if(cacheHeaders.isEmpty()){
+            //Not in the user's library (rejected here) or without a content hash
+            BookMetaDTO bookMetaDTO = libraryService.getBookMeta(bookId, user.getId());
+            return ResponseEntity.ok(bookMetaDTO);
+        }
+        if(cacheHeaders.get().isNotModified(webRequest)){
+            return cacheHeaders.get().notModified();
+        }
+
+        byte[] metaJson = libraryService.getBookMetaJson(bookId);
+        return cacheHeaders.get().ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .contentLength(metaJson.length)
+                .body(metaJson);
+    }
+
+
+    /**
+     * Retrieves one page of a book's table of contents, for books whose TOC is too large to load through /meta.
+     * Without a parent the whole TOC is paged in reading order; with a parent only its direct children are
+     * (use -1 for the top level), so a nested TOC can be expanded lazily.
+     *
+     * @param bookId The unique ID of the book.
+     * @param parent Optional chapter index whose direct children are requested.
+     * @param page   The zero-based page number.
+     * @param size   The number of chapters per page.
+     * @param version The book's content hash, makes the response cacheable as immutable.
+     * @return A ResponseEntity containing the TOC page DTO upon success.
+     */
+    @GetMapping("/{bookId}/toc")
+    public ResponseEntity<TocPageDTO> getEpubToc(
+            @PathVariable Long bookId,
+            @RequestParam(required = false) Integer parent,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "200") int size,
+            @RequestParam(name = "v", required = false) String version,
+            @AuthenticationPrincipal User user,
+            WebRequest webRequest) {
+
+        Optional<BookCacheHeaders> cacheHeaders = cacheHeaders(bookId, user, "toc-" + parent + "-" + page + "-" + size, version);
+        if(cacheHeaders.isPresent() && cacheHeaders.get().isNotModified(webRequest)){
+            return cacheHeaders.get().notModified();
+        }
+
+        TocPageDTO tocPageDTO = libraryService.getBookToc(bookId, user.getId(), parent, page, size);
+        return cacheHeaders.map(BookCacheHeaders::ok).orElseGet(ResponseEntity::ok).body(tocPageDTO);
     }
 
 
+    /**
+     * Retrieves a book's cover image, either as it was in the EPUB or as a generated thumbnail.
+     *
+     * @param bookId The unique ID of the book.
+     * @param size small, medium, large or original (the default). Thumbnails not generated yet are served from a larger size.
+     * @param version The book's content hash, makes the response cacheable as immutable once the requested size exists.
+     * @param user The authenticated user.
+     * @return The cover image with its content type.
+     */
     @GetMapping("/{bookId}/cover")
-    public ResponseEntity<Resource> getCoverImage(@PathVariable Long bookId, @AuthenticationPrincipal User user) {
-        Map<String, Object> coverImageInfo = libraryService.getCoverImage(bookId, user.getId());
+    public ResponseEntity<Resource> getCoverImage(
+            @PathVariable Long bookId,
+            @RequestParam(defaultValue = "original") String size,
+            @RequestParam(name = "v", required = false) String version,
+            @AuthenticationPrincipal User user,
+            WebRequest webRequest) {
+        //Needs the book row to know which file is served, but the image itself is only read for a 200
+        Map<String, Object> coverImageInfo = libraryService.getCoverImage(bookId, user.getId(), CoverSize.fromParam(size));
         Resource resource = (Resource) coverImageInfo.get("coverImage");
         MediaType contentType = (MediaType) coverImageInfo.get("contentType");
+        String contentHash = (String) coverImageInfo.get("contentHash");
+
+        if(contentHash == null){
+            return ResponseEntity.ok().contentType(contentType).body(resource);
+        }
+        BookCacheHeaders cacheHeaders = BookCacheHeaders.of(contentHash, "cover-" + coverImageInfo.get("fileName"),
+                version, (Boolean) coverImageInfo.get("exactSize"));
+        if(cacheHeaders.isNotModified(webRequest)){
+            return cacheHeaders.notModified();
+        }
+        return cacheHeaders.ok().contentType(contentType).body(resource);
+    }
+
+    /**
+     * Checks whether an Accept-Encoding header allows gzip, by name or else through "*", with a non-zero q value.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if(acceptEncoding == null){
+            return false;
+        }
+        Boolean wildcard = null;
+        for(String coding : acceptEncoding.split(",")){
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+            if(name.equalsIgnoreCase("gzip")){
+                return isAccepted(parameters);
+            }
+            if(name.equals("*")){
+                wildcard = isAccepted(parameters);
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
 
-        return ResponseEntity.ok().contentType(contentType).body(resource);
+    /**
+     * @param parameters A content coding followed by its parameters.
+     * @return false only if the coding has a q value of zero
+     */
+    private static boolean isAccepted(String[] parameters) {
+        for(int i = 1; i < parameters.length; i++){
+            String parameter = parameters[i].trim();
+            if(parameter.startsWith("q=")){
+                try{
+                    return Double.parseDouble(parameter.substring(2)) > 0;
+                }
+                catch (NumberFormatException e){
+                    return true;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks up the caching headers of a book representation, empty if the book has no content hash.
+     * Books missing from the user's library are also empty here and rejected by the service call that follows.
+     */
+    private Optional<BookCacheHeaders> cacheHeaders(Long bookId, User user, String representation, String version) {
+        return libraryService.getBookContentHash(bookId, user.getId())
+                .map(contentHash -> BookCacheHeaders.of(contentHash, representation, version));
     }
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package com.example.springreader.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * The part of a file to send in response to a request, resolved from its Range and If-Range headers, and
+ * sent with zero-copy sendfile where the server supports it.
+ *
+ * A single byte range is served as 206 Partial Content, so interrupted downloads can resume. Requests for several
+ * ranges, malformed ranges, and ranges whose If-Range does not match the current ETag get the whole file, as
+ * RFC 9110 allows. If-Range dates never match since no Last-Modified is sent.
+ *
+ * @param start The offset of the first byte to send.
+ * @param length The number of bytes to send.
+ * @param fileLength The size of the whole file.
+ * @param partial True if this is a byte range to send as 206 Partial Content.
+ */
+record FileRange(long start, long length, long fileLength, boolean partial) {
+
+    //Request attributes through which Tomcat sends a file with sendfile once the response is committed
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * @param rangeHeader The request's Range header, may be null.
+     * @param ifRangeHeader The request's If-Range header, may be null.
+     * @param eTag The unquoted strong ETag of the file, null if it has none.
+     * @param fileLength The size of the file.
+     * @return The range to send, or null if the requested range is not satisfiable and 416 should be sent.
+     */
+    static FileRange resolve(String rangeHeader, String ifRangeHeader, String eTag, long fileLength) {
+        FileRange wholeFile = new FileRange(0, fileLength, fileLength, false);
+        if (rangeHeader == null) {
+            return wholeFile;
+        }
+        if (ifRangeHeader != null && (eTag == null || !ifRangeHeader.trim().equals("\"" + eTag + "\""))) {
+            return wholeFile;
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return wholeFile;
+        }
+        if (ranges.size() != 1) {
+            return wholeFile;
+        }
+
+        long start = ranges.get(0).getRangeStart(fileLength);
+        long end = ranges.get(0).getRangeEnd(fileLength);
+        if (start >= fileLength || end < start) {
+            //Starts past the end of the file, or is an empty suffix
+            return null;
+        }
+        return new FileRange(start, end - start + 1, fileLength, true);
+    }
+
+    /**
+     * @return A 416 Range Not Satisfiable response telling the client the size of the file
+     */
+    static <T> ResponseEntity<T> notSatisfiable(long fileLength) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + fileLength)
+                .build();
+    }
+
+    HttpStatus status() {
+        return partial ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK;
+    }
+
+    /**
+     * Completes a response sending this range of the file. Under Tomcat the file is handed to the connector,
+     * which sends it with sendfile once the response headers are written. Elsewhere the range is streamed
+     * with FileChannel.transferTo into the response, through a small buffer.
+     *
+     * @param file The file to send.
+     * @param request The current request, used to tell whether sendfile is available.
+     * @param response A builder with the response's status and representation headers.
+     * @return The response, with Content-Length and Content-Range set for this range.
+     */
+    ResponseEntity<StreamingResponseBody> send(Path file, HttpServletRequest request, ResponseEntity.BodyBuilder response) {
+        response.header(HttpHeaders.ACCEPT_RANGES, "bytes").contentLength(length);
+        if (partial) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (start + length - 1) + "/" + fileLength);
+        }
+        if ("HEAD".equals(request.getMethod())) {
+            return response.build();
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return response.build();
+        }
+        return response.body(outputStream -> transfer(file, Channels.newChannel(outputStream)));
+    }
+
+    private void transfer(Path file, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    throw new IOException("File shrank while it was being sent: " + file);
+                }
+                position += transferred;
+            }
+        }
+    }
+}
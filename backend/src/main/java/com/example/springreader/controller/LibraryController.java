@@ -1,29 +1,37 @@
 package com.example.springreader.controller;
 
 import com.example.springreader.dto.BookDTO;
+import com.example.springreader.dto.BulkUploadResultDTO;
+import com.example.springreader.dto.IngestionJobDTO;
+import com.example.springreader.dto.LibraryPageDTO;
 import com.example.springreader.model.Book;
+import com.example.springreader.model.BookFile;
+import com.example.springreader.model.LibrarySort;
 import com.example.springreader.model.User;
-import com.example.springreader.model.UserBook;
+import com.example.springreader.service.BookUploadService;
+import com.example.springreader.service.BulkUploadService;
+import com.example.springreader.service.IngestionJobService;
 import com.example.springreader.service.LibraryService;
 import com.example.springreader.service.UserBookService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
 /**
  * Controller class for managing books in a library.
@@ -34,38 +42,66 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/library")
 public class LibraryController {
     private final LibraryService libraryService;
-    private final Path uploadDir;
+    private final BookUploadService bookUploadService;
+    private final IngestionJobService ingestionJobService;
+    private final BulkUploadService bulkUploadService;
     private final UserBookService userBookService;
 
     /**
      * Constructor for injecting dependencies.
      * @param libraryService The service for library operations.
-     * @param uploadDir The directory for uploads.
+     * @param bookUploadService The service storing uploads and adding them to libraries.
+     * @param ingestionJobService The service running uploads' ingestion in the background.
+     * @param bulkUploadService The service adding many uploads at once.
      * @param userBookService The service for userBook operations
      */
-    public LibraryController(LibraryService libraryService, Path uploadDir, UserBookService userBookService){
+    public LibraryController(LibraryService libraryService, BookUploadService bookUploadService,
+                             IngestionJobService ingestionJobService, BulkUploadService bulkUploadService,
+                             UserBookService userBookService){
         this.libraryService = libraryService;
-        this.uploadDir = uploadDir;
+        this.bookUploadService = bookUploadService;
+        this.ingestionJobService = ingestionJobService;
+        this.bulkUploadService = bulkUploadService;
         this.userBookService = userBookService;
     }
 
     /**
-     * Handles the upload of an epub file and associates it with the logged-in user.
+     * Handles the upload of an epub file sent as the raw request body, and queues it to be added to the
+     * logged-in user's library. This is the preferred way to upload a book: the body is streamed straight to
+     * the upload directory in a single pass, which checks the epub signature, hashes the content and enforces
+     * the size limit as it reads, so invalid and oversized uploads are rejected before they are fully received.
+     *
+     * @param body The raw request body, the epub file.
+     * @param contentLength The declared length of the body, checked against the size limit before reading.
+     * @param user The currently authenticated user.
+     * @return ResponseEntity with 202 ACCEPTED, the queued job, and the job's status URL as Location.
+     * @throws IOException If there's an error saving the file.
+     * @throws IllegalArgumentException If the body is not an epub.
+     */
+    @PostMapping(value = "/upload", consumes = "application/epub+zip")
+    public ResponseEntity<IngestionJobDTO> uploadBookStream(InputStream body,
+                                                            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+                                                            @AuthenticationPrincipal User user) throws IOException {
+        bookUploadService.checkSize(contentLength);
+        return queue(bookUploadService.store(body), user);
+    }
+
+    /**
+     * Handles the upload of an epub file as a multipart form, and queues it to be added to the logged-in user's library.
      *
      * Validates the file (must be .epub).
-     * Creates a unique filename to avoid conflicts.
-     * Saves the file to the upload directory.
-     * Adds the book metadata to the database via LibraryService.
-     * Creates an association between the user and the new book via UserBookService.
+     * Streams the file to the upload directory, checking and hashing its content on the way.
+     * Queues an ingestion job, which links the user to the existing book when one has the same content,
+     * and otherwise parses the book and adds it via LibraryService.
      *
      * @param file The epub file uploaded by the user.
      * @param user The currently authenticated user.
-     * @return ResponseEntity indicating success (201 CREATED) or failure.
+     * @return ResponseEntity with 202 ACCEPTED, the queued job, and the job's status URL as Location.
      * @throws IOException If there's an error saving the file.
      * @throws IllegalArgumentException If the file is not a valid epub.
      */
-    @PostMapping("/upload")
-    public ResponseEntity<Void> uploadBook(@RequestParam("file") MultipartFile file, @AuthenticationPrincipal User user) throws IOException {
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<IngestionJobDTO> uploadBook(@RequestParam("file") MultipartFile file, @AuthenticationPrincipal User user) throws IOException {
 
         String originalFileName = file.getOriginalFilename();
         //Basic validation: check extension
@@ -80,41 +116,100 @@ public class LibraryController {
             throw new IllegalArgumentException("Invalid file content type. Only epub files are supported");
         }
 
-        String filename = UUID.randomUUID() + "-" + originalFileName;
-
-        Path filepath = uploadDir.resolve(filename);
-
-        Files.copy(file.getInputStream(), filepath, StandardCopyOption.REPLACE_EXISTING);
-
+        bookUploadService.checkSize(file.getSize());
+        BookUploadService.StoredUpload upload;
+        try(InputStream inputStream = file.getInputStream()){
+            upload = bookUploadService.store(inputStream);
+        }
+        return queue(upload, user);
+    }
 
-        Book book = libraryService.addBook(filepath.toFile());
+    private ResponseEntity<IngestionJobDTO> queue(BookUploadService.StoredUpload upload, User user) {
+        IngestionJobDTO job = ingestionJobService.submit(upload, user);
 
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/library/jobs/{jobId}").buildAndExpand(job.jobId()).toUri())
+                .body(job);
+    }
 
-        userBookService.createUserBook(user, book);
+    /**
+     * Adds many epub files to the logged-in user's library in one request, for migrating an existing library.
+     * Each file is either an epub or a zip archive of epubs. The books are ingested in parallel before the
+     * response is sent, and saved in batches.
+     *
+     * @param files The epub and zip files uploaded by the user.
+     * @param user The currently authenticated user.
+     * @return ResponseEntity containing one result per epub, with the book's ID or the reason it was not added.
+     * @throws IOException If there's an error saving the files.
+     * @throws IllegalArgumentException If the files hold more books than a bulk upload may.
+     */
+    @PostMapping("/upload/bulk")
+    public ResponseEntity<List<BulkUploadResultDTO>> uploadBooks(@RequestParam("files") List<MultipartFile> files, @AuthenticationPrincipal User user) throws IOException {
+        List<BulkUploadResultDTO> results = bulkUploadService.addAllToLibrary(files, user);
+        log.info("Bulk upload of {} files by user {} gave {} results", files.size(), user.getId(), results.size());
+        return ResponseEntity.ok(results);
+    }
 
-        return ResponseEntity.status(HttpStatus.CREATED).build();
+    /**
+     * Reports the state of one of the logged-in user's ingestion jobs, for clients polling after an upload.
+     *
+     * @param jobId The ID of the job, as returned by the upload.
+     * @param user The currently authenticated user.
+     * @return ResponseEntity containing the job, with the book's ID once it has completed.
+     */
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestionJobDTO> getIngestionJob(@PathVariable String jobId, @AuthenticationPrincipal User user){
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(ingestionJobService.getJob(jobId, user.getId()));
     }
 
     /**
      * Allows a logged-in user to download a book file they have access to.
      *
+     * The ETag is the book's content hash, so clients holding the file get a 304 without the file being opened.
+     * A single byte range can be requested with Range, guarded by If-Range, so interrupted downloads resume.
+     * The file is sent with zero-copy sendfile where the server supports it.
+     *
      * @param bookId The ID of the book to download.
+     * @param version The book's content hash, makes the response cacheable as immutable.
      * @param user The currently authenticated user.
-     * @return ResponseEntity containing the book file as a Resource or an error status.
+     * @return ResponseEntity sending the whole book file or the requested range of it, or an error status.
      * @throws IOException If there's an error reading the book file.
      */
     @GetMapping("/download/{bookId}")
-    public ResponseEntity<Resource> downloadBook(@PathVariable Long bookId, @AuthenticationPrincipal User user) throws IOException {
-        //Fetch book data and filename, ensuring user has access
-        Map<String, Object> bookInfo = libraryService.getBookResources(bookId, user.getId());
-        String filename = (String) bookInfo.get("filename");
-        Resource bookData = (Resource) bookInfo.get("bookData");
+    public ResponseEntity<StreamingResponseBody> downloadBook(
+            @PathVariable Long bookId,
+            @RequestParam(name = "v", required = false) String version,
+            @AuthenticationPrincipal User user,
+            WebRequest webRequest,
+            HttpServletRequest request) throws IOException {
+        //Resolves and checks access to the file in one query, the file itself is only opened to send it
+        BookFile bookFile = libraryService.getBookFile(bookId, user.getId());
+        BookCacheHeaders cacheHeaders = bookFile.contentHash() == null ? null
+                : BookCacheHeaders.of(bookFile.contentHash(), "epub", version);
+        if(cacheHeaders != null && cacheHeaders.isNotModified(webRequest)){
+            return cacheHeaders.notModified();
+        }
 
-        //Build the response with correct headers for file download
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("application/epub+zip")) //Standard epub MIME type
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"") //Tell browser to download
-                .body(bookData);
+        FileRange range = FileRange.resolve(request.getHeader(HttpHeaders.RANGE), request.getHeader(HttpHeaders.IF_RANGE),
+                cacheHeaders == null ? null : cacheHeaders.eTag(), bookFile.length());
+        if(range == null){
+            return FileRange.notSatisfiable(bookFile.length());
+        }
+
+        ResponseEntity.BodyBuilder response = cacheHeaders == null ? ResponseEntity.status(range.status()) : cacheHeaders.status(range.status());
+        ContentDisposition.Builder disposition = ContentDisposition.attachment(); //Tell browser to download
+        if(StandardCharsets.US_ASCII.newEncoder().canEncode(bookFile.fileName())){
+            disposition.filename(bookFile.fileName());
+        }
+        else{
+            disposition.filename(bookFile.fileName(), StandardCharsets.UTF_8);
+        }
+        response.contentType(MediaType.parseMediaType("application/epub+zip")) //Standard epub MIME type
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.build().toString());
+        return range.send(bookFile.path(), request, response);
     }
 
     /**
@@ -125,12 +220,26 @@ public class LibraryController {
      */
     @GetMapping()
     public ResponseEntity<List<BookDTO>> getUserBooks(@AuthenticationPrincipal User user){
-        List<UserBook> userBooks = userBookService.getUserBooks(user.getId());
-        //Convert UserBook entities to BookDTOs for the response
-        List<BookDTO> bookDTOS = userBooks.stream()
-                .map(userBook -> BookDTO.fromUserBook(userBook))
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(bookDTOS);
+        return ResponseEntity.ok(userBookService.getLibrary(user.getId()));
+    }
+
+    /**
+     * Retrieves a page of the books associated with the currently logged-in user, so large libraries
+     * can be shown a page at a time.
+     *
+     * @param sort The order of the library: title (default), author or recent.
+     * @param cursor The nextCursor of the previous page, omitted for the first page.
+     * @param limit The maximum number of books to return.
+     * @param user The currently authenticated user.
+     * @return ResponseEntity containing the page of BookDTOs and the cursor of the next page.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<LibraryPageDTO> getUserBooksPage(
+            @RequestParam(defaultValue = "title") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam int limit,
+            @AuthenticationPrincipal User user){
+        return ResponseEntity.ok(userBookService.getLibraryPage(user.getId(), LibrarySort.fromParam(sort), cursor, limit));
     }
 
 
@@ -1,14 +1,21 @@
 package com.example.springreader.controller.exceptionHandler;
 
 import com.example.springreader.exception.EpubProcessingException;
+import com.example.springreader.exception.IngestionQueueFullException;
+import com.example.springreader.exception.PasswordHashingBusyException;
+import com.example.springreader.exception.ProgressBufferFullException;
 import com.example.springreader.exception.ResourceNotFoundException;
+import com.example.springreader.exception.UploadTooLargeException;
 import com.example.springreader.exception.UsernameAlreadyExistsException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import java.io.IOException;
 import java.time.Instant;
@@ -131,6 +138,88 @@ public class GlobalExceptionHandler {
     }
 
 
+    /**
+     * Handles IngestionQueueFullException, thrown when an upload arrives while the ingestion queue is full.
+     *
+     * @param e The IngestionQueueFullException that was thrown.
+     * @return A ProblemDetail indicating the service is temporarily unavailable (503), with a Retry-After header.
+     */
+    @ExceptionHandler(IngestionQueueFullException.class)
+    public ResponseEntity<ProblemDetail> handleIngestionQueueFullException(IngestionQueueFullException e){
+        log.warn("Ingestion queue full: {}", e.getMessage());
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.SERVICE_UNAVAILABLE, "Too many books are being added right now, please try again shortly."
+        );
+        problemDetail.setTitle("Ingestion Queue Full");
+        problemDetail.setProperty("timestamp", Instant.now());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(problemDetail);
+    }
+
+
+    /**
+     * Handles ProgressBufferFullException, thrown when progress is saved while too many positions wait to be written,
+     * typically because the database has been failing.
+     *
+     * @param e The ProgressBufferFullException that was thrown.
+     * @return A ProblemDetail indicating the service is temporarily unavailable (503), with a Retry-After header.
+     */
+    @ExceptionHandler(ProgressBufferFullException.class)
+    public ResponseEntity<ProblemDetail> handleProgressBufferFullException(ProgressBufferFullException e){
+        log.warn("Progress buffer full: {}", e.getMessage());
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.SERVICE_UNAVAILABLE, "Reading progress cannot be saved right now, please try again shortly."
+        );
+        problemDetail.setTitle("Progress Not Saved");
+        problemDetail.setProperty("timestamp", Instant.now());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(problemDetail);
+    }
+
+
+    /**
+     * Handles PasswordHashingBusyException, thrown when a login or registration arrives while the password hashing
+     * queue is full.
+     *
+     * @param e The PasswordHashingBusyException that was thrown.
+     * @return A ProblemDetail indicating too many requests (429), with a Retry-After header.
+     */
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<ProblemDetail> handlePasswordHashingBusyException(PasswordHashingBusyException e){
+        log.warn("Password hashing busy: {}", e.getMessage());
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
+                HttpStatus.TOO_MANY_REQUESTS, "Too many sign-ins are being processed right now, please try again shortly."
+        );
+        problemDetail.setTitle("Too Many Sign-ins");
+        problemDetail.setProperty("timestamp", Instant.now());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(problemDetail);
+    }
+
+
+    /**
+     * Handles uploads larger than allowed: UploadTooLargeException for a book over the book size limit, and
+     * MaxUploadSizeExceededException for a multipart request over the multipart limits.
+     *
+     * @param e The exception that was thrown.
+     * @return A ProblemDetail indicating the content is too large (413).
+     */
+    @ExceptionHandler({UploadTooLargeException.class, MaxUploadSizeExceededException.class})
+    public ProblemDetail handleUploadTooLargeException(RuntimeException e){
+        log.warn("Upload too large: {}", e.getMessage());
+
+        String detail = e instanceof UploadTooLargeException ? e.getMessage() : "The upload is larger than allowed.";
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.PAYLOAD_TOO_LARGE, detail);
+        problemDetail.setTitle("Upload Too Large");
+        problemDetail.setProperty("timestamp", Instant.now());
+
+        return problemDetail;
+    }
+
+
     /**
      * Handles UsernameAlreadyExistsException, a custom exception for user registration conflicts.
      *
@@ -1,13 +1,15 @@
 package com.example.springreader.dto;
 
-import com.example.springreader.model.Book;
-import com.example.springreader.model.UserBook;
 import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
 
 /**
  * DTO representing book data for display in the user's library, including user-specific progress.
  */
 @Data
+@NoArgsConstructor
 public class BookDTO {
     private Long id;
     private String title;
@@ -16,23 +18,31 @@ public class BookDTO {
     private int lastChapterIndex;
     //Indicates if a cover image exists for this book.
     private boolean hasCoverImage = false;
+    //The book's content hash, passed as the v parameter to make its cover and content cacheable as immutable.
+    private String version;
+    //When the user last read the book, or added it if they have not read it yet.
+    private Instant lastReadAt;
 
 
     /**
-     * Creates a BookDTO from a UserBook entity, mapping book details
-     * and the user's last read chapter index.
+     * Creates a BookDTO from the columns of a library entry and its book. Used by the library queries
+     * to select DTOs directly, without loading the entities.
      *
-     * @param userBook The UserBook entity containing book and progress info.
-     * @return A new BookDTO instance.
+     * @param id The book's ID.
+     * @param title The book's title.
+     * @param author The book's author.
+     * @param lastChapterIndex The index of the last chapter read by the user.
+     * @param coverImagePath The path of the book's cover image, null if it has none.
+     * @param contentHash The book's content hash.
+     * @param lastReadAt When the user last read the book.
      */
-    public static BookDTO fromUserBook(UserBook userBook){
-        BookDTO bookDTO = new BookDTO();
-        Book book = userBook.getBook();
-        bookDTO.setId(book.getId());
-        bookDTO.setTitle(book.getTitle());
-        bookDTO.setAuthor(book.getAuthor());
-        bookDTO.setLastChapterIndex(userBook.getLastChapterIndex());
-        bookDTO.setHasCoverImage(book.getCoverImagePath() != null);
-        return bookDTO;
+    public BookDTO(Long id, String title, String author, Integer lastChapterIndex, String coverImagePath, String contentHash, Instant lastReadAt){
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.lastChapterIndex = lastChapterIndex == null ? 0 : lastChapterIndex;
+        this.hasCoverImage = coverImagePath != null;
+        this.version = contentHash;
+        this.lastReadAt = lastReadAt;
     }
-}
\ No newline at end of file
+}
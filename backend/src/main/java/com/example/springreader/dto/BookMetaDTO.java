@@ -5,6 +5,7 @@ import java.util.List;
 /**
  * DTO representing the metadata of a book, including its title, author,
  * and a list of its chapters (as ChapterDTOs).
+ * The version is the book's content hash; passing it as the v parameter makes the book's responses cacheable as immutable.
  */
-public record BookMetaDTO(String title, String author, List<ChapterDTO> chapters) {
+public record BookMetaDTO(String title, String author, List<ChapterDTO> chapters, String version) {
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.example.springreader.dto;
+
+import com.example.springreader.model.IngestionJobStatus;
+
+/**
+ * The outcome of one EPUB of a bulk upload.
+ *
+ * @param fileName The name of the uploaded file, prefixed with the ZIP archive's name for EPUBs inside one.
+ * @param status COMPLETED if the book is now in the library, FAILED otherwise.
+ * @param bookId The ID of the book, null unless completed.
+ * @param error Why the book could not be added, null unless failed.
+ */
+public record BulkUploadResultDTO(String fileName, IngestionJobStatus status, Long bookId, String error) {
+
+    public static BulkUploadResultDTO completed(String fileName, Long bookId) {
+        return new BulkUploadResultDTO(fileName, IngestionJobStatus.COMPLETED, bookId, null);
+    }
+
+    public static BulkUploadResultDTO failed(String fileName, String error) {
+        return new BulkUploadResultDTO(fileName, IngestionJobStatus.FAILED, null, error);
+    }
+}
@@ -3,7 +3,7 @@ package com.example.springreader.dto;
 /**
  * DTO representing a single chapter, typically used for table of contents.
  * Contains the chapter title, an optional anchor for locating it within its content file,
- * and its index within the book.
+ * its index within the book, and its position in the nested TOC (depth, parent index, number of children).
  */
-public record ChapterDTO(String title, String anchor, int index) {
+public record ChapterDTO(String title, String anchor, int index, int depth, int parentIndex, int childCount) {
 }
\ No newline at end of file
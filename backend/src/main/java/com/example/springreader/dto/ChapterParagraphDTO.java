@@ -0,0 +1,7 @@
+package com.example.springreader.dto;
+
+/**
+ * DTO containing a single paragraph (or heading) of a chapter, one per line of a streamed chapter response.
+ */
+public record ChapterParagraphDTO(String text) {
+}
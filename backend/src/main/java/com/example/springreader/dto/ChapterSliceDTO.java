@@ -0,0 +1,10 @@
+package com.example.springreader.dto;
+
+import java.util.List;
+
+/**
+ * DTO containing a range of paragraphs of a chapter.
+ * nextOffset is the offset to request the following slice with, or null when this slice reaches the end of the chapter.
+ */
+public record ChapterSliceDTO(List<String> paragraphs, int offset, int totalParagraphs, Integer nextOffset) {
+}
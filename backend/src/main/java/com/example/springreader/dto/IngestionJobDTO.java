@@ -0,0 +1,13 @@
+package com.example.springreader.dto;
+
+import com.example.springreader.model.IngestionJobStatus;
+
+import java.time.Instant;
+
+/**
+ * DTO reporting the state of an upload's ingestion.
+ * bookId is set once the job has COMPLETED, error once it has FAILED, finishedAt once it has done either.
+ */
+public record IngestionJobDTO(String jobId, IngestionJobStatus status, Long bookId, String error,
+                              Instant submittedAt, Instant finishedAt) {
+}
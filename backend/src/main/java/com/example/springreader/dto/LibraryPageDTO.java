@@ -0,0 +1,10 @@
+package com.example.springreader.dto;
+
+import java.util.List;
+
+/**
+ * DTO containing one page of a user's library.
+ * nextCursor is the cursor to request the following page with, or null when this page reaches the end of the library.
+ */
+public record LibraryPageDTO(List<BookDTO> books, String nextCursor) {
+}
@@ -0,0 +1,10 @@
+package com.example.springreader.dto;
+
+import java.util.List;
+
+/**
+ * DTO representing one page of a book's table of contents.
+ * Either the whole TOC in reading order, or the direct children of a single chapter.
+ */
+public record TocPageDTO(List<ChapterDTO> chapters, int page, int size, long totalChapters, boolean hasNext) {
+}
@@ -0,0 +1,10 @@
+package com.example.springreader.exception;
+
+/**
+ * Custom exception thrown when an upload cannot be queued for ingestion because the ingestion queue is full.
+ */
+public class IngestionQueueFullException extends RuntimeException{
+    public IngestionQueueFullException(String message) {
+        super(message);
+    }
+}
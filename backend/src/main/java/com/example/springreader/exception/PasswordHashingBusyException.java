@@ -0,0 +1,11 @@
+package com.example.springreader.exception;
+
+/**
+ * Custom exception thrown when a password cannot be hashed or checked because every password hashing thread is busy
+ * and the hashing queue is full.
+ */
+public class PasswordHashingBusyException extends RuntimeException{
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
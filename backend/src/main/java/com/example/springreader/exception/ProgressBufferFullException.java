@@ -0,0 +1,10 @@
+package com.example.springreader.exception;
+
+/**
+ * Custom exception thrown when reading progress cannot be saved because too many positions are waiting to be written.
+ */
+public class ProgressBufferFullException extends RuntimeException{
+    public ProgressBufferFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.springreader.exception;
+
+/**
+ * Custom exception thrown when an uploaded book is larger than the configured limit.
+ */
+public class UploadTooLargeException extends RuntimeException{
+    public UploadTooLargeException(String message) {
+        super(message);
+    }
+}
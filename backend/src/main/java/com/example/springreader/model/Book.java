@@ -3,6 +3,7 @@ package com.example.springreader.model;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -11,7 +12,7 @@ import java.util.List;
  * Represents a Book entity in the application.
  *
  * This entity stores information about a book, including its title, author,
- * file path for the content, path for the cover image, and its associated chapters.
+ * file path for the content, content hash, path for the cover image and its thumbnails, and its associated chapters.
  * An index is defined on the isDefault column for optimized querying.
  */
 @Entity
@@ -20,13 +21,38 @@ import java.util.List;
 @NoArgsConstructor
 public class Book {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    //Sequence ids, unlike identity columns, let Hibernate batch the inserts of books, chapters and library entries
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
     private String title;
     private String author;
     private String filePath;
     private String coverImagePath;
 
+    /**
+     * SHA-256 of the EPUB file as hex. The stored file is never rewritten, so this identifies every
+     * representation served for the book and is the base of their HTTP ETags. It is unique: identical
+     * uploads share one book, stored once under this hash.
+     */
+    @Column(length = 64, unique = true)
+    private String contentHash;
+
+    /**
+     * Paths of the cover thumbnails, relative to the upload directory. They are generated after the book is saved,
+     * so they are null until then, and stay null for sizes the original cover is not larger than.
+     */
+    private String coverSmallPath;
+    private String coverMediumPath;
+    private String coverLargePath;
+
+    /**
+     * Set once the cover thumbnails have been generated. From then on a size without a thumbnail is served
+     * the original cover for good, because the cover is not wider than that size.
+     */
+    @Column(nullable = false)
+    @ColumnDefault("false")
+    private boolean coverThumbnailsGenerated = false;
+
     /**
      * Flag indicating if this book is a default book provided with the application.
      * Defaults to false.Indexed for faster lookups.
@@ -49,6 +75,38 @@ public class Book {
     public void addChapter(Chapter chapter){
         chapters.add(chapter);
     }
+
+    /**
+     * Returns the path of the cover image to serve for a requested size. Falls back to the next larger
+     * thumbnail, then to the original, when the requested thumbnail has not been generated.
+     *
+     * @param size The requested cover size.
+     * @return The cover image path relative to the upload directory, or null if the book has no cover.
+     */
+    public String getCoverPath(CoverSize size){
+        //In CoverSize order, smallest first, so ORIGINAL skips straight to the original image
+        String[] thumbnails = {coverSmallPath, coverMediumPath, coverLargePath};
+        for(int i = size.ordinal(); i < thumbnails.length; i++){
+            if(thumbnails[i] != null){
+                return thumbnails[i];
+            }
+        }
+        return coverImagePath;
+    }
+
+    /**
+     * @return The paths of every cover image file of this book: the original and its generated thumbnails.
+     */
+    public List<String> getCoverPaths(){
+        List<String> paths = new ArrayList<>();
+        for(String path : new String[]{coverImagePath, coverSmallPath, coverMediumPath, coverLargePath}){
+            if(path != null && !path.isBlank()){
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
     public Book(String title, String author, String filePath, String coverImagePath){
         this.title = title;
         this.author = author;
@@ -0,0 +1,14 @@
+package com.example.springreader.model;
+
+import java.nio.file.Path;
+
+/**
+ * The EPUB file of a book, resolved for download.
+ *
+ * @param path The absolute path of the file, checked to be inside the upload directory.
+ * @param fileName The name to download the file as: the book's title with characters unsafe in file names dropped,
+ *                 "book" if none are left, followed by ".epub".
+ * @param length The size of the file in bytes.
+ * @param contentHash The book's content hash, null for books saved before content hashes existed.
+ */
+public record BookFile(Path path, String fileName, long length, String contentHash) {}
@@ -0,0 +1,43 @@
+package com.example.springreader.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * The response of a book's metadata endpoint (a BookMetaDTO as JSON), serialized once when the book is ingested.
+ * Its chapter list comes from the table of contents parsed at ingest, which is never parsed again,
+ * so the bytes are served as they are.
+ *
+ * Kept in a table of its own, one row per book, so loading a Book to read it does not load its metadata,
+ * which grows with the size of its table of contents. The row is deleted with its book.
+ */
+@Entity
+@Table(name = "book_meta")
+@Getter
+@Setter
+@NoArgsConstructor
+public class BookMeta {
+    //Upper bound on the JSON size, for databases whose binary columns need a length
+    private static final int MAX_JSON_BYTES = 16 * 1024 * 1024;
+
+    @Id
+    private Long bookId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "book_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Book book;
+
+    @Column(nullable = false, length = MAX_JSON_BYTES)
+    private byte[] json;
+
+    public BookMeta(Book book, byte[] json) {
+        this.book = book;
+        this.json = json;
+    }
+}
@@ -4,22 +4,28 @@ package com.example.springreader.model;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 /**
  * Represents a Chapter entity, linked to a specific Book.
  *
  * Contains details about a chapter, such as its title, index within the book,
  * the path to its content file within the EPUB, and an optional anchor.
- * An index is defined on book_id and chapterIndex.
+ * The chapter's position in the nested TOC is kept as its depth, the index of its parent chapter and
+ * its number of direct children, so the TOC can be paged one level at a time.
+ * Indexes are defined on book_id and chapterIndex, and on book_id, parentIndex and chapterIndex.
  */
 @Entity
 @NoArgsConstructor
-@Table(name = "chapters", indexes = {@Index(name = "chapterBookIndex", columnList = "book_id, chapterIndex")})
+@Table(name = "chapters", indexes = {
+        @Index(name = "chapterBookIndex", columnList = "book_id, chapterIndex"),
+        @Index(name = "chapterBookParentIndex", columnList = "book_id, parentIndex, chapterIndex")
+})
 @Data
 public class Chapter {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     private String title;
@@ -27,6 +33,19 @@ public class Chapter {
     private String filePath; //Path within the EPUB archive
     private String anchor; //Optional identifier within the chapter file
 
+    //Defaults let the columns be added to existing rows, which are all top level chapters
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private int depth = 0;
+
+    @Column(nullable = false)
+    @ColumnDefault("-1")
+    private int parentIndex = -1; //chapterIndex of the enclosing chapter, -1 for top level chapters
+
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private int childCount = 0;
+
     /**
      * The Book to which this chapter belongs.
      * Represents the many-to-one relationship.
@@ -42,4 +61,11 @@ public class Chapter {
         this.anchor = anchor;
         this.book = book;
     }
+
+    public Chapter(String title, int chapterIndex, String filePath, String anchor, int depth, int parentIndex, int childCount, Book book){
+        this(title, chapterIndex, filePath, anchor, book);
+        this.depth = depth;
+        this.parentIndex = parentIndex;
+        this.childCount = childCount;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.example.springreader.model;
+
+/**
+ * Published when a book and its original cover image have been saved, so thumbnails can be generated
+ * once the ingestion transaction commits.
+ *
+ * @param bookId The ID of the saved book.
+ * @param coverImagePath The cover image's path relative to the upload directory.
+ */
+public record CoverSavedEvent(Long bookId, String coverImagePath) {}
@@ -0,0 +1,38 @@
+package com.example.springreader.model;
+
+import java.util.Locale;
+
+/**
+ * The sizes a book cover is served in. Thumbnails are generated at ingestion with a fixed width,
+ * keeping the cover's aspect ratio; ORIGINAL is the cover image exactly as it was in the EPUB.
+ */
+public enum CoverSize {
+    SMALL(160),
+    MEDIUM(320),
+    LARGE(640),
+    ORIGINAL(0);
+
+    private final int width;
+
+    CoverSize(int width) {
+        this.width = width;
+    }
+
+    /**
+     * @return the thumbnail width in pixels, 0 for the original image
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Parses the size request parameter case-insensitively.
+     *
+     * @param size the requested size, e.g. "small"
+     * @return the matching CoverSize
+     * @throws IllegalArgumentException if the size is not one of the CoverSize values
+     */
+    public static CoverSize fromParam(String size) {
+        return valueOf(size.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -8,5 +8,16 @@ package com.example.springreader.model;
  * @param anchor An optional anchor identifier within the chapter's content file.
  * @param index The sequential index of the chapter based on its order in the TOC.
  * @param filePath The path to the content file within the EPUB archive containing this chapter.
+ * @param depth The nesting depth of the chapter in the TOC, 0 for top level entries.
+ * @param parentIndex The index of the enclosing chapter, -1 for top level entries.
+ * @param childCount The number of chapters directly nested under this one.
  */
-public record EpubChapter(String title, String anchor, int index, String filePath) {}
\ No newline at end of file
+public record EpubChapter(String title, String anchor, int index, String filePath, int depth, int parentIndex, int childCount) {
+
+    /**
+     * Creates a top level chapter without nested chapters.
+     */
+    public EpubChapter(String title, String anchor, int index, String filePath) {
+        this(title, anchor, index, filePath, 0, -1, 0);
+    }
+}
\ No newline at end of file
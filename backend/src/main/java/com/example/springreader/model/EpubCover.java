@@ -0,0 +1,9 @@
+package com.example.springreader.model;
+
+/**
+ * Locates the cover image of an EPUB within its archive.
+ *
+ * @param entryPath The path of the cover image entry within the EPUB archive.
+ * @param mediaType The media type of the cover image (image/jpeg or image/png).
+ */
+public record EpubCover(String entryPath, String mediaType) {}
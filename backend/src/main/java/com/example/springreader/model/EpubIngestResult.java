@@ -0,0 +1,14 @@
+package com.example.springreader.model;
+
+import java.util.Map;
+
+/**
+ * Everything needed to ingest an EPUB, produced from a single open of the archive and a single parse of its OPF.
+ *
+ * @param title    The title of the book, "Unknown Title" if missing.
+ * @param author   The author of the book, "Unknown Author" if missing.
+ * @param toc      The parsed Table of Contents.
+ * @param manifest The OPF manifest items keyed by their id, in document order.
+ * @param cover    The cover image entry, or null if the EPUB has no cover image.
+ */
+public record EpubIngestResult(String title, String author, EpubToc toc, Map<String, ManifestItem> manifest, EpubCover cover) {}
@@ -1,15 +1,19 @@
 package com.example.springreader.model;
 
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 /**
  * Represents the parsed Table of Contents of an EPUB file.
  * It aggregates the content files, each potentially containing multiple chapters.
+ * Content files are also indexed by path so chapters can be attached to their file in constant time.
  */
 @Getter
 public class EpubToc {
@@ -18,7 +22,27 @@ public class EpubToc {
      * ordered as they appear in the TOC.
      */
     private final List<EpubContentFile> contentFiles = new ArrayList<>();
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, EpubContentFile> contentFilesByPath = new HashMap<>();
+
     public void addContentFile(EpubContentFile contentFile) {
         this.contentFiles.add(contentFile);
+        this.contentFilesByPath.putIfAbsent(contentFile.getFilePath(), contentFile);
+    }
+
+    /**
+     * Returns the content file for a path, adding a new one at the end of the TOC if it is not present yet.
+     *
+     * @param filePath The path of the content file within the EPUB archive.
+     * @return The content file for the path.
+     */
+    public EpubContentFile getOrAddContentFile(String filePath) {
+        EpubContentFile contentFile = contentFilesByPath.get(filePath);
+        if (contentFile == null) {
+            contentFile = new EpubContentFile(filePath);
+            addContentFile(contentFile);
+        }
+        return contentFile;
     }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.springreader.model;
+
+/**
+ * The stages of an ingestion job, in order. A job ends either COMPLETED or FAILED.
+ */
+public enum IngestionJobStatus {
+    /** Stored and waiting for an ingestion thread. */
+    QUEUED,
+    /** Being parsed and saved. */
+    PROCESSING,
+    /** In the user's library. */
+    COMPLETED,
+    /** Could not be added, the job's error says why. */
+    FAILED
+}
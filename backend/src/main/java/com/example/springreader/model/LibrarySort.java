@@ -0,0 +1,27 @@
+package com.example.springreader.model;
+
+import java.util.Locale;
+
+/**
+ * The orders a library can be listed in, a page at a time. Ties are broken by book ID, so every order is total
+ * and pages can continue after the last book of the previous one.
+ */
+public enum LibrarySort {
+    //By title, A to Z
+    TITLE,
+    //By author, then title, A to Z
+    AUTHOR,
+    //Most recently read first; books never read count from when they were added
+    RECENT;
+
+    /**
+     * Parses the sort request parameter case-insensitively.
+     *
+     * @param sort the requested order, e.g. "title"
+     * @return the matching LibrarySort
+     * @throws IllegalArgumentException if the order is not one of the LibrarySort values
+     */
+    public static LibrarySort fromParam(String sort) {
+        return valueOf(sort.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.springreader.model;
+
+/**
+ * Represents a single item of the OPF manifest.
+ *
+ * @param id         The manifest id of the item.
+ * @param path       The path of the item within the EPUB archive, resolved against the OPF directory.
+ * @param mediaType  The media type of the item (e.g. application/xhtml+xml, image/jpeg).
+ * @param properties The EPUB3 properties attribute of the item, empty if absent.
+ */
+public record ManifestItem(String id, String path, String mediaType, String properties) {}
@@ -0,0 +1,12 @@
+package com.example.springreader.model;
+
+/**
+ * Represents a single navPoint read from an NCX Table of Contents, in document order.
+ *
+ * @param id          The id attribute of the navPoint, empty if absent.
+ * @param label       The text of the navPoint's navLabel, or null if it has none.
+ * @param src         The src attribute of the navPoint's content element, or null if it has none.
+ * @param depth       The nesting depth of the navPoint, 0 for top level entries.
+ * @param parentIndex The document order index of the enclosing navPoint, -1 for top level entries.
+ */
+public record NavPoint(String id, String label, String src, int depth, int parentIndex) {}
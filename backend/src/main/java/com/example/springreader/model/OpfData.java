@@ -1,13 +1,15 @@
 package com.example.springreader.model;
 
-import org.w3c.dom.Document;
+import java.util.Map;
 
 /**
  * Represents the parsed data from an EPUB's OPF file.
- * This includes the parsed XML document and path information needed to resolve relative paths within the EPUB.
+ * This includes the book metadata, the manifest, and path information needed to resolve relative paths within the EPUB.
  *
- * @param opfDocument The parsed XML Doc object representing the OPF file content.
  * @param opfFilePath The path to the OPF file within the EPUB archive.
  * @param opfParent   The parent directory path of the OPF file within the EPUB archive, used for resolving relative paths.
+ * @param title       The first dc:title of the OPF metadata, or null if absent.
+ * @param author      The first dc:creator of the OPF metadata, or null if absent.
+ * @param manifest    The manifest items keyed by their id, in document order.
  */
-public record OpfData(Document opfDocument, String opfFilePath, String opfParent) {}
\ No newline at end of file
+public record OpfData(String opfFilePath, String opfParent, String title, String author, Map<String, ManifestItem> manifest) {}
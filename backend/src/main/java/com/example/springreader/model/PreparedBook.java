@@ -0,0 +1,40 @@
+package com.example.springreader.model;
+
+import java.util.List;
+
+/**
+ * A parsed EPUB ready to be saved. Its file is in place and its cover image and chapter text stores have been
+ * written, so saving it only takes database work and several prepared books can be saved in one batch.
+ *
+ * @param title          The title of the book.
+ * @param author         The author of the book.
+ * @param filePath       The book's file path relative to the upload directory.
+ * @param coverImagePath The saved cover image's path relative to the upload directory, or null if it has none.
+ * @param contentHash    The SHA-256 of the EPUB as hex.
+ * @param chapters       The flattened TOC of the book.
+ * @param metaJson       The book's metadata response (a BookMetaDTO) serialized as JSON.
+ */
+public record PreparedBook(String title, String author, String filePath, String coverImagePath,
+                           String contentHash, List<EpubChapter> chapters, byte[] metaJson) {
+
+    /**
+     * @return A new, unsaved Book entity with its chapters.
+     */
+    public Book toBook() {
+        Book book = new Book(title, author, filePath, coverImagePath);
+        book.setContentHash(contentHash);
+        for (EpubChapter epubChapter : chapters) {
+            book.addChapter(new Chapter(epubChapter.title(), epubChapter.index(), epubChapter.filePath(), epubChapter.anchor(),
+                    epubChapter.depth(), epubChapter.parentIndex(), epubChapter.childCount(), book));
+        }
+        return book;
+    }
+
+    /**
+     * @param book The saved Book entity created from this prepared book.
+     * @return A new, unsaved BookMeta entity holding the book's metadata JSON.
+     */
+    public BookMeta toBookMeta(Book book) {
+        return new BookMeta(book, metaJson);
+    }
+}
@@ -3,19 +3,24 @@ package com.example.springreader.model;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
 
 /**
  * Represents the association between a User and a Book.
  * It also stores the user's reading progress for that specific book.
  */
 @Entity
-@Table(name = "user_books")
+@Table(name = "user_books", uniqueConstraints = {@UniqueConstraint(columnNames = {"user_id", "book_id"})},
+        //Backs listing a library by recently read, a page at a time
+        indexes = {@Index(name = "userLastReadIndex", columnList = "user_id, lastReadAt, book_id")})
 @Data
 @NoArgsConstructor
 public class UserBook {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     /**
@@ -33,4 +38,12 @@ public class UserBook {
     private Book book;
 
     private Integer lastChapterIndex = 0;
+
+    /**
+     * When the user last saved progress in this book, or added it to their library if they have not read it yet.
+     * The default lets the column be added to existing rows, which start out as read at the time of the update.
+     */
+    @Column(nullable = false)
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    private Instant lastReadAt = Instant.now();
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.example.springreader.repository;
+
+import com.example.springreader.model.BookMeta;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+/**
+ * Spring Data JPA repository for BookMeta entities.
+ */
+public interface BookMetaRepository extends JpaRepository<BookMeta, Long> {
+
+    /**
+     * Finds the serialized metadata of a book without loading the entity.
+     */
+    @Query("select m.json from BookMeta m where m.bookId = :bookId")
+    Optional<byte[]> findJsonByBookId(@Param("bookId") Long bookId);
+}
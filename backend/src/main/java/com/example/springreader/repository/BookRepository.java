@@ -1,8 +1,16 @@
 package com.example.springreader.repository;
 
 import com.example.springreader.model.Book;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -20,4 +28,39 @@ import java.util.Optional;
 public interface BookRepository extends JpaRepository<Book, Long> {
 
     Optional<Book> findByisDefaultTrue();
+
+    /**
+     * Finds the book with the given content, locking its row until the transaction ends so it cannot be
+     * deleted while it is being added to a library.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Book b where b.contentHash = :contentHash")
+    Optional<Book> findAndLockByContentHash(@Param("contentHash") String contentHash);
+
+    /**
+     * Finds the books with any of the given contents, locking their rows in ID order until the transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Book b where b.contentHash in :contentHashes order by b.id")
+    List<Book> findAndLockByContentHashIn(@Param("contentHashes") Collection<String> contentHashes);
+
+    /**
+     * Locks a book's row until the transaction ends, so no library can link to it while it is being deleted.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Book b where b.id = :bookId")
+    Optional<Book> findAndLockById(@Param("bookId") Long bookId);
+
+    /**
+     * Stores the paths of a book's generated cover thumbnails without loading the book, and marks its thumbnails
+     * as generated. Paths are null for sizes the cover is not wider than.
+     *
+     * @return the number of books updated, 0 if the book has been deleted in the meantime
+     */
+    @Transactional
+    @Modifying
+    @Query("update Book b set b.coverSmallPath = :small, b.coverMediumPath = :medium, b.coverLargePath = :large, "
+            + "b.coverThumbnailsGenerated = true where b.id = :bookId")
+    int updateCoverThumbnails(@Param("bookId") Long bookId, @Param("small") String small,
+                              @Param("medium") String medium, @Param("large") String large);
 }
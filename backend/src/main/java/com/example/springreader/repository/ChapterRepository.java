@@ -1,8 +1,12 @@
 package com.example.springreader.repository;
 
 import com.example.springreader.model.Chapter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+
 /**
  * Spring Data JPA repository for chapter entities.
  */
@@ -13,4 +17,24 @@ public interface ChapterRepository extends JpaRepository<Chapter, Long> {
      * Spring Data JPA automatically implements this query based on the method name.
      */
     Chapter findByBookIdAndChapterIndex(Long bookId, Integer chapterIndex);
+
+    /**
+     * Finds every chapter of a book that lives in the given content file, so they can be segmented from a single parse.
+     */
+    List<Chapter> findByBookIdAndFilePath(Long bookId, String filePath);
+
+    /**
+     * Finds every chapter of a book in reading order.
+     */
+    List<Chapter> findByBookIdOrderByChapterIndex(Long bookId);
+
+    /**
+     * Finds one page of a book's chapters.
+     */
+    Page<Chapter> findByBookId(Long bookId, Pageable pageable);
+
+    /**
+     * Finds one page of the chapters directly nested under a parent chapter (-1 for top level chapters).
+     */
+    Page<Chapter> findByBookIdAndParentIndex(Long bookId, int parentIndex, Pageable pageable);
 }
\ No newline at end of file
@@ -1,16 +1,85 @@
 package com.example.springreader.repository;
 
+import com.example.springreader.dto.BookDTO;
+import com.example.springreader.model.Book;
 import com.example.springreader.model.UserBook;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Spring Data JPA repository for UserBook entities.
  */
 public interface UserBookRepository extends JpaRepository<UserBook, Long> {
-    List<UserBook> findByUserId(Long userId);
+    //Selects the columns of a library entry's BookDTO, so listings take one query and load no entities
+    String LIBRARY_ENTRY = "select new com.example.springreader.dto.BookDTO(b.id, b.title, b.author, ub.lastChapterIndex, "
+            + "b.coverImagePath, b.contentHash, ub.lastReadAt) from UserBook ub join ub.book b where ub.user.id = :userId";
+
     Optional<UserBook> findByUserIdAndBookId(Long userId, Long bookId);
+    boolean existsByUserIdAndBookId(Long userId, Long bookId);
+    boolean existsByBookId(Long bookId);
+
+    /**
+     * Finds the content hash of a book in the user's library without loading the book or the association.
+     * Empty if the book is not in the user's library or has no content hash.
+     */
+    @Query("select ub.book.contentHash from UserBook ub where ub.user.id = :userId and ub.book.id = :bookId")
+    Optional<String> findBookContentHash(@Param("userId") Long userId, @Param("bookId") Long bookId);
+
+    /**
+     * Finds a book in the user's library with a single query, without loading the association.
+     */
+    @Query("select ub.book from UserBook ub where ub.user.id = :userId and ub.book.id = :bookId")
+    Optional<Book> findBook(@Param("userId") Long userId, @Param("bookId") Long bookId);
+
+    /**
+     * Finds which of the given books are in the user's library, with a single query.
+     */
+    @Query("select ub.book.id from UserBook ub where ub.user.id = :userId and ub.book.id in :bookIds")
+    Set<Long> findBookIdsInLibrary(@Param("userId") Long userId, @Param("bookIds") Collection<Long> bookIds);
+
+    /**
+     * Lists the user's whole library, in the order the books were added, with a single query.
+     */
+    @Query(LIBRARY_ENTRY + " order by ub.id")
+    List<BookDTO> findLibrary(@Param("userId") Long userId);
+
+    /**
+     * Lists a page of the user's library by title, starting after the given book, or from the start when afterId
+     * is null. The page size is taken from the pageable, whose offset must be 0. Books without a title sort as
+     * an empty title, in the order and in the cursor predicate alike, so no page skips them.
+     */
+    @Query(LIBRARY_ENTRY + " and (:afterId is null or coalesce(b.title, '') > :afterTitle"
+            + " or (coalesce(b.title, '') = :afterTitle and b.id > :afterId))"
+            + " order by coalesce(b.title, ''), b.id")
+    List<BookDTO> findLibraryByTitle(@Param("userId") Long userId, @Param("afterTitle") String afterTitle,
+                                     @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Lists a page of the user's library by author, then title, starting after the given book, or from the start
+     * when afterId is null. The page size is taken from the pageable, whose offset must be 0. Missing authors and
+     * titles sort as empty strings, like in findLibraryByTitle.
+     */
+    @Query(LIBRARY_ENTRY + " and (:afterId is null or coalesce(b.author, '') > :afterAuthor"
+            + " or (coalesce(b.author, '') = :afterAuthor and (coalesce(b.title, '') > :afterTitle"
+            + " or (coalesce(b.title, '') = :afterTitle and b.id > :afterId))))"
+            + " order by coalesce(b.author, ''), coalesce(b.title, ''), b.id")
+    List<BookDTO> findLibraryByAuthor(@Param("userId") Long userId, @Param("afterAuthor") String afterAuthor,
+                                      @Param("afterTitle") String afterTitle, @Param("afterId") Long afterId, Pageable pageable);
 
-}
\ No newline at end of file
+    /**
+     * Lists a page of the user's library, most recently read first, starting after the given book, or from the start
+     * when afterId is null. The page size is taken from the pageable, whose offset must be 0.
+     */
+    @Query(LIBRARY_ENTRY + " and (:afterId is null or ub.lastReadAt < :afterReadAt or (ub.lastReadAt = :afterReadAt and b.id < :afterId))"
+            + " order by ub.lastReadAt desc, b.id desc")
+    List<BookDTO> findLibraryByRecent(@Param("userId") Long userId, @Param("afterReadAt") Instant afterReadAt,
+                                      @Param("afterId") Long afterId, Pageable pageable);
+}
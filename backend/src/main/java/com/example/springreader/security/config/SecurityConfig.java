@@ -1,6 +1,7 @@
 package com.example.springreader.security.config;
 
 import com.example.springreader.security.filter.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -11,7 +12,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -31,11 +31,13 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final UserDetailsService userDetailsService;
+    private final PasswordEncoder passwordEncoder;
 
     /**
      * Configures the security filter chain for the app. Each request goes through this chain first before hitting
      * our endpoints. My particular setup includes disabling CSRF (not needed when using JWT auth),
-     * basic CORS setup, allowing unauthenticated access to specific endpoints (login/register/consoleDB - to be removed);
+     * basic CORS setup, allowing unauthenticated access to specific endpoints (login/register/consoleDB - to be removed),
+     * to the health check, and to the Prometheus metrics on the management port only;
      * all other endpoints will need to be hit by an authenticated user.
      * Sets stateless session management as we're using JWTs, as well as adds our custom JWT filter.
      *The headers frameOption disable are for our console DB to work. It will be removed once we move past h2
@@ -45,12 +47,21 @@ public class SecurityConfig {
      * @throws Exception if an error occurs
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, @Value("${cors.allowed-origins}") String allowedOrigins) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, @Value("${cors.allowed-origins}") String allowedOrigins,
+                                                   @Value("${server.port:8080}") int serverPort,
+                                                   @Value("${management.server.port:${server.port:8080}}") int managementPort) throws Exception {
         http
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource(allowedOrigins)))
                 .authorizeHttpRequests(auth ->
                         auth.requestMatchers("/api/user/login", "/api/user/register").permitAll()
+                                .requestMatchers("/actuator/health").permitAll()
+                                //Metrics are only open to scrapers on the management port, which is not published,
+                                //everywhere else they need an authenticated user
+                                .requestMatchers(request -> managementPort != serverPort && request.getLocalPort() == managementPort
+                                        && "/actuator/prometheus".equals(request.getRequestURI())).permitAll()
+                                //Streamed responses finish on an async dispatch of a request that was already authorized
+                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                 .anyRequest().authenticated())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authenticationProvider(authenticationProvider())
@@ -74,15 +85,10 @@ public class SecurityConfig {
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
     /**
      * Provides a configuration source for CORS in our app.
      * Allows all methods and headers coming from our front end
@@ -0,0 +1,136 @@
+package com.example.springreader.security.crypto;
+
+import com.example.springreader.exception.PasswordHashingBusyException;
+import com.example.springreader.utility.WorkerThreads;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The application's PasswordEncoder: BCrypt, run on a small pool of its own rather than on request threads.
+ *
+ * BCrypt is deliberately slow, so a burst of logins, such as every client signing in again after a deploy, would
+ * otherwise keep the CPU busy on request threads and slow down reading. The pool caps how many hashes run at once,
+ * and when its queue is full, hashing is refused with a PasswordHashingBusyException (429) instead of queueing
+ * without bound. Hashes are created with the cost security.bcrypt.strength; upgradeEncoding reports hashes made
+ * with a lower one.
+ */
+@Component
+public class OffloadingPasswordEncoder implements PasswordEncoder, MeterBinder {
+
+    private final BCryptPasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder hashed = new LongAdder();
+    private final LongAdder hashingNanos = new LongAdder();
+    private final LongAdder waitingNanos = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public OffloadingPasswordEncoder(@Value("${security.bcrypt.strength:10}") int strength,
+                                     @Value("${security.bcrypt.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+                                     @Value("${security.bcrypt.queue-capacity:64}") int queueCapacity) {
+        this.delegate = new BCryptPasswordEncoder(strength);
+        //Hashing is pure CPU work, so it runs on platform threads even when requests run on virtual ones
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), WorkerThreads.factory("password-hashing-", false));
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hash(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return hash(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * @param encodedPassword a stored hash
+     * @return true if the hash was made with a lower cost than the configured one, or is not a BCrypt hash
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("springreader.password.queued", executor, pool -> pool.getQueue().size())
+                .description("Password hashes waiting for a hashing thread")
+                .register(registry);
+        Gauge.builder("springreader.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashes being computed")
+                .register(registry);
+        FunctionTimer.builder("springreader.password.hashing", this, encoder -> encoder.hashed.sum(),
+                        encoder -> encoder.hashingNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time spent computing password hashes")
+                .register(registry);
+        FunctionTimer.builder("springreader.password.queue.wait", this, encoder -> encoder.hashed.sum(),
+                        encoder -> encoder.waitingNanos.sum(), TimeUnit.NANOSECONDS)
+                .description("Time password hashes waited in the queue")
+                .register(registry);
+        FunctionCounter.builder("springreader.password.rejected", rejected, LongAdder::sum)
+                .description("Password hashes refused because the hashing queue was full")
+                .register(registry);
+    }
+
+    /**
+     * Runs a hashing operation on the pool and waits for its result.
+     */
+    private <T> T hash(Supplier<T> operation) {
+        long submittedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                try {
+                    return operation.get();
+                } finally {
+                    long finishedAt = System.nanoTime();
+                    waitingNanos.add(startedAt - submittedAt);
+                    hashingNanos.add(finishedAt - startedAt);
+                    hashed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("Password hashing queue is full");
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a password hash", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
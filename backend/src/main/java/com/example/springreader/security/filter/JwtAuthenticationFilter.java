@@ -53,27 +53,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         try {
-            username = jwtService.extractUsername(jwt);
+            //Verifies the signature and expiration once, or finds the token verified before
+            username = jwtService.verifiedUsername(jwt);
 
             //If username extracted and no authentication context exists yet
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                //Load user details (implicitly checks if user exists)
-                User user = (User) this.userDetailsService.loadUserByUsername(username);
+                //Load user details (implicitly checks if user exists), cached between requests
+                User user = this.userDetailsService.loadAuthenticatedUser(username);
 
-                //Validate the token against the loaded user details
-                if (jwtService.isTokenValid(jwt, user)) {
-                    //Create authentication token
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            user,
-                            null, // No credentials needed as we used JWT
-                            user.getAuthorities()
-                    );
-                    //Set authentication in the security context
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                    log.debug("Successfully authenticated user '{}' via JWT.", username);
-                } else {
-                     log.warn("Invalid JWT token received for user '{}'.", username);
-                }
+                //Create authentication token
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        user,
+                        null, // No credentials needed as we used JWT
+                        user.getAuthorities()
+                );
+                //Set authentication in the security context
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+                log.debug("Successfully authenticated user '{}' via JWT.", username);
             }
         } catch (Exception e) {
             log.error("Could not set user authentication in security context: {}", e.getMessage());
@@ -6,6 +6,7 @@ import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
@@ -26,6 +27,7 @@ import java.util.UUID;
  */
 @Slf4j
 @Service
+@DependsOn("idSequenceInitService") //The default book's ids come from the sequences, which must be aligned first
 @RequiredArgsConstructor
 public class BookInitService {
     private final BookRepository bookRepository;
@@ -0,0 +1,29 @@
+package com.example.springreader.service;
+
+import com.example.springreader.utility.BoundedByteCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory cache of the metadata JSON stored in BookMeta rows, keyed by book ID, so the metadata of books
+ * being read is sent without a database round trip. Entries are dropped when their book is deleted.
+ * Bounded by the size of the cached JSON.
+ */
+@Component
+public class BookMetaCache extends BoundedByteCache<Long, byte[]> implements MeterBinder {
+
+    //Rough per entry overhead for the key, the array header and the map node
+    private static final long ENTRY_OVERHEAD_BYTES = 64;
+
+    public BookMetaCache(@Value("${books.cache.meta.max-bytes:16777216}") long maxBytes) {
+        super(maxBytes, json -> ENTRY_OVERHEAD_BYTES + json.length);
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        bindMeters(registry, "springreader.meta.cache", "book metadata");
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.springreader.service;
+
+import com.example.springreader.exception.EpubProcessingException;
+import com.example.springreader.exception.UploadTooLargeException;
+import com.example.springreader.model.Book;
+import com.example.springreader.model.PreparedBook;
+import com.example.springreader.model.User;
+import com.example.springreader.utility.ContentHash;
+import com.example.springreader.utility.EpubSignature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Adds uploaded EPUBs to users' libraries with content-addressed storage.
+ *
+ * Uploads are hashed while they are streamed to disk and stored under their SHA-256. When a book with the
+ * same content already exists, the uploader's library is linked to it instead of ingesting the file again, so
+ * identical uploads share one file, one set of rows and one ingestion.
+ * A new upload is ingested from a file name of its own, so when concurrent uploads of the same content race,
+ * the one that fails only deletes its own files and never those of the book the other saved.
+ * Uploads are written once, next to their final location, and checked as they are read.
+ */
+@Slf4j
+@Service
+public class BookUploadService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final LibraryService libraryService;
+    private final Path uploadDir;
+    private final DataSize maxBookSize;
+
+    public BookUploadService(LibraryService libraryService, Path uploadDir,
+                             @Value("${books.upload.max-book-size:100MB}") DataSize maxBookSize) {
+        this.libraryService = libraryService;
+        this.uploadDir = uploadDir;
+        this.maxBookSize = maxBookSize;
+    }
+
+    /**
+     * Streams an upload to a temporary file in the upload directory in a single pass, hashing it on the way.
+     * The first bytes are checked against the EPUB signature before anything is written, and the upload is
+     * abandoned as soon as it exceeds the size limit, so invalid or oversized uploads are never read to the end.
+     *
+     * @param inputStream The uploaded content, read to the end but not closed.
+     * @return The temporary file and the content hash of the upload.
+     * @throws IOException If the upload cannot be read or written.
+     * @throws IllegalArgumentException If the upload is not an EPUB.
+     * @throws UploadTooLargeException If the upload is larger than the size limit.
+     */
+    public StoredUpload store(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int prefixLength = inputStream.readNBytes(buffer, 0, EpubSignature.PREFIX_BYTES);
+        EpubSignature.verify(buffer, prefixLength);
+
+        MessageDigest digest = ContentHash.newDigest();
+        Path temp = Files.createTempFile(uploadDir, "upload-", ".tmp");
+        try (OutputStream outputStream = Files.newOutputStream(temp)) {
+            long total = 0;
+            int read = prefixLength;
+            do {
+                total += read;
+                if (total > maxBookSize.toBytes()) {
+                    throw new UploadTooLargeException("The book is larger than the upload limit of " + maxBookSize.toMegabytes() + "MB");
+                }
+                digest.update(buffer, 0, read);
+                outputStream.write(buffer, 0, read);
+            } while ((read = inputStream.read(buffer)) != -1);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return new StoredUpload(temp, ContentHash.toHex(digest.digest()));
+    }
+
+    /**
+     * Rejects an upload whose declared length is larger than the size limit, before any of it is read.
+     *
+     * @param contentLength The length of the upload, or null if it is not known in advance.
+     * @throws UploadTooLargeException If the length is larger than the size limit.
+     */
+    public void checkSize(Long contentLength) {
+        if (contentLength != null && contentLength > maxBookSize.toBytes()) {
+            throw new UploadTooLargeException("The book is larger than the upload limit of " + maxBookSize.toMegabytes() + "MB");
+        }
+    }
+
+    /**
+     * Adds a stored upload to a user's library. An existing book with the same content is linked and the upload
+     * discarded; otherwise the upload is moved to its content-addressed path and ingested.
+     *
+     * @param upload The upload, as returned by store. Its temporary file is always consumed.
+     * @param user The user who uploaded the book.
+     * @return The book now in the user's library.
+     * @throws IOException If the upload cannot be moved or read.
+     * @throws EpubProcessingException If the EPUB cannot be parsed.
+     */
+    public Book addToLibrary(StoredUpload upload, User user) throws IOException, EpubProcessingException {
+        try {
+            Optional<Book> existingBook = libraryService.addExistingBook(upload.contentHash(), user);
+            if (existingBook.isPresent()) {
+                return existingBook.get();
+            }
+
+            Path bookPath = moveForIngestion(upload);
+            PreparedBook preparedBook;
+            try {
+                //Parsed outside any transaction, so no connection is held meanwhile
+                preparedBook = libraryService.prepareBook(bookPath.toFile(), upload.contentHash());
+            } catch (IOException | RuntimeException e) {
+                libraryService.deleteFile(bookPath.getFileName().toString(), "epub");
+                throw e;
+            }
+
+            try {
+                return libraryService.addPreparedBook(preparedBook, user);
+            } catch (DataIntegrityViolationException e) {
+                log.info("Book with content hash {} was added concurrently, linking it instead", upload.contentHash());
+                libraryService.discardPreparedBook(preparedBook);
+                return libraryService.addExistingBook(upload.contentHash(), user).orElseThrow(() -> e);
+            } catch (RuntimeException e) {
+                libraryService.discardPreparedBook(preparedBook);
+                throw e;
+            }
+        } finally {
+            Files.deleteIfExists(upload.file());
+        }
+    }
+
+    /**
+     * Moves a stored upload to the file it is ingested from: its content hash followed by a random suffix.
+     * No other ingestion uses that name, so the file and everything prepared from it can be deleted if the
+     * ingestion fails, whatever happens to other uploads of the same content.
+     *
+     * @param upload The upload, as returned by store. Its temporary file is moved.
+     * @return The path of the book's file in the upload directory.
+     * @throws IOException If the upload cannot be moved.
+     */
+    public Path moveForIngestion(StoredUpload upload) throws IOException {
+        Path bookPath = uploadDir.resolve(upload.contentHash() + "-" + UUID.randomUUID() + ".epub");
+        Files.move(upload.file(), bookPath, StandardCopyOption.ATOMIC_MOVE);
+        return bookPath;
+    }
+
+    /**
+     * An upload streamed to a temporary file in the upload directory.
+     *
+     * @param file The temporary file.
+     * @param contentHash The SHA-256 of the upload as hex.
+     */
+    public record StoredUpload(Path file, String contentHash) {}
+}
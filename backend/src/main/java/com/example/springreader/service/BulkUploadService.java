@@ -0,0 +1,269 @@
+package com.example.springreader.service;
+
+import com.example.springreader.dto.BulkUploadResultDTO;
+import com.example.springreader.exception.EpubProcessingException;
+import com.example.springreader.exception.UploadTooLargeException;
+import com.example.springreader.model.Book;
+import com.example.springreader.model.PreparedBook;
+import com.example.springreader.model.User;
+import com.example.springreader.utility.WorkerThreads;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Adds many EPUBs to a user's library in one request, for migrating an existing library.
+ *
+ * Uploads are checked, stored and hashed like single uploads; EPUBs inside ZIP archives are extracted on the way,
+ * each held to the size limit of a single book.
+ * Books already in the database are linked in one transaction. The others are parsed in parallel on a pool
+ * shared by all bulk uploads, whose size caps the cores spent on ingestion, and saved together in batches
+ * instead of one transaction per book.
+ */
+@Slf4j
+@Service
+public class BulkUploadService {
+    private static final String INVALID_EPUB = "The file could not be processed as an EPUB.";
+    private static final String UNEXPECTED_ERROR = "An unexpected error occurred while adding the book.";
+
+    private final BookUploadService bookUploadService;
+    private final LibraryService libraryService;
+    private final int maxBooks;
+    private final int batchSize;
+    private final ExecutorService executor;
+
+    public BulkUploadService(BookUploadService bookUploadService, LibraryService libraryService,
+                             @Value("${books.bulk.concurrency:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int concurrency,
+                             @Value("${books.bulk.max-books:500}") int maxBooks,
+                             @Value("${books.bulk.batch-size:50}") int batchSize,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.bookUploadService = bookUploadService;
+        this.libraryService = libraryService;
+        this.maxBooks = maxBooks;
+        this.batchSize = batchSize;
+        this.executor = Executors.newFixedThreadPool(concurrency, WorkerThreads.factory("bulk-ingest-", virtualThreads));
+    }
+
+    /**
+     * Adds every EPUB among the uploaded files to a user's library. Files ending in .zip are read as archives
+     * of EPUBs; entries that are not EPUBs are skipped.
+     *
+     * @param files The uploaded EPUB and ZIP files.
+     * @param user The user who uploaded the files.
+     * @return One result per EPUB, in upload order, and one per file that is neither an EPUB nor a readable ZIP.
+     * @throws IOException If an upload cannot be read or stored.
+     * @throws IllegalArgumentException If the files hold more books than a bulk upload may.
+     */
+    public List<BulkUploadResultDTO> addAllToLibrary(List<MultipartFile> files, User user) throws IOException {
+        List<Upload> uploads = new ArrayList<>();
+        try {
+            for (MultipartFile file : files) {
+                String fileName = file.getOriginalFilename() == null ? "" : file.getOriginalFilename();
+                String lowerCaseName = fileName.toLowerCase();
+                if (lowerCaseName.endsWith(".epub")) {
+                    try (InputStream inputStream = file.getInputStream()) {
+                        add(uploads, store(fileName, inputStream));
+                    }
+                } else if (lowerCaseName.endsWith(".zip")) {
+                    storeArchive(fileName, file, uploads);
+                } else {
+                    add(uploads, new Upload(fileName, null, "Only EPUB files, or ZIP archives of EPUB files, are supported."));
+                }
+            }
+            return ingest(uploads, user);
+        } finally {
+            for (Upload upload : uploads) {
+                if (upload.stored() != null) {
+                    Files.deleteIfExists(upload.stored().file());
+                }
+            }
+        }
+    }
+
+    /**
+     * Lets running parses finish, so no half-written stores are left behind.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void storeArchive(String archiveName, MultipartFile file, List<Upload> uploads) throws IOException {
+        int epubCount = 0;
+        try (ZipInputStream zip = new ZipInputStream(file.getInputStream())) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                String entryName = entry.getName();
+                //Skips folders and the resource forks macOS adds to archives
+                if (entry.isDirectory() || entryName.startsWith("__MACOSX/") || !entryName.toLowerCase().endsWith(".epub")) {
+                    continue;
+                }
+                add(uploads, store(archiveName + "/" + entryName, zip));
+                epubCount++;
+            }
+        } catch (ZipException e) {
+            log.warn("Invalid ZIP archive in bulk upload: {}", archiveName, e);
+            add(uploads, new Upload(archiveName, null, "The file is not a valid ZIP archive."));
+            return;
+        }
+        //ZipInputStream reads a file that is not a ZIP archive as an empty one
+        if (epubCount == 0) {
+            add(uploads, new Upload(archiveName, null, "The file is not a ZIP archive of EPUB files."));
+        }
+    }
+
+    /**
+     * Stores one EPUB of the upload. EPUBs that fail the signature check or the size limit are reported
+     * without failing the others.
+     */
+    private Upload store(String fileName, InputStream inputStream) throws IOException {
+        try {
+            return new Upload(fileName, bookUploadService.store(inputStream), null);
+        } catch (IllegalArgumentException | UploadTooLargeException e) {
+            log.warn("Rejected {} of a bulk upload: {}", fileName, e.getMessage());
+            return new Upload(fileName, null, e.getMessage());
+        }
+    }
+
+    private void add(List<Upload> uploads, Upload upload) {
+        uploads.add(upload);
+        if (uploads.size() > maxBooks) {
+            throw new IllegalArgumentException("A bulk upload can add at most " + maxBooks + " books");
+        }
+    }
+
+    private List<BulkUploadResultDTO> ingest(List<Upload> uploads, User user) throws IOException {
+        //Identical files are ingested once
+        Map<String, Upload> uploadsByHash = new LinkedHashMap<>();
+        for (Upload upload : uploads) {
+            if (upload.stored() != null) {
+                uploadsByHash.putIfAbsent(upload.stored().contentHash(), upload);
+            }
+        }
+
+        Map<String, Outcome> outcomes = new HashMap<>();
+        libraryService.addExistingBooks(uploadsByHash.keySet(), user)
+                .forEach((contentHash, book) -> outcomes.put(contentHash, Outcome.added(book)));
+
+        Map<String, Future<PreparedBook>> parsing = new LinkedHashMap<>();
+        Map<String, Path> bookPaths = new HashMap<>();
+        for (Map.Entry<String, Upload> entry : uploadsByHash.entrySet()) {
+            String contentHash = entry.getKey();
+            if (outcomes.containsKey(contentHash)) {
+                continue;
+            }
+            Path bookPath = bookUploadService.moveForIngestion(entry.getValue().stored());
+            bookPaths.put(contentHash, bookPath);
+            parsing.put(contentHash, executor.submit(() -> libraryService.prepareBook(bookPath.toFile(), contentHash)));
+        }
+
+        List<PreparedBook> preparedBooks = new ArrayList<>();
+        for (Map.Entry<String, Future<PreparedBook>> entry : parsing.entrySet()) {
+            try {
+                preparedBooks.add(entry.getValue().get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof EpubProcessingException) {
+                    log.warn("Bulk upload of user {} holds an invalid EPUB: {}", user.getId(), cause.getMessage());
+                    outcomes.put(entry.getKey(), Outcome.failed(INVALID_EPUB));
+                } else {
+                    log.error("Error preparing book with content hash {} of a bulk upload", entry.getKey(), cause);
+                    outcomes.put(entry.getKey(), Outcome.failed(UNEXPECTED_ERROR));
+                }
+                //The file is this upload's own, other uploads of the same content are ingested from theirs
+                libraryService.deleteFile(bookPaths.get(entry.getKey()).getFileName().toString(), "epub");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                parsing.values().forEach(future -> future.cancel(true));
+                throw new InterruptedIOException("Interrupted while ingesting a bulk upload");
+            }
+        }
+
+        for (int from = 0; from < preparedBooks.size(); from += batchSize) {
+            save(preparedBooks.subList(from, Math.min(from + batchSize, preparedBooks.size())), user, outcomes);
+        }
+
+        List<BulkUploadResultDTO> results = new ArrayList<>(uploads.size());
+        for (Upload upload : uploads) {
+            if (upload.stored() == null) {
+                results.add(BulkUploadResultDTO.failed(upload.fileName(), upload.error()));
+                continue;
+            }
+            Outcome outcome = outcomes.get(upload.stored().contentHash());
+            results.add(outcome.error() == null
+                    ? BulkUploadResultDTO.completed(upload.fileName(), outcome.bookId())
+                    : BulkUploadResultDTO.failed(upload.fileName(), outcome.error()));
+        }
+        return results;
+    }
+
+    /**
+     * Saves a batch of prepared books in one transaction. If that fails, typically because one of them was added
+     * concurrently by another upload, the books of the batch are saved one by one so the others still succeed.
+     */
+    private void save(List<PreparedBook> batch, User user, Map<String, Outcome> outcomes) {
+        try {
+            List<Book> books = libraryService.addPreparedBooks(batch, user);
+            for (Book book : books) {
+                outcomes.put(book.getContentHash(), Outcome.added(book));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not save a batch of {} books for user {}, saving them one by one", batch.size(), user.getId(), e);
+            for (PreparedBook preparedBook : batch) {
+                outcomes.put(preparedBook.contentHash(), saveOne(preparedBook, user));
+            }
+        }
+    }
+
+    private Outcome saveOne(PreparedBook preparedBook, User user) {
+        try {
+            return Outcome.added(libraryService.addPreparedBook(preparedBook, user));
+        } catch (DataIntegrityViolationException e) {
+            log.info("Book with content hash {} was added concurrently, linking it instead", preparedBook.contentHash());
+            libraryService.discardPreparedBook(preparedBook);
+            return libraryService.addExistingBook(preparedBook.contentHash(), user)
+                    .map(Outcome::added)
+                    .orElseGet(() -> Outcome.failed(UNEXPECTED_ERROR));
+        } catch (RuntimeException e) {
+            log.error("Error saving book with content hash {} of a bulk upload", preparedBook.contentHash(), e);
+            libraryService.discardPreparedBook(preparedBook);
+            return Outcome.failed(UNEXPECTED_ERROR);
+        }
+    }
+
+    /**
+     * A file of a bulk upload: an EPUB stored in the upload directory, or a file that could not be stored.
+     */
+    private record Upload(String fileName, BookUploadService.StoredUpload stored, String error) {}
+
+    private record Outcome(Long bookId, String error) {
+        static Outcome added(Book book) {
+            return new Outcome(book.getId(), null);
+        }
+
+        static Outcome failed(String error) {
+            return new Outcome(null, error);
+        }
+    }
+}
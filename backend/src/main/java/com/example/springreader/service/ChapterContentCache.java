@@ -0,0 +1,54 @@
+package com.example.springreader.service;
+
+import com.example.springreader.utility.BoundedByteCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory cache of parsed chapter text, keyed by book ID and chapter index.
+ * Parsing a chapter means reading it out of the EPUB, so a parsed chapter is kept and shared across requests and
+ * users until its book is deleted. The cache is bounded by the approximate heap size of the cached text,
+ * and its hit/miss/eviction counters are published to Micrometer.
+ */
+@Component
+public class ChapterContentCache implements MeterBinder {
+
+    //Rough per entry overhead for the key record, the String header and the map node
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private final BoundedByteCache<ChapterKey, String> cache;
+
+    public ChapterContentCache(@Value("${books.cache.chapter.max-bytes:67108864}") long maxBytes) {
+        this.cache = new BoundedByteCache<>(maxBytes, content -> ENTRY_OVERHEAD_BYTES + 2L * content.length());
+    }
+
+    /**
+     * @return the cached chapter text, or null if it has not been cached
+     */
+    public String get(Long bookId, int chapterIndex) {
+        return cache.get(new ChapterKey(bookId, chapterIndex));
+    }
+
+    public void put(Long bookId, int chapterIndex, String content) {
+        cache.put(new ChapterKey(bookId, chapterIndex), content);
+    }
+
+    /**
+     * Removes all cached chapters belonging to a book.
+     *
+     * @param bookId the ID of the book whose chapters should be dropped
+     */
+    public void invalidateBook(Long bookId) {
+        cache.invalidateIf(key -> key.bookId().equals(bookId));
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        cache.bindMeters(registry, "springreader.chapter.cache", "chapters");
+    }
+
+    private record ChapterKey(Long bookId, int chapterIndex) {}
+}
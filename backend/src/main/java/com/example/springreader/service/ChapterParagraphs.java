@@ -0,0 +1,21 @@
+package com.example.springreader.service;
+
+import com.example.springreader.utility.ParagraphSink;
+
+import java.io.IOException;
+
+/**
+ * The paragraphs of a chapter whose access has already been checked, ready to be written out.
+ * Returned by LibraryService so the text can be streamed after the request's transaction has ended.
+ */
+@FunctionalInterface
+public interface ChapterParagraphs {
+
+    /**
+     * Writes every paragraph of the chapter to the sink, in reading order.
+     *
+     * @param sink the destination of the paragraphs
+     * @throws IOException if the chapter cannot be read or the sink fails
+     */
+    void writeTo(ParagraphSink sink) throws IOException;
+}
@@ -0,0 +1,407 @@
+package com.example.springreader.service;
+
+import com.example.springreader.utility.ParagraphSink;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stores the extracted text of every chapter of a book in one packed file, so chapters can be
+ * served with a positioned read instead of reopening and re-parsing the EPUB.
+ *
+ * File layout (big endian):
+ * <pre>
+ * int  magic        "SRCT"
+ * int  version
+ * int  chapterCount
+ * chapterCount x { long offset, int length, long paragraphIndexOffset, int paragraphCount }
+ *                  length -1 means the chapter could not be extracted
+ * per chapter: UTF-8 chapter text, then paragraphCount x { int start, int length }
+ * </pre>
+ * Entries are indexed by chapter index, so a lookup is two small reads plus the chapter text itself.
+ * The paragraph index holds the byte range of every paragraph relative to the start of the chapter text,
+ * so a range of paragraphs is read with two positioned reads whatever the size of the chapter.
+ * Stores written in an older version are treated as missing, reads then fall back to parsing the EPUB.
+ */
+@Slf4j
+@Component
+public class ChapterTextStore {
+    private static final int MAGIC = 0x53524354; //"SRCT"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 12;
+    private static final int INDEX_ENTRY_BYTES = 24;
+    private static final int PARAGRAPH_ENTRY_BYTES = 8;
+    private static final int MISSING = -1;
+
+    private final Path storeDir;
+
+    public ChapterTextStore(Path uploadDir) {
+        this.storeDir = uploadDir.resolve("text");
+    }
+
+    /**
+     * Writes the packed text file for a book, replacing any existing one.
+     * The file is written to a temporary location first and moved into place so readers never see a partial store.
+     *
+     * @param bookFilePath the book's file path relative to the upload directory, used to name the store
+     * @param chapterTexts chapter text keyed by chapter index; null values mark chapters that could not be extracted
+     * @throws IOException if the store cannot be written
+     */
+    public void write(String bookFilePath, Map<Integer, String> chapterTexts) throws IOException {
+        int chapterCount = chapterTexts.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+
+        byte[][] encoded = new byte[chapterCount][];
+        for (Map.Entry<Integer, String> entry : chapterTexts.entrySet()) {
+            if (entry.getValue() != null) {
+                encoded[entry.getKey()] = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        ByteBuffer[] paragraphIndexes = new ByteBuffer[chapterCount];
+        ByteBuffer index = ByteBuffer.allocate(HEADER_BYTES + chapterCount * INDEX_ENTRY_BYTES);
+        index.putInt(MAGIC).putInt(VERSION).putInt(chapterCount);
+        long offset = index.capacity();
+        for (int i = 0; i < chapterCount; i++) {
+            byte[] text = encoded[i];
+            if (text == null) {
+                index.putLong(0).putInt(MISSING).putLong(0).putInt(0);
+            } else {
+                ByteBuffer paragraphIndex = indexParagraphs(text);
+                int paragraphCount = paragraphIndex.remaining() / PARAGRAPH_ENTRY_BYTES;
+                index.putLong(offset).putInt(text.length).putLong(offset + text.length).putInt(paragraphCount);
+                offset += text.length + paragraphIndex.remaining();
+                paragraphIndexes[i] = paragraphIndex;
+            }
+        }
+        index.flip();
+
+        Files.createDirectories(storeDir);
+        Path target = resolve(bookFilePath);
+        Path temp = Files.createTempFile(storeDir, "store-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, index);
+                for (int i = 0; i < chapterCount; i++) {
+                    if (encoded[i] != null) {
+                        writeFully(channel, ByteBuffer.wrap(encoded[i]));
+                        writeFully(channel, paragraphIndexes[i]);
+                    }
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.info("Wrote chapter text store for {} chapters at: {}", chapterCount, target);
+    }
+
+    /**
+     * Reads the text of a single chapter from a book's packed store.
+     *
+     * @param bookFilePath the book's file path relative to the upload directory
+     * @param chapterIndex the index of the chapter to read
+     * @return the chapter text, or an empty Optional if the book has no store (ingested before the store existed),
+     *         the store is unreadable, or the chapter was not extracted at ingest
+     */
+    public Optional<String> read(String bookFilePath, int chapterIndex) {
+        Path path = resolve(bookFilePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Entry entry = locate(channel, path, chapterIndex);
+            if (entry == null) {
+                return Optional.empty();
+            }
+
+            ByteBuffer text = readFully(channel, entry.offset(), entry.length());
+            return Optional.of(new String(text.array(), 0, entry.length(), StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.error("Error reading chapter text store: {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads the text of every chapter from a book's packed store.
+     *
+     * @param bookFilePath the book's file path relative to the upload directory
+     * @return chapter text keyed by chapter index, null for chapters that were not extracted at ingest,
+     *         or an empty Optional if the book has no readable store
+     */
+    public Optional<Map<Integer, String>> readAll(String bookFilePath) {
+        Path path = resolve(bookFilePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                log.warn("Chapter text store has an unknown format, ignoring: {}", path);
+                return Optional.empty();
+            }
+            int chapterCount = header.getInt();
+
+            ByteBuffer index = readFully(channel, HEADER_BYTES, chapterCount * INDEX_ENTRY_BYTES);
+            Map<Integer, String> chapterTexts = new HashMap<>();
+            for (int i = 0; i < chapterCount; i++) {
+                long offset = index.getLong();
+                int length = index.getInt();
+                index.position(index.position() + 12); //Paragraph index offset and count
+                chapterTexts.put(i, length == MISSING ? null
+                        : new String(readFully(channel, offset, length).array(), 0, length, StandardCharsets.UTF_8));
+            }
+            return Optional.of(chapterTexts);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.error("Error reading chapter text store: {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads a range of paragraphs of a chapter from a book's packed store, using the chapter's paragraph index
+     * so only the requested paragraphs are read.
+     *
+     * @param bookFilePath the book's file path relative to the upload directory
+     * @param chapterIndex the index of the chapter to read
+     * @param offset the index of the first paragraph to read
+     * @param limit the maximum number of paragraphs to read
+     * @return the paragraphs and the chapter's paragraph count, or an empty Optional if the store does not hold the chapter
+     */
+    public Optional<ParagraphSlice> readSlice(String bookFilePath, int chapterIndex, int offset, int limit) {
+        Path path = resolve(bookFilePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Entry entry = locate(channel, path, chapterIndex);
+            if (entry == null) {
+                return Optional.empty();
+            }
+
+            int count = Math.max(0, Math.min(limit, entry.paragraphCount() - offset));
+            if (count == 0) {
+                return Optional.of(new ParagraphSlice(List.of(), entry.paragraphCount()));
+            }
+
+            ByteBuffer paragraphIndex = readFully(channel, entry.paragraphIndexOffset() + (long) offset * PARAGRAPH_ENTRY_BYTES, count * PARAGRAPH_ENTRY_BYTES);
+            int[] starts = new int[count];
+            int[] lengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                starts[i] = paragraphIndex.getInt();
+                lengths[i] = paragraphIndex.getInt();
+            }
+
+            //Paragraphs are contiguous, so the whole range is one read
+            int spanStart = starts[0];
+            int spanLength = starts[count - 1] + lengths[count - 1] - spanStart;
+            ByteBuffer text = readFully(channel, entry.offset() + spanStart, spanLength);
+
+            List<String> paragraphs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                paragraphs.add(new String(text.array(), starts[i] - spanStart, lengths[i], StandardCharsets.UTF_8));
+            }
+            return Optional.of(new ParagraphSlice(paragraphs, entry.paragraphCount()));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.error("Error reading chapter text store: {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param bookFilePath the book's file path relative to the upload directory
+     * @param chapterIndex the index of the chapter
+     * @return true if the book's store holds the text of the chapter
+     */
+    public boolean contains(String bookFilePath, int chapterIndex) {
+        Path path = resolve(bookFilePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return locate(channel, path, chapterIndex) != null;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            log.error("Error reading chapter text store: {}", path, e);
+            return false;
+        }
+    }
+
+    /**
+     * Streams a chapter from a book's packed store to the sink one paragraph at a time, decoding the chapter
+     * through a small buffer so memory use does not depend on the size of the chapter.
+     *
+     * @param bookFilePath the book's file path relative to the upload directory
+     * @param chapterIndex the index of the chapter to read
+     * @param sink receives each paragraph in reading order
+     * @return false if the store does not hold the chapter, in which case nothing was written to the sink
+     * @throws IOException if the store cannot be read or the sink fails
+     */
+    public boolean readParagraphs(String bookFilePath, int chapterIndex, ParagraphSink sink) throws IOException {
+        Path path = resolve(bookFilePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Entry entry = locate(channel, path, chapterIndex);
+            if (entry == null) {
+                return false;
+            }
+
+            //Paragraphs are separated by blank lines and never contain line breaks themselves
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new ChannelRangeInputStream(channel, entry.offset(), entry.length()), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    sink.accept(line);
+                }
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the packed store of a book, if one exists.
+     *
+     * @param bookFilePath the book's file path relative to the upload directory
+     */
+    public void delete(String bookFilePath) {
+        Path path = resolve(bookFilePath);
+        try {
+            if (Files.deleteIfExists(path)) {
+                log.info("Deleted chapter text store: {}", path);
+            }
+        } catch (IOException e) {
+            log.error("Error deleting chapter text store: {}", path, e);
+        }
+    }
+
+    /**
+     * Looks up the index entry of a chapter.
+     *
+     * @return the entry, or null if the store has an unknown format, the index is out of range or the chapter is missing
+     */
+    private static Entry locate(FileChannel channel, Path path, int chapterIndex) throws IOException {
+        ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            log.warn("Chapter text store has an unknown format, ignoring: {}", path);
+            return null;
+        }
+        int chapterCount = header.getInt();
+        if (chapterIndex < 0 || chapterIndex >= chapterCount) {
+            return null;
+        }
+
+        ByteBuffer entry = readFully(channel, HEADER_BYTES + (long) chapterIndex * INDEX_ENTRY_BYTES, INDEX_ENTRY_BYTES);
+        long offset = entry.getLong();
+        int length = entry.getInt();
+        long paragraphIndexOffset = entry.getLong();
+        int paragraphCount = entry.getInt();
+        return length == MISSING ? null : new Entry(offset, length, paragraphIndexOffset, paragraphCount);
+    }
+
+    /**
+     * Builds the paragraph index of a chapter. Paragraphs are separated by blank lines and never contain
+     * line breaks themselves, so every run of bytes between line feeds is one paragraph.
+     *
+     * @param text the UTF-8 chapter text
+     * @return the { start, length } entries of every paragraph, ready to be written
+     */
+    private static ByteBuffer indexParagraphs(byte[] text) {
+        List<int[]> ranges = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= text.length; i++) {
+            if (i == text.length || text[i] == '\n') {
+                if (i > start) {
+                    ranges.add(new int[]{start, i - start});
+                }
+                start = i + 1;
+            }
+        }
+
+        ByteBuffer paragraphIndex = ByteBuffer.allocate(ranges.size() * PARAGRAPH_ENTRY_BYTES);
+        for (int[] range : ranges) {
+            paragraphIndex.putInt(range[0]).putInt(range[1]);
+        }
+        paragraphIndex.flip();
+        return paragraphIndex;
+    }
+
+    private Path resolve(String bookFilePath) {
+        return storeDir.resolve(Path.of(bookFilePath).getFileName() + ".chapters");
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of chapter text store");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private record Entry(long offset, int length, long paragraphIndexOffset, int paragraphCount) {}
+
+    /**
+     * A range of paragraphs of a chapter.
+     *
+     * @param paragraphs the paragraphs read, in reading order
+     * @param totalParagraphs the number of paragraphs in the whole chapter
+     */
+    public record ParagraphSlice(List<String> paragraphs, int totalParagraphs) {}
+
+    /**
+     * Reads a byte range of a channel with positioned reads, ending at the end of the range.
+     */
+    private static final class ChannelRangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        private ChannelRangeInputStream(FileChannel channel, long offset, int length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int toRead = (int) Math.min(len, end - position);
+            int read = channel.read(ByteBuffer.wrap(bytes, off, toRead), position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of chapter text store");
+            }
+            position += read;
+            return read;
+        }
+    }
+}
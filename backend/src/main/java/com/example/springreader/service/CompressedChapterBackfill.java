@@ -0,0 +1,91 @@
+package com.example.springreader.service;
+
+import com.example.springreader.utility.WorkerThreads;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Builds the CompressedChapterStore of books ingested before chapters were precompressed, from their
+ * ChapterTextStore. Compressing a whole book at maximum compression takes far longer than serving a chapter,
+ * so stores are built one at a time on a worker thread of their own, outside any request or transaction,
+ * and a book requested by many readers at once is only compressed once. Chapters are served uncompressed
+ * until its store exists.
+ */
+@Slf4j
+@Component
+public class CompressedChapterBackfill {
+    private final ChapterTextStore chapterTextStore;
+    private final CompressedChapterStore compressedChapterStore;
+    private final Path uploadDir;
+    private final ExecutorService executor;
+    private final Set<String> building = ConcurrentHashMap.newKeySet();
+
+    public CompressedChapterBackfill(ChapterTextStore chapterTextStore, CompressedChapterStore compressedChapterStore, Path uploadDir,
+                                     @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.chapterTextStore = chapterTextStore;
+        this.compressedChapterStore = compressedChapterStore;
+        this.uploadDir = uploadDir;
+        this.executor = Executors.newSingleThreadExecutor(WorkerThreads.factory("store-backfill-", virtualThreads));
+    }
+
+    /**
+     * Queues the build of a book's compressed store, unless it is already queued or running.
+     *
+     * @param bookFilePath the book's file path relative to the upload directory
+     */
+    public void request(String bookFilePath) {
+        if (!building.add(bookFilePath)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    build(bookFilePath);
+                } finally {
+                    building.remove(bookFilePath);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            building.remove(bookFilePath);
+            log.warn("Could not queue the compressed chapter store build for epub: {}", bookFilePath);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void build(String bookFilePath) {
+        if (compressedChapterStore.exists(bookFilePath)) {
+            return;
+        }
+        Optional<Map<Integer, String>> chapterTexts = chapterTextStore.readAll(bookFilePath);
+        if (chapterTexts.isEmpty()) {
+            return;
+        }
+        try {
+            compressedChapterStore.write(bookFilePath, chapterTexts.get());
+        } catch (IOException e) {
+            log.error("Error writing compressed chapter store for epub: {}", bookFilePath, e);
+            return;
+        }
+        //The book may have been deleted while it was compressed, its store would then never be deleted
+        if (!Files.exists(uploadDir.resolve(bookFilePath))) {
+            compressedChapterStore.delete(bookFilePath);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.springreader.service;
+
+import com.example.springreader.dto.ChapterContentDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores the chapter endpoint's response body for every chapter of a book, gzip compressed, in one packed file
+ * next to the book's ChapterTextStore. Chapters are compressed once, at maximum compression, and the bytes are
+ * sent as they are to clients accepting gzip, so serving a chapter costs no serialization or compression.
+ *
+ * File layout (big endian):
+ * <pre>
+ * int  magic        "SRCZ"
+ * int  version
+ * int  chapterCount
+ * chapterCount x { long offset, int length }
+ *                  length -1 means the chapter could not be extracted, or does not shrink when compressed
+ * per chapter: a gzip member holding the ChapterContentDTO JSON
+ * </pre>
+ * Stores written in an older version are treated as missing, the chapter is then served uncompressed.
+ */
+@Slf4j
+@Component
+public class CompressedChapterStore {
+    private static final int MAGIC = 0x5352435A; //"SRCZ"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+    private static final int INDEX_ENTRY_BYTES = 12;
+    private static final int MISSING = -1;
+
+    private final Path storeDir;
+    private final ObjectWriter chapterWriter;
+
+    public CompressedChapterStore(Path uploadDir, ObjectMapper objectMapper) {
+        this.storeDir = uploadDir.resolve("text");
+        this.chapterWriter = objectMapper.writerFor(ChapterContentDTO.class);
+    }
+
+    /**
+     * Compresses the chapters of a book and writes its packed store, replacing any existing one.
+     * The file is written to a temporary location first and moved into place so readers never see a partial store.
+     *
+     * @param bookFilePath the book's file path relative to the upload directory, used to name the store
+     * @param chapterTexts chapter text keyed by chapter index; null values mark chapters that could not be extracted
+     * @throws IOException if the store cannot be written
+     */
+    public void write(String bookFilePath, Map<Integer, String> chapterTexts) throws IOException {
+        int chapterCount = chapterTexts.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+
+        byte[][] compressed = new byte[chapterCount][];
+        for (Map.Entry<Integer, String> entry : chapterTexts.entrySet()) {
+            if (entry.getValue() != null) {
+                compressed[entry.getKey()] = compress(new ChapterContentDTO(entry.getValue()));
+            }
+        }
+
+        ByteBuffer index = ByteBuffer.allocate(HEADER_BYTES + chapterCount * INDEX_ENTRY_BYTES);
+        index.putInt(MAGIC).putInt(VERSION).putInt(chapterCount);
+        long offset = index.capacity();
+        for (byte[] payload : compressed) {
+            if (payload == null) {
+                index.putLong(0).putInt(MISSING);
+            } else {
+                index.putLong(offset).putInt(payload.length);
+                offset += payload.length;
+            }
+        }
+        index.flip();
+
+        Files.createDirectories(storeDir);
+        Path target = resolve(bookFilePath);
+        Path temp = Files.createTempFile(storeDir, "store-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(channel, index);
+                for (byte[] payload : compressed) {
+                    if (payload != null) {
+                        writeFully(channel, ByteBuffer.wrap(payload));
+                    }
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        log.info("Wrote compressed chapter store for {} chapters at: {}", chapterCount, target);
+    }
+
+    /**
+     * Reads the gzip compressed response body of a single chapter from a book's packed store.
+     *
+     * @param bookFilePath the book's file path relative to the upload directory
+     * @param chapterIndex the index of the chapter to read
+     * @return the gzip member, or an empty Optional if the book has no store, the store is unreadable,
+     *         or the chapter was not extracted at ingest or was too small to be worth compressing
+     */
+    public Optional<byte[]> read(String bookFilePath, int chapterIndex) {
+        Path path = resolve(bookFilePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Optional<Entry> entry = locate(channel, path, chapterIndex);
+            if (entry.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(readFully(channel, entry.get().offset(), entry.get().length()).array());
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            log.error("Error reading compressed chapter store: {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Checks whether read would return a chapter, reading only the store's header and index entry.
+     *
+     * @param bookFilePath the book's file path relative to the upload directory
+     * @param chapterIndex the index of the chapter
+     * @return true if the chapter is in the book's packed store
+     */
+    public boolean contains(String bookFilePath, int chapterIndex) {
+        Path path = resolve(bookFilePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return locate(channel, path, chapterIndex).isPresent();
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            log.error("Error reading compressed chapter store: {}", path, e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads the index entry of a chapter.
+     *
+     * @return the entry, or an empty Optional if the store has an unknown format or does not hold the chapter
+     */
+    private Optional<Entry> locate(FileChannel channel, Path path, int chapterIndex) throws IOException {
+        ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            log.warn("Compressed chapter store has an unknown format, ignoring: {}", path);
+            return Optional.empty();
+        }
+        int chapterCount = header.getInt();
+        if (chapterIndex < 0 || chapterIndex >= chapterCount) {
+            return Optional.empty();
+        }
+
+        ByteBuffer entry = readFully(channel, HEADER_BYTES + (long) chapterIndex * INDEX_ENTRY_BYTES, INDEX_ENTRY_BYTES);
+        long offset = entry.getLong();
+        int length = entry.getInt();
+        return length == MISSING ? Optional.empty() : Optional.of(new Entry(offset, length));
+    }
+
+    /**
+     * @param bookFilePath the book's file path relative to the upload directory
+     * @return true if the book has a packed store, whatever its format
+     */
+    public boolean exists(String bookFilePath) {
+        return Files.exists(resolve(bookFilePath));
+    }
+
+    /**
+     * Deletes the packed store of a book, if one exists.
+     *
+     * @param bookFilePath the book's file path relative to the upload directory
+     */
+    public void delete(String bookFilePath) {
+        Path path = resolve(bookFilePath);
+        try {
+            if (Files.deleteIfExists(path)) {
+                log.info("Deleted compressed chapter store: {}", path);
+            }
+        } catch (IOException e) {
+            log.error("Error deleting compressed chapter store: {}", path, e);
+        }
+    }
+
+    /**
+     * @return the gzip member holding the chapter's JSON, or null if it is not smaller than the JSON itself
+     */
+    private byte[] compress(ChapterContentDTO chapter) throws IOException {
+        byte[] json = chapterWriter.writeValueAsBytes(chapter);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 3 + 32);
+        try (OutputStream gzip = new BestCompressionGZIPOutputStream(bytes)) {
+            gzip.write(json);
+        }
+        return bytes.size() < json.length ? bytes.toByteArray() : null;
+    }
+
+    private Path resolve(String bookFilePath) {
+        return storeDir.resolve(Path.of(bookFilePath).getFileName() + ".chapters-gzip");
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of compressed chapter store");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private record Entry(long offset, int length) {
+    }
+
+    /**
+     * Chapters are compressed once and served many times, so the slowest level is worth it.
+     */
+    private static final class BestCompressionGZIPOutputStream extends GZIPOutputStream {
+        private BestCompressionGZIPOutputStream(OutputStream out) throws IOException {
+            super(out);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.springreader.service;
+
+import com.example.springreader.model.CoverSavedEvent;
+import com.example.springreader.model.CoverSize;
+import com.example.springreader.repository.BookRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the fixed-width JPEG thumbnails of book covers listed in CoverSize.
+ *
+ * Thumbnails are generated on a task executor once the transaction that saved the book commits, so ingestion
+ * does not wait on image decoding. Until they are stored on the Book, covers are served from the original image.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CoverThumbnailService {
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    //Largest first, each thumbnail is scaled down from the previous one
+    private static final List<CoverSize> THUMBNAIL_SIZES = List.of(CoverSize.LARGE, CoverSize.MEDIUM, CoverSize.SMALL);
+
+    private final BookRepository bookRepository;
+    private final Path uploadDir;
+
+    /**
+     * Generates the thumbnails of a newly saved cover and stores their paths on the book.
+     * Failures are logged and leave the book served from its original cover.
+     *
+     * @param event The saved book and its cover image path.
+     */
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCoverSaved(CoverSavedEvent event) {
+        Map<CoverSize, String> thumbnails;
+        try {
+            thumbnails = createThumbnails(event.coverImagePath());
+        } catch (IOException e) {
+            log.warn("Could not generate cover thumbnails for bookId: {} from: {}", event.bookId(), event.coverImagePath(), e);
+            return;
+        }
+        //Stored even when no size needed a thumbnail, so the original is known to be final for every size
+        int updated = bookRepository.updateCoverThumbnails(event.bookId(), thumbnails.get(CoverSize.SMALL),
+                thumbnails.get(CoverSize.MEDIUM), thumbnails.get(CoverSize.LARGE));
+        if (updated == 0) {
+            log.info("Book {} was deleted while generating its cover thumbnails, removing them", event.bookId());
+            deleteAll(thumbnails.values());
+        } else {
+            log.info("Generated {} cover thumbnails for bookId: {}", thumbnails.size(), event.bookId());
+        }
+    }
+
+    /**
+     * Writes a JPEG thumbnail next to the cover image for every CoverSize narrower than the cover.
+     * The cover is decoded once, subsampled while decoding when it is much larger than the largest thumbnail.
+     *
+     * @param coverImagePath The cover image path relative to the upload directory.
+     * @return The relative paths of the generated thumbnails by size. Sizes the cover is not wider than are left out.
+     * @throws IOException If the cover cannot be decoded or a thumbnail cannot be written.
+     */
+    public Map<CoverSize, String> createThumbnails(String coverImagePath) throws IOException {
+        Path cover = uploadDir.resolve(coverImagePath);
+        BufferedImage image = readImage(cover, CoverSize.LARGE.width() * 2);
+
+        String fileName = cover.getFileName().toString();
+        int extensionIndex = fileName.lastIndexOf('.');
+        String baseName = extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+        Path relativeDir = uploadDir.relativize(cover.getParent());
+
+        Map<CoverSize, String> thumbnails = new EnumMap<>(CoverSize.class);
+        try {
+            for (CoverSize size : THUMBNAIL_SIZES) {
+                if (image.getWidth() <= size.width()) {
+                    continue;
+                }
+                image = scale(image, size.width());
+                String thumbnailPath = relativeDir.resolve(baseName + "-" + size.name().toLowerCase() + ".jpg")
+                        .toString().replace("\\", "/");
+                writeJpeg(image, uploadDir.resolve(thumbnailPath));
+                thumbnails.put(size, thumbnailPath);
+            }
+        } catch (IOException e) {
+            deleteAll(thumbnails.values());
+            throw e;
+        }
+        return thumbnails;
+    }
+
+    /**
+     * Decodes an image, reading only every n-th pixel when it is more than twice as wide as needed.
+     */
+    private static BufferedImage readImage(Path path, int minWidth) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            if (in == null) {
+                throw new IIOException("Cannot open image: " + path);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IIOException("Unsupported image format: " + path);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = reader.getWidth(0) / minWidth;
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales an image down to the given width, keeping its aspect ratio. Halves the image first while it is
+     * more than twice the target width, since a single bilinear pass would skip source pixels.
+     */
+    static BufferedImage scale(BufferedImage source, int width) {
+        int height = Math.max(1, Math.round(source.getHeight() * (float) width / source.getWidth()));
+        BufferedImage current = source;
+        while (current.getWidth() / 2 >= width) {
+            current = draw(current, current.getWidth() / 2, Math.max(1, current.getHeight() / 2));
+        }
+        if (current.getWidth() == width && current.getType() == BufferedImage.TYPE_INT_RGB) {
+            return current;
+        }
+        return draw(current, width, height);
+    }
+
+    /**
+     * Draws an image into an opaque RGB image of the given size, filling transparent areas with white.
+     */
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private void deleteAll(Iterable<String> relativePaths) {
+        for (String relativePath : relativePaths) {
+            try {
+                Files.deleteIfExists(uploadDir.resolve(relativePath));
+            } catch (IOException e) {
+                log.warn("Could not delete cover thumbnail: {}", relativePath, e);
+            }
+        }
+    }
+}
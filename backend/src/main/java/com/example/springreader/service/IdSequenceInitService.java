@@ -0,0 +1,53 @@
+package com.example.springreader.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Service responsible for moving the id sequences of books, chapters and library entries past the ids
+ * already in the database upon application startup.
+ * Those ids used to come from identity columns, so on a database kept with ddl-auto=update the sequences
+ * Hibernate creates for them start at 1 and would hand out ids that are taken.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class IdSequenceInitService {
+
+    /**
+     * The tables whose ids come from a sequence named after them, see Book, Chapter and UserBook.
+     */
+    static final List<String> SEQUENCE_TABLES = List.of("books", "chapters", "user_books");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Sets each sequence to its table's highest id when that id is not below the sequence's last value.
+     * Hibernate allocates the ids up to the value returned by the next call, so they all follow the existing ones.
+     * Sequences already past their table's ids, including those of empty tables, are left as they are.
+     * Only PostgreSQL databases are aligned, the only database the application is deployed with.
+     */
+    @PostConstruct
+    public void alignSequences() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            log.info("Id sequences not aligned on {}", database);
+            return;
+        }
+
+        for (String table : SEQUENCE_TABLES) {
+            String sequence = table + "_seq";
+            List<Long> aligned = jdbcTemplate.queryForList("select setval('" + sequence + "', max(id)) from " + table
+                    + " having max(id) >= (select last_value from " + sequence + ")", Long.class);
+            if (!aligned.isEmpty()) {
+                log.info("Id sequence {} moved to {}, past the existing ids", sequence, aligned.getFirst());
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.springreader.service;
+
+import com.example.springreader.dto.IngestionJobDTO;
+import com.example.springreader.exception.EpubProcessingException;
+import com.example.springreader.exception.IngestionQueueFullException;
+import com.example.springreader.exception.ResourceNotFoundException;
+import com.example.springreader.model.Book;
+import com.example.springreader.model.IngestionJobStatus;
+import com.example.springreader.model.User;
+import com.example.springreader.utility.WorkerThreads;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the ingestion of uploaded books off the request threads.
+ *
+ * Uploads are queued on a bounded executor with a fixed number of ingestion threads, so parsing large books never
+ * holds a request thread and cannot starve readers of CPU; when the queue is full, uploads are rejected rather than
+ * piling up. Job states are kept in memory and removed a while after they finish.
+ * The executor is private to this service: exposing it as an Executor bean would replace Spring Boot's
+ * application task executor, which async MVC requests and @Async methods rely on.
+ */
+@Slf4j
+@Service
+public class IngestionJobService implements MeterBinder {
+
+    private final BookUploadService bookUploadService;
+    private final Duration retention;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public IngestionJobService(BookUploadService bookUploadService,
+                               @Value("${books.ingest.threads:2}") int threads,
+                               @Value("${books.ingest.queue-capacity:32}") int queueCapacity,
+                               @Value("${books.ingest.job-retention:PT1H}") Duration retention,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.bookUploadService = bookUploadService;
+        this.retention = retention;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), WorkerThreads.factory("ingest-", virtualThreads));
+    }
+
+    /**
+     * Queues a stored upload to be added to the user's library.
+     *
+     * @param upload The upload, as returned by BookUploadService.store. The job takes ownership of its file.
+     * @param user The user who uploaded the book.
+     * @return The queued job.
+     * @throws IngestionQueueFullException If the ingestion queue is full; the upload is discarded.
+     */
+    public IngestionJobDTO submit(BookUploadService.StoredUpload upload, User user) {
+        Job job = new Job(UUID.randomUUID().toString(), upload, user);
+        jobs.put(job.id, job);
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            job.discardUpload();
+            throw new IngestionQueueFullException("Ingestion queue is full, rejected upload of user: " + user.getId());
+        }
+        log.info("Queued ingestion job {} for user {}", job.id, user.getId());
+        return job.toDTO();
+    }
+
+    /**
+     * @param jobId The ID of the job.
+     * @param userId The ID of the user requesting it.
+     * @return The current state of the job.
+     * @throws ResourceNotFoundException If the job does not exist, has been removed, or belongs to another user.
+     */
+    public IngestionJobDTO getJob(String jobId, Long userId) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.user.getId().equals(userId)) {
+            throw new ResourceNotFoundException("Ingestion job", jobId);
+        }
+        return job.toDTO();
+    }
+
+    /**
+     * Removes jobs that finished longer ago than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${books.ingest.cleanup-interval:PT5M}")
+    public void removeFinishedJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(cutoff));
+    }
+
+    /**
+     * Lets running jobs finish and discards the uploads of jobs still queued.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        List<Runnable> queued = new ArrayList<>();
+        executor.getQueue().drainTo(queued);
+        executor.shutdown();
+        for (Runnable runnable : queued) {
+            ((Job) runnable).discardUpload();
+        }
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Ingestion jobs still running at shutdown");
+        }
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("springreader.ingest.queued", executor, pool -> pool.getQueue().size())
+                .description("Number of uploads waiting to be ingested")
+                .register(registry);
+        Gauge.builder("springreader.ingest.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Number of uploads being ingested")
+                .register(registry);
+    }
+
+    /**
+     * An upload's ingestion. The state fields are written by the ingestion thread and read by request threads.
+     */
+    private final class Job implements Runnable {
+        private final String id;
+        private final BookUploadService.StoredUpload upload;
+        private final User user;
+        private final Instant submittedAt = Instant.now();
+        private volatile IngestionJobStatus status = IngestionJobStatus.QUEUED;
+        private volatile Long bookId;
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        private Job(String id, BookUploadService.StoredUpload upload, User user) {
+            this.id = id;
+            this.upload = upload;
+            this.user = user;
+        }
+
+        @Override
+        public void run() {
+            status = IngestionJobStatus.PROCESSING;
+            try {
+                Book book = bookUploadService.addToLibrary(upload, user);
+                bookId = book.getId();
+                finish(IngestionJobStatus.COMPLETED);
+                log.info("Ingestion job {} added book {} for user {}", id, bookId, user.getId());
+            } catch (EpubProcessingException e) {
+                log.warn("Ingestion job {} failed, invalid EPUB: {}", id, e.getMessage());
+                error = "The file could not be processed as an EPUB.";
+                finish(IngestionJobStatus.FAILED);
+            } catch (Exception e) {
+                log.error("Ingestion job {} failed", id, e);
+                error = "An unexpected error occurred while adding the book.";
+                finish(IngestionJobStatus.FAILED);
+            }
+        }
+
+        private void finish(IngestionJobStatus finalStatus) {
+            //finishedAt first, so a finished status is never seen without it
+            finishedAt = Instant.now();
+            status = finalStatus;
+        }
+
+        private void discardUpload() {
+            try {
+                Files.deleteIfExists(upload.file());
+            } catch (IOException e) {
+                log.error("Error deleting discarded upload: {}", upload.file(), e);
+            }
+        }
+
+        private IngestionJobDTO toDTO() {
+            IngestionJobStatus currentStatus = status;
+            return new IngestionJobDTO(id, currentStatus, bookId, error, submittedAt, finishedAt);
+        }
+    }
+}
@@ -1,15 +1,23 @@
 package com.example.springreader.service;
 
 import com.example.springreader.model.User;
+import com.example.springreader.utility.BoundedByteCache;
+import com.example.springreader.utility.ContentHash;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
@@ -18,19 +26,28 @@ import java.util.function.Function;
 
 /**
  * Service class that provides methods for generating, parsing, and validating JWT tokens.
+ * Tokens are verified by one parser built at startup. Tokens that passed verification are remembered,
+ * by hash, until they expire, so a session's token is only verified on its first request.
  */
 @Slf4j
 @Service
-public class JwtService {
+public class JwtService implements MeterBinder {
+
+    //Every entry weighs 1, so this is the number of remembered tokens
+    private static final long MAX_VERIFIED_TOKENS = 10_000;
 
     private final SecretKey key;
+    private final JwtParser parser;
+    private final BoundedByteCache<String, VerifiedToken> verifiedTokens = new BoundedByteCache<>(MAX_VERIFIED_TOKENS, token -> 1);
 
     public JwtService(@Value("${JWT_SECRET}") String secret){
         if(secret == null || secret.isBlank()){
             throw new IllegalArgumentException("JWT secret cannot be null or empty");
         }
         this.key = Keys.hmacShaKeyFor(Base64.getDecoder().decode(secret));
-
+        this.parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
     }
 
 
@@ -65,6 +82,32 @@ public class JwtService {
                 .compact();
     }
 
+    /**
+     * Verifies a token and returns its username, the way every authenticated request does.
+     * A token verified before is only checked against its expiration.
+     *
+     * @param token the JWT token to verify
+     * @return the username of the token
+     * @throws JwtException if the token is invalid, expired or cannot be parsed
+     */
+    public String verifiedUsername(String token) {
+        String tokenHash = hash(token);
+        VerifiedToken verified = verifiedTokens.get(tokenHash);
+        if (verified != null) {
+            if (System.currentTimeMillis() < verified.expiresAt()) {
+                return verified.username();
+            }
+            verifiedTokens.invalidate(tokenHash);
+        }
+
+        Claims claims = verify(token);
+        //Tokens without an expiration are not remembered
+        if (claims.getExpiration() != null) {
+            verifiedTokens.put(tokenHash, new VerifiedToken(claims.getSubject(), claims.getExpiration().getTime()));
+        }
+        return claims.getSubject();
+    }
+
     /**
      * Extracts the username from a given JWT token.
      *
@@ -84,8 +127,8 @@ public class JwtService {
      * @return true if the token is valid and belongs to the provided user
      */
     public boolean isTokenValid(String token, User user){
-        final String username = extractUsername(token);
-        return(username.equals(user.getUsername())) && !isTokenExpired(token);
+        final Claims claims = verify(token);
+        return(claims.getSubject().equals(user.getUsername())) && !isTokenExpired(claims);
     }
 
     /**
@@ -98,25 +141,21 @@ public class JwtService {
      * @return the extracted claim of type T
      */
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims =
-                extractAllClaims(token);
+        final Claims claims = verify(token);
         return claimsResolver.apply(claims);
     }
 
     /**
-     * Extracts all claims from a given JWT token. Used to verify the token's signature before extracting
-     * as well as parsing it into a trusted Claims object.
+     * Verifies a given JWT token's signature and expiration, and parses it into a trusted Claims object
+     * in a single pass.
      *
-     * @param token the JWT token that we are extracting from
+     * @param token the JWT token that we are verifying
      * @return the claims contained in the token
-     * @throws JwtException if the token is invalid or cannot be parsed
+     * @throws JwtException if the token is invalid, expired or cannot be parsed
      */
-    private Claims extractAllClaims(String token){
+    public Claims verify(String token){
         try{
-            return Jwts.parser()
-                    .verifyWith(key)
-                    .build()
-                    .parseSignedClaims(token)
+            return parser.parseSignedClaims(token)
                     .getPayload();
         }
         catch (JwtException e) {
@@ -125,25 +164,31 @@ public class JwtService {
         }
     }
 
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        FunctionCounter.builder("springreader.jwt.cache.hits", verifiedTokens, BoundedByteCache::hitCount)
+                .description("Authenticated requests whose token was verified before")
+                .register(registry);
+        FunctionCounter.builder("springreader.jwt.cache.misses", verifiedTokens, BoundedByteCache::missCount)
+                .description("Authenticated requests whose token had its signature checked")
+                .register(registry);
+    }
+
     /**
      * Checks if the token is it has expired by seeing if expiration data is before now
-     * @param token token to check
+     * @param claims verified claims of the token to check
      * @return if expired: true
      */
-    private boolean isTokenExpired(String token){
-        return extractExpiration(token)
+    private boolean isTokenExpired(Claims claims){
+        return claims.getExpiration()
                 .before(new Date());
     }
 
-    /**
-     * Extracts the expiration date
-     *
-     * @param token extract expiration data from
-     * @return the expiration date of the token as a Date
-     */
-    private Date extractExpiration(String token){
-        return extractClaim(token, claims -> claims.getExpiration());
+    private static String hash(String token) {
+        return ContentHash.toHex(ContentHash.newDigest().digest(token.getBytes(StandardCharsets.US_ASCII)));
     }
 
+    private record VerifiedToken(String username, long expiresAt) {}
+
 
 }
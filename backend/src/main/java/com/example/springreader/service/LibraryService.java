@@ -3,21 +3,32 @@ package com.example.springreader.service;
 import com.example.springreader.dto.BookMetaDTO;
 import com.example.springreader.dto.ChapterContentDTO;
 import com.example.springreader.dto.ChapterDTO;
+import com.example.springreader.dto.ChapterSliceDTO;
+import com.example.springreader.dto.TocPageDTO;
 import com.example.springreader.exception.EpubProcessingException;
 import com.example.springreader.exception.ResourceNotFoundException;
 import com.example.springreader.model.*;
+import com.example.springreader.repository.BookMetaRepository;
 import com.example.springreader.repository.BookRepository;
 import com.example.springreader.repository.ChapterRepository;
 import com.example.springreader.repository.UserBookRepository;
+import com.example.springreader.utility.ContentHash;
+import com.example.springreader.utility.EpubArchive;
+import com.example.springreader.utility.EpubArchivePool;
 import com.example.springreader.utility.EpubParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
@@ -25,6 +36,9 @@ import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.ZipException;
 
 /**
  * Service layer for managing books and their related data (metadata, chapters, cover images).
@@ -34,16 +48,32 @@ import java.util.*;
 @Service
 @RequiredArgsConstructor
 public class LibraryService {
+    public static final int MAX_TOC_PAGE_SIZE = 1000;
+    public static final int MAX_PARAGRAPH_LIMIT = 500;
+    private static final Pattern UNSAFE_FILE_NAME_CHARS = Pattern.compile("[\\\\/:*?\"<>|\\p{Cntrl}]");
+
     private final BookRepository bookRepository;
     private final ChapterRepository chapterRepository;
     private final UserBookRepository userBookRepository;
+    private final BookMetaRepository bookMetaRepository;
     private final Path uploadDir;
     private final EpubParser epubParser;
+    private final ChapterContentCache chapterContentCache;
+    private final BookMetaCache bookMetaCache;
+    private final ReadingProgressBuffer progressBuffer;
+    private final ChapterTextStore chapterTextStore;
+    private final CompressedChapterStore compressedChapterStore;
+    private final CompressedChapterBackfill compressedChapterBackfill;
+    private final EpubArchivePool epubArchivePool;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
 
 
     /**
      * Parses an EPUB file, extracts metadata and cover image, saves the book
-     * and its chapters to the database.
+     * and its chapters to the database. The archive is opened once and its OPF parsed once
+     * for the whole ingestion. The text of every chapter is extracted once
+     * and written to the book's ChapterTextStore, and compressed into its CompressedChapterStore.
      *
      * @param epubFile The EPUB file to process.
      * @return The newly created and saved Book entity.
@@ -52,45 +82,258 @@ public class LibraryService {
      */
     @Transactional
     public Book addBook(File epubFile) throws IOException, EpubProcessingException {
-        Map<String, Object> meta = epubParser.parseMeta(epubFile);
-        String title = epubParser.getTitle(meta);
-        String author = epubParser.getAuthor(meta);
-        String coverImagePath = null;
+        return addBook(epubFile, ContentHash.sha256(epubFile.toPath()));
+    }
 
-        EpubToc toc = epubParser.getToc(meta);
-        List<EpubChapter> flattenedToc = flattenToc(toc);
+    /**
+     * Adds the book with the given content to a user's library, if such a book exists. Its row stays locked
+     * until the transaction commits, so it cannot be deleted by its last other reader meanwhile.
+     *
+     * @param contentHash The SHA-256 of an uploaded file as hex.
+     * @param user The user who uploaded the file.
+     * @return The existing book, now in the user's library, or an empty Optional if no book has this content.
+     */
+    @Transactional
+    public Optional<Book> addExistingBook(String contentHash, User user) {
+        Optional<Book> existingBook = bookRepository.findAndLockByContentHash(contentHash);
+        existingBook.ifPresent(book -> {
+            if(userBookRepository.existsByUserIdAndBookId(user.getId(), book.getId())){
+                log.info("Book with id {} is already in the library of user {}", book.getId(), user.getId());
+                return;
+            }
+            userBookRepository.save(newUserBook(user, book));
+            log.info("Linked existing book with id {} to user {} instead of ingesting it again", book.getId(), user.getId());
+        });
+        return existingBook;
+    }
 
+    /**
+     * Adds the books with any of the given contents to a user's library, like addExistingBook, in one transaction.
+     * Rows are locked in ID order, so concurrent bulk uploads cannot deadlock.
+     *
+     * @param contentHashes The SHA-256s of uploaded files as hex.
+     * @param user The user who uploaded the files.
+     * @return The existing books, now in the user's library, keyed by content hash. Hashes without a book are absent.
+     */
+    @Transactional
+    public Map<String, Book> addExistingBooks(Collection<String> contentHashes, User user) {
+        Map<String, Book> existingBooks = new HashMap<>();
+        if(contentHashes.isEmpty()){
+            return existingBooks;
+        }
+        for(Book book : bookRepository.findAndLockByContentHashIn(contentHashes)){
+            existingBooks.put(book.getContentHash(), book);
+        }
+        if(existingBooks.isEmpty()){
+            return existingBooks;
+        }
 
-        Optional<Map<String, Object>> coverImageData = epubParser.extractCoverImage(epubFile);
+        Set<Long> bookIds = existingBooks.values().stream().map(Book::getId).collect(Collectors.toSet());
+        Set<Long> inLibrary = userBookRepository.findBookIdsInLibrary(user.getId(), bookIds);
+        List<UserBook> userBooks = existingBooks.values().stream()
+                .filter(book -> !inLibrary.contains(book.getId()))
+                .map(book -> newUserBook(user, book))
+                .toList();
+        userBookRepository.saveAll(userBooks);
+        log.info("Linked {} existing books to user {} instead of ingesting them again", userBooks.size(), user.getId());
+        return existingBooks;
+    }
 
-        if(coverImageData.isPresent()) {
-            coverImagePath = extractAndSaveCoverImage(coverImageData.get());
+    private Book addBook(File epubFile, String contentHash) throws IOException, EpubProcessingException {
+        PreparedBook preparedBook = prepareBook(epubFile, contentHash);
+        try{
+            return saveBook(preparedBook);
         }
-        else{
-            log.warn("No cover data found for epub: {}", epubFile.getName());
+        catch (DataIntegrityViolationException e){
+            //The same content was saved concurrently, from a file of its own
+            discardPreparedBook(preparedBook);
+            throw e;
+        }
+    }
+
+    /**
+     * Saves a prepared book and adds it to the uploader's library in the same transaction,
+     * so the book is never visible without a library holding it.
+     *
+     * @param preparedBook The book, as returned by prepareBook.
+     * @param user The user who uploaded the book.
+     * @return The newly created and saved Book entity.
+     * @throws DataIntegrityViolationException If a book with the same content hash was saved concurrently.
+     */
+    @Transactional
+    public Book addPreparedBook(PreparedBook preparedBook, User user) {
+        Book book = saveBook(preparedBook);
+        userBookRepository.save(newUserBook(user, book));
+        return book;
+    }
+
+    /**
+     * Saves several prepared books and adds them to a user's library in one transaction, so their books,
+     * chapters and library entries are inserted in JDBC batches rather than one round trip per row.
+     * Nothing is saved if any book fails; their files are kept so they can be saved one by one instead.
+     *
+     * @param preparedBooks The books, as returned by prepareBook, with distinct content hashes.
+     * @param user The user who uploaded the books.
+     * @return The saved Book entities, in the order of preparedBooks.
+     * @throws DataIntegrityViolationException If a book with the same content hash as one of them was saved concurrently.
+     */
+    @Transactional
+    public List<Book> addPreparedBooks(List<PreparedBook> preparedBooks, User user) {
+        List<Book> books = bookRepository.saveAll(preparedBooks.stream().map(PreparedBook::toBook).toList());
+        userBookRepository.saveAll(books.stream().map(book -> newUserBook(user, book)).toList());
+        //Inserts are deferred until the flush, so a conflict surfaces here rather than at commit
+        bookRepository.flush();
+        List<BookMeta> metas = new ArrayList<>(books.size());
+        for(int i = 0; i < books.size(); i++){
+            metas.add(preparedBooks.get(i).toBookMeta(books.get(i)));
+        }
+        bookMetaRepository.saveAll(metas);
+        books.forEach(this::publishCoverSaved);
+        log.info("Saved {} books for user {}", books.size(), user.getId());
+        return books;
+    }
+
+    /**
+     * Parses an EPUB file, saves its cover image and writes its chapter text stores, without touching the database.
+     * The archive is opened once and its OPF parsed once, and the text of every chapter is extracted once.
+     * The book's metadata response is serialized here too, so it is never built from its chapters again.
+     *
+     * @param epubFile The EPUB file to process, in the upload directory.
+     * @param contentHash The SHA-256 of the file as hex.
+     * @return The book, ready to be saved.
+     * @throws IOException If an error occurs during file reading or writing.
+     * @throws EpubProcessingException If an error occurs during EPUB parsing.
+     */
+    public PreparedBook prepareBook(File epubFile, String contentHash) throws IOException, EpubProcessingException {
+        try(EpubArchivePool.Lease lease = epubArchivePool.acquire(epubFile.toPath())){
+            EpubArchive archive = lease.archive();
+            EpubIngestResult epub = epubParser.parseEpub(archive);
+            String coverImagePath = null;
+
+            List<EpubChapter> flattenedToc = flattenToc(epub.toc());
+
+            if(epub.cover() != null) {
+                coverImagePath = saveCoverImage(archive, epub.cover());
+            }
+            else{
+                log.warn("No cover data found for epub: {}", epubFile.getName());
+            }
+
+            extractChapterTexts(archive, epubFile.getName(), flattenedToc);
+
+            List<ChapterDTO> chapterDTOs = flattenedToc.stream()
+                    .map(chapter -> new ChapterDTO(chapter.title(), chapter.anchor(), chapter.index(),
+                            chapter.depth(), chapter.parentIndex(), chapter.childCount()))
+                    .toList();
+            byte[] metaJson = objectMapper.writeValueAsBytes(new BookMetaDTO(epub.title(), epub.author(), chapterDTOs, contentHash));
+
+            return new PreparedBook(epub.title(), epub.author(), epubFile.getName(), coverImagePath, contentHash, flattenedToc, metaJson);
+        }
+        catch (ZipException e){
+            log.error("Invalid Zip/Epub file: {}", epubFile.getName(), e);
+            throw new EpubProcessingException("Invalid Zip/Epub file: " + epubFile.getName() + "\n" + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes the files of a prepared book that will not be saved: its EPUB, cover image and text stores.
+     * Every ingestion prepares its book from a file name of its own, so no saved book shares these files,
+     * including books with the same content.
+     *
+     * @param preparedBook The book, as returned by prepareBook.
+     */
+    public void discardPreparedBook(PreparedBook preparedBook){
+        chapterTextStore.delete(preparedBook.filePath());
+        compressedChapterStore.delete(preparedBook.filePath());
+        epubArchivePool.evict(uploadDir.resolve(preparedBook.filePath()));
+        deleteFile(preparedBook.filePath(), "epub");
+        if(preparedBook.coverImagePath() != null){
+            deleteFile(preparedBook.coverImagePath(), "cover image");
+        }
+    }
+
+    private Book saveBook(PreparedBook preparedBook){
+        //Saves book and cascades to save chapters, flushed so a concurrent duplicate is detected here
+        Book savedBook = bookRepository.saveAndFlush(preparedBook.toBook());
+        bookMetaRepository.save(preparedBook.toBookMeta(savedBook));
+        publishCoverSaved(savedBook);
+        return savedBook;
+    }
+
+    private void publishCoverSaved(Book book){
+        if(book.getCoverImagePath() != null){
+            //Thumbnails are generated once this transaction commits, off the ingesting thread
+            eventPublisher.publishEvent(new CoverSavedEvent(book.getId(), book.getCoverImagePath()));
+        }
+    }
+
+    private static UserBook newUserBook(User user, Book book){
+        UserBook userBook = new UserBook();
+        userBook.setUser(user);
+        userBook.setBook(book);
+        return userBook;
+    }
+
+    /**
+     * Extracts the text of every chapter and writes it to the book's packed text store.
+     * Chapters sharing a content file are segmented from a single parse of that file.
+     * Chapters that fail to extract are left out of the store and fall back to parsing on read.
+     * Failing to write the store does not fail ingestion, reads then fall back to parsing the EPUB.
+     * The compressed store is written from the same texts; without it chapters are served uncompressed.
+     *
+     * @param archive The open EPUB archive being ingested.
+     * @param bookFilePath The book's file path relative to the upload directory.
+     * @param chapters The flattened TOC of the book.
+     */
+    private void extractChapterTexts(EpubArchive archive, String bookFilePath, List<EpubChapter> chapters) {
+        Map<String, List<EpubChapter>> chaptersByFile = new LinkedHashMap<>();
+        for(EpubChapter chapter : chapters){
+            chaptersByFile.computeIfAbsent(chapter.filePath(), filePath -> new ArrayList<>()).add(chapter);
         }
 
-        Book book = new Book(title, author, epubFile.getName(), coverImagePath);
+        Map<Integer, String> chapterTexts = new HashMap<>();
+        for(Map.Entry<String, List<EpubChapter>> contentFile : chaptersByFile.entrySet()){
+            List<String> anchors = contentFile.getValue().stream().map(EpubChapter::anchor).toList();
+            try{
+                Map<String, String> texts = epubParser.parseContentFile(archive, contentFile.getKey(), anchors);
+                for(EpubChapter chapter : contentFile.getValue()){
+                    chapterTexts.put(chapter.index(), texts.get(chapter.anchor()));
+                }
+            }
+            catch (EpubProcessingException | IOException e){
+                log.warn("Could not extract text for content file {} of epub: {}", contentFile.getKey(), bookFilePath, e);
+                for(EpubChapter chapter : contentFile.getValue()){
+                    chapterTexts.put(chapter.index(), null);
+                }
+            }
+        }
+
+        try{
+            chapterTextStore.write(bookFilePath, chapterTexts);
+        }
+        catch (IOException e){
+            log.error("Error writing chapter text store for epub: {}", bookFilePath, e);
+        }
 
-        //Persist each chapter associated with the book
-        for(EpubChapter EpubChapter: flattenedToc){
-            Chapter chapter = new Chapter(EpubChapter.title(), EpubChapter.index(), EpubChapter.filePath(), EpubChapter.anchor(), book);
-            book.addChapter(chapter); //Associates chapter with book before saving
+        try{
+            compressedChapterStore.write(bookFilePath, chapterTexts);
+        }
+        catch (IOException e){
+            log.error("Error writing compressed chapter store for epub: {}", bookFilePath, e);
         }
-        return  bookRepository.save(book); //Saves book and cascades to save chapters
     }
 
     /**
-     * Saves the extracted cover image bytes to the filesystem within the upload directory.
+     * Streams the cover image entry straight from the EPUB archive into the covers directory within the upload directory.
      * Generates a unique filename based on UUID and the image's media type.
      *
-     * @param coverImageData A map containing the cover image bytes ("coverImage") and media type ("mediaType").
+     * @param archive The open EPUB archive.
+     * @param cover The cover image entry and its media type.
      * @return The relative path to the saved cover image within the upload directory.
      * @throws IOException If an error occurs creating directories or writing the file.
      */
-    public String extractAndSaveCoverImage(Map<String, Object> coverImageData) throws IOException{
-        byte[] image = (byte[]) coverImageData.get("coverImage");
-        String mediaType = (String) coverImageData.get("mediaType");
+    public String saveCoverImage(EpubArchive archive, EpubCover cover) throws IOException{
+        String mediaType = cover.mediaType();
         String coverImagePath;
 
         String fileExtension = "jpg"; //Default
@@ -111,7 +354,7 @@ public class LibraryService {
         //Store relative path for database
         coverImagePath = "covers/" + filename;
 
-        Files.write(coverDir.resolve(filename), image);
+        epubParser.copyEntry(archive, cover.entryPath(), coverDir.resolve(filename));
         return coverImagePath;
     }
 
@@ -128,7 +371,8 @@ public class LibraryService {
                 for (EpubChapter chapter : contentFile.getChapters()) {
                     //Ensure title is not null before trimming
                     String trimmedTitle = chapter.title() != null ? chapter.title().trim() : "Untitled Chapter";
-                    flattenedToc.add(new EpubChapter(trimmedTitle, chapter.anchor(), chapter.index(), contentFile.getFilePath()));
+                    flattenedToc.add(new EpubChapter(trimmedTitle, chapter.anchor(), chapter.index(), contentFile.getFilePath(),
+                            chapter.depth(), chapter.parentIndex(), chapter.childCount()));
                 }
             }
         }
@@ -137,9 +381,9 @@ public class LibraryService {
 
     /**
      * Deletes the association between a user and a book (UserBook).
-     * If the book is not a default book and no other users are associated with it (implicitly checked by cascade/orphanRemoval,
-     * though explicit check might be safer depending on JPA provider behavior),
-     * it also deletes the Book entity and its corresponding EPUB and cover image files.
+     * Identical uploads share one book, so the Book entity and its EPUB, cover image and text store files are only
+     * deleted once no library holds the book anymore, and never for the default book. The book's row is locked
+     * while its readers are counted, so it cannot be added to a library while it is being deleted.
      *
      * @param bookId The ID of the book to delete the association for.
      * @param userId The ID of the user initiating the deletion.
@@ -151,37 +395,47 @@ public class LibraryService {
         UserBook userBook = userBookRepository.findByUserIdAndBookId(userId, bookId)
                 .orElseThrow(() -> new ResourceNotFoundException("UserBook not found with bookId: " + bookId + " for userId: " + userId));
 
-        Book book = userBook.getBook();
-        if (book == null) {
+        Optional<Book> lockedBook = bookRepository.findAndLockById(bookId);
+        if (lockedBook.isEmpty()) {
             //This should never happen.
             log.error("UserBook with id {} has a null book reference.", userBook.getId());
             userBookRepository.delete(userBook);
             return;
         }
+        Book book = lockedBook.get();
 
         String epubFilePath = book.getFilePath();
-        String coverImagePath = book.getCoverImagePath();
+        List<String> coverPaths = book.getCoverPaths();
 
         //Delete the user-book association
         userBookRepository.delete(userBook);
+        progressBuffer.discard(userId, bookId);
         log.info("Deleted UserBook association for bookId: {} and userId: {}", bookId, userId);
 
         //Check if the book is default
         if(book.isDefault()){
             log.info("Skipping deletion of default book for user: {}", userId);
         }
+        else if(userBookRepository.existsByBookId(bookId)){
+            log.info("Keeping book with id {}, it is still in other libraries", bookId);
+        }
         else{
             bookRepository.delete(book);
+            chapterContentCache.invalidateBook(bookId);
+            //Its BookMeta row is deleted with it by the database
+            bookMetaCache.invalidate(bookId);
+            chapterTextStore.delete(epubFilePath);
+            compressedChapterStore.delete(epubFilePath);
+            //Close the pooled handle once in-flight readers release it, before removing the file
+            epubArchivePool.evict(uploadDir.resolve(epubFilePath));
             deleteFile(epubFilePath, "epub");
             log.info("Epub file deleted with path: {}", epubFilePath);
-            if(coverImagePath != null && !coverImagePath.isBlank()){
-                deleteFile(coverImagePath, "cover image");
-                log.info("Cover image deleted with path: {}", coverImagePath);
+            for(String coverPath : coverPaths){
+                deleteFile(coverPath, "cover image");
+                log.info("Cover image deleted with path: {}", coverPath);
             }
             log.info("Book record deleted with id: {}", bookId);
         }
-        log.info("Book record deleted with id: {}", bookId);
-
     }
 
     /**
@@ -218,19 +472,6 @@ public class LibraryService {
         }
     }
 
-    public File saveUploadedFile(MultipartFile file) throws IOException {
-        if(file == null || file.isEmpty()){
-            throw new IllegalArgumentException("File cannot be null or empty");
-        }
-
-        String originalFileName = file.getOriginalFilename();
-        if(originalFileName == null || !originalFileName.toLowerCase().endsWith(".epub")){
-            throw new IllegalArgumentException("Invalid filename. Only epub files are supported");
-        }
-
-        return null;
-    }
-
     /**
      * Retrieves metadata (title, author, chapters) for a specific book.
      *
@@ -245,27 +486,103 @@ public class LibraryService {
         Book book = userbook.getBook();
 
         List<ChapterDTO> chapters = book.getChapters().stream()
-                .map(chapter -> new ChapterDTO(chapter.getTitle(), chapter.getAnchor(), chapter.getChapterIndex()))
+                .map(LibraryService::toChapterDTO)
+                .toList();
+
+        return new BookMetaDTO(book.getTitle(), book.getAuthor(), chapters, book.getContentHash());
+    }
+
+    /**
+     * Retrieves a book's metadata as the JSON serialized when it was ingested, from memory when it is cached.
+     * Takes no user, so callers must have checked that the book is in the user's library, e.g. with getBookContentHash.
+     * Books ingested before their metadata was stored get it built from their chapters and saved on first request.
+     *
+     * @param bookId The ID of the book to retrieve metadata for.
+     * @return The book's metadata as a JSON encoded BookMetaDTO.
+     * @throws ResourceNotFoundException If the book with the given ID doesn't exist.
+     * @throws IOException If the metadata of an older book cannot be serialized.
+     */
+    public byte[] getBookMetaJson(Long bookId) throws ResourceNotFoundException, IOException {
+        byte[] cachedJson = bookMetaCache.get(bookId);
+        if(cachedJson != null){
+            return cachedJson;
+        }
+
+        Optional<byte[]> storedJson = bookMetaRepository.findJsonByBookId(bookId);
+        byte[] json = storedJson.isPresent() ? storedJson.get() : backfillBookMeta(bookId);
+        bookMetaCache.put(bookId, json);
+        return json;
+    }
+
+    private byte[] backfillBookMeta(Long bookId) throws IOException {
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new ResourceNotFoundException("Book not found with id: " + bookId));
+        List<ChapterDTO> chapters = chapterRepository.findByBookIdOrderByChapterIndex(bookId).stream()
+                .map(LibraryService::toChapterDTO)
                 .toList();
+        byte[] json = objectMapper.writeValueAsBytes(new BookMetaDTO(book.getTitle(), book.getAuthor(), chapters, book.getContentHash()));
 
-        return new BookMetaDTO(book.getTitle(), book.getAuthor(), chapters);
+        try{
+            bookMetaRepository.save(new BookMeta(book, json));
+            log.info("Stored metadata of book {}, ingested before metadata was stored", bookId);
+        }
+        catch (DataIntegrityViolationException e){
+            //Stored by a concurrent request, or the book was deleted meanwhile; either way this copy is still valid
+            log.debug("Metadata of book {} was not stored: {}", bookId, e.getMessage());
+        }
+        return json;
     }
 
     /**
-     * Retrieves the EPUB file resource and its original filename for a specific book
+     * Retrieves one page of a book's table of contents, ordered by chapter index.
+     * Without a parent the whole TOC is paged in reading order; with a parent only its direct children are,
+     * so large nested TOCs can be expanded one level at a time (use -1 for the top level).
+     *
+     * @param bookId The ID of the book whose TOC is requested.
+     * @param userId The ID of the user requesting the TOC.
+     * @param parentIndex The chapter index whose direct children are requested, -1 for top level chapters, or null for every chapter.
+     * @param page The zero-based page number.
+     * @param size The number of chapters per page, between 1 and MAX_TOC_PAGE_SIZE.
+     * @return A TocPageDTO holding the page of chapters.
+     * @throws ResourceNotFoundException If the UserBook association doesn't exist.
+     * @throws IllegalArgumentException If the page or size are out of range.
+     */
+    @Transactional(readOnly = true)
+    public TocPageDTO getBookToc(Long bookId, Long userId, Integer parentIndex, int page, int size) throws ResourceNotFoundException {
+        if(page < 0 || size < 1 || size > MAX_TOC_PAGE_SIZE){
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and " + MAX_TOC_PAGE_SIZE);
+        }
+        if(!userBookRepository.existsByUserIdAndBookId(userId, bookId)){
+            throw new ResourceNotFoundException("UserBook not found for bookId: " + bookId + " and userId: " + userId);
+        }
+
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by("chapterIndex"));
+        Page<Chapter> chapters = parentIndex == null
+                ? chapterRepository.findByBookId(bookId, pageRequest)
+                : chapterRepository.findByBookIdAndParentIndex(bookId, parentIndex, pageRequest);
+
+        return new TocPageDTO(chapters.map(LibraryService::toChapterDTO).getContent(), page, size, chapters.getTotalElements(), chapters.hasNext());
+    }
+
+    private static ChapterDTO toChapterDTO(Chapter chapter){
+        return new ChapterDTO(chapter.getTitle(), chapter.getAnchor(), chapter.getChapterIndex(),
+                chapter.getDepth(), chapter.getParentIndex(), chapter.getChildCount());
+    }
+
+    /**
+     * Resolves the EPUB file of a book for download, named after the book's title.
      *
      * @param bookId The ID of the book to retrieve.
      * @param userId The ID of the user requesting the book.
-     * @return A Map containing the filename ("fileName") and the file Resource ("bookData").
-     * @throws ResourceNotFoundException If the UserBook association or the book file path is missing.
+     * @return The book's file, its download name, size and content hash.
+     * @throws ResourceNotFoundException If the book is not in the user's library or its file path is missing.
      * @throws IOException If the file cannot be found or read at the stored path.
      */
     @Transactional(readOnly = true)
-    public Map<String, Object> getBookResources(Long bookId, Long userId) throws ResourceNotFoundException, IOException {
-        UserBook userBook = userBookRepository.findByUserIdAndBookId(userId, bookId)
+    public BookFile getBookFile(Long bookId, Long userId) throws ResourceNotFoundException, IOException {
+        Book book = userBookRepository.findBook(userId, bookId)
                 .orElseThrow(() -> new ResourceNotFoundException("UserBook not found with bookId: " + bookId + " and User Id: " + userId));
 
-        Book book = userBook.getBook();
         String relativeFilePath = book.getFilePath();
         if(relativeFilePath == null || relativeFilePath.isBlank()){
             log.error("Book file path is missing for bookId: {}", bookId);
@@ -279,23 +596,28 @@ public class LibraryService {
             throw new SecurityException("Access denied to file path: " + absoluteFilePath);
         }
 
-        Resource bookData = new FileSystemResource(absoluteFilePath);
-
-        if(!bookData.exists() || !bookData.isReadable()){
+        if(!Files.isReadable(absoluteFilePath)){
             log.error("EPUB file not found or not readable at path: {}", absoluteFilePath);
             throw new NoSuchFileException("EPUB not found or readable at path: " + absoluteFilePath);
         }
 
-        Map<String, Object> bookInfo = new HashMap<>();
-        // Use the original filename stored in the Book entity if available, otherwise derive from path
-        bookInfo.put("fileName", Path.of(relativeFilePath).getFileName().toString());
-        bookInfo.put("bookData", bookData);
+        return new BookFile(absoluteFilePath.toAbsolutePath(), downloadFileName(book), Files.size(absoluteFilePath), book.getContentHash());
+    }
 
-        return bookInfo;
+    /**
+     * Names a book's EPUB after its title, since identical uploads share one file stored under its content hash.
+     * Characters that are not allowed in file names on common platforms are dropped.
+     */
+    private static String downloadFileName(Book book){
+        String title = book.getTitle() == null ? "" : UNSAFE_FILE_NAME_CHARS.matcher(book.getTitle()).replaceAll("").trim();
+        return (title.isEmpty() ? "book" : title) + ".epub";
     }
 
     /**
      * Retrieves and parses the content of a specific chapter within a book.
+     * Parsed chapters are served from the ChapterContentCache when available, then from the book's
+     * ChapterTextStore. Books ingested before the store existed fall back to parsing the EPUB, segmenting
+     * every chapter of the same content file from one parse and caching them together.
      *
      * @param bookId The ID of the book containing the chapter.
      * @param chapterIndex The index of the chapter to retrieve.
@@ -308,8 +630,122 @@ public class LibraryService {
     public ChapterContentDTO getChapterContent(Long bookId, Long userId, Integer chapterIndex) throws IOException, EpubProcessingException, ResourceNotFoundException {
         UserBook userBook = userBookRepository.findByUserIdAndBookId(userId, bookId).orElseThrow(() -> new ResourceNotFoundException("UserBook not found for bookId: " + bookId + " and userId: " + userId));
 
+        return new ChapterContentDTO(loadChapterText(userBook.getBook(), chapterIndex));
+    }
+
+    /**
+     * Checks whether a chapter can be served precompressed through getCompressedChapterContent, without reading it,
+     * so the representation sent and its ETag are known before a conditional request is evaluated.
+     * Books ingested before chapters were precompressed get their compressed store built in the background
+     * by the CompressedChapterBackfill.
+     *
+     * @param bookId The ID of the book containing the chapter.
+     * @param userId The ID of the user requesting the chapter.
+     * @param chapterIndex The index of the chapter.
+     * @return true if the chapter has been precompressed, false if it should be served through getChapterContent.
+     * @throws ResourceNotFoundException If the UserBook association is not found.
+     */
+    @Transactional(readOnly = true)
+    public boolean hasCompressedChapterContent(Long bookId, Long userId, Integer chapterIndex) throws ResourceNotFoundException {
+        UserBook userBook = userBookRepository.findByUserIdAndBookId(userId, bookId).orElseThrow(() -> new ResourceNotFoundException("UserBook not found for bookId: " + bookId + " and userId: " + userId));
+        String bookFilePath = userBook.getBook().getFilePath();
+
+        if(!compressedChapterStore.exists(bookFilePath)){
+            compressedChapterBackfill.request(bookFilePath);
+            return false;
+        }
+        return compressedChapterStore.contains(bookFilePath, chapterIndex);
+    }
+
+    /**
+     * Retrieves the gzip compressed JSON of a chapter's ChapterContentDTO, precompressed at ingest, so it can be
+     * sent as is to clients accepting gzip. Books ingested before chapters were precompressed get their
+     * compressed store built in the background by the CompressedChapterBackfill, their chapters are served
+     * uncompressed until it exists.
+     *
+     * @param bookId The ID of the book containing the chapter.
+     * @param userId The ID of the user requesting the chapter.
+     * @param chapterIndex The index of the chapter to retrieve.
+     * @return The gzip encoded response body, or an empty Optional if the chapter has not been precompressed,
+     *         in which case it should be served through getChapterContent.
+     * @throws ResourceNotFoundException If the UserBook association is not found.
+     */
+    @Transactional(readOnly = true)
+    public Optional<byte[]> getCompressedChapterContent(Long bookId, Long userId, Integer chapterIndex) throws ResourceNotFoundException {
+        UserBook userBook = userBookRepository.findByUserIdAndBookId(userId, bookId).orElseThrow(() -> new ResourceNotFoundException("UserBook not found for bookId: " + bookId + " and userId: " + userId));
+        String bookFilePath = userBook.getBook().getFilePath();
+
+        if(!compressedChapterStore.exists(bookFilePath)){
+            compressedChapterBackfill.request(bookFilePath);
+            return Optional.empty();
+        }
+        return compressedChapterStore.read(bookFilePath, chapterIndex);
+    }
+
+    /**
+     * Retrieves a range of paragraphs of a chapter. Slices are read through the ChapterTextStore's paragraph index,
+     * so their cost depends on the size of the slice rather than the chapter. Books without a store fall back to
+     * the full chapter text (cached or parsed) and slice it.
+     *
+     * @param bookId The ID of the book containing the chapter.
+     * @param userId The ID of the user requesting the chapter.
+     * @param chapterIndex The index of the chapter to read.
+     * @param offset The index of the first paragraph to return.
+     * @param limit The maximum number of paragraphs to return, between 1 and MAX_PARAGRAPH_LIMIT.
+     * @return A ChapterSliceDTO holding the paragraphs and the offset of the next slice, null after the last one.
+     * @throws IOException If the EPUB file cannot be found or read.
+     * @throws EpubProcessingException If an error occurs during chapter content parsing.
+     * @throws ResourceNotFoundException If the book or the specific chapter index is not found.
+     * @throws IllegalArgumentException If the offset or limit are out of range.
+     */
+    @Transactional(readOnly = true)
+    public ChapterSliceDTO getChapterSlice(Long bookId, Long userId, Integer chapterIndex, int offset, int limit) throws IOException, EpubProcessingException, ResourceNotFoundException {
+        if(offset < 0 || limit < 1 || limit > MAX_PARAGRAPH_LIMIT){
+            throw new IllegalArgumentException("offset must be >= 0 and limit between 1 and " + MAX_PARAGRAPH_LIMIT);
+        }
+        UserBook userBook = userBookRepository.findByUserIdAndBookId(userId, bookId).orElseThrow(() -> new ResourceNotFoundException("UserBook not found for bookId: " + bookId + " and userId: " + userId));
         Book book = userBook.getBook();
 
+        List<String> paragraphs;
+        int totalParagraphs;
+        Optional<ChapterTextStore.ParagraphSlice> slice = chapterTextStore.readSlice(book.getFilePath(), chapterIndex, offset, limit);
+        if(slice.isPresent()){
+            paragraphs = slice.get().paragraphs();
+            totalParagraphs = slice.get().totalParagraphs();
+        }
+        else{
+            List<String> allParagraphs = Arrays.stream(loadChapterText(book, chapterIndex).split("\n\n"))
+                    .filter(paragraph -> !paragraph.isEmpty())
+                    .toList();
+            totalParagraphs = allParagraphs.size();
+            paragraphs = allParagraphs.subList(Math.min(offset, totalParagraphs), Math.min(offset + limit, totalParagraphs));
+        }
+
+        int end = offset + paragraphs.size();
+        return new ChapterSliceDTO(paragraphs, offset, totalParagraphs, end < totalParagraphs ? end : null);
+    }
+
+    /**
+     * Loads the full text of a chapter from the ChapterContentCache, then the book's ChapterTextStore, and
+     * otherwise by parsing the EPUB, segmenting every chapter of the same content file from one parse and caching them together.
+     *
+     * @param book The book containing the chapter, whose access has already been checked.
+     * @param chapterIndex The index of the chapter to load.
+     * @return The chapter text, paragraphs separated by double newlines.
+     */
+    private String loadChapterText(Book book, Integer chapterIndex) throws IOException, EpubProcessingException {
+        Long bookId = book.getId();
+        String cachedContent = chapterContentCache.get(bookId, chapterIndex);
+        if(cachedContent != null){
+            return cachedContent;
+        }
+
+        Optional<String> storedContent = chapterTextStore.read(book.getFilePath(), chapterIndex);
+        if(storedContent.isPresent()){
+            chapterContentCache.put(bookId, chapterIndex, storedContent.get());
+            return storedContent.get();
+        }
+
         Chapter chapter = chapterRepository.findByBookIdAndChapterIndex(bookId, chapterIndex);
 
         Path epubPath = uploadDir.resolve(book.getFilePath()).normalize();
@@ -324,25 +760,94 @@ public class LibraryService {
             throw new NoSuchFileException("Epub file does not exist at path: " + epubPath);
         }
 
-        String content = epubParser.parseContent(epubPath, chapter.getFilePath(), chapter.getAnchor());
-        return new ChapterContentDTO(content);
+        //Segment every chapter sharing this content file from one parse, readers usually move on to the next one
+        List<Chapter> siblings = chapterRepository.findByBookIdAndFilePath(bookId, chapter.getFilePath());
+        List<String> anchors = siblings.stream().map(Chapter::getAnchor).toList();
+        Map<String, String> texts = epubParser.parseContentFile(epubPath, chapter.getFilePath(), anchors);
+        for(Chapter sibling : siblings){
+            chapterContentCache.put(bookId, sibling.getChapterIndex(), texts.get(sibling.getAnchor()));
+        }
+
+        return texts.get(chapter.getAnchor());
     }
 
     /**
-     * Retrieves the cover image resource and its content type for a specific book
+     * Resolves the paragraphs of a chapter for streaming. Access is checked and the source of the text
+     * (cache, ChapterTextStore, or the EPUB itself) is chosen here, so nothing fails for those reasons once
+     * the response has started; the text itself is only read when the returned ChapterParagraphs is written.
+     * Chapters streamed from the store are decoded paragraph by paragraph and never held whole in memory.
+     *
+     * @param bookId The ID of the book containing the chapter.
+     * @param userId The ID of the user requesting the chapter.
+     * @param chapterIndex The index of the chapter to stream.
+     * @return The chapter's paragraphs, ready to be written.
+     * @throws IOException If the EPUB file cannot be found.
+     * @throws ResourceNotFoundException If the UserBook association or the chapter is not found.
+     */
+    @Transactional(readOnly = true)
+    public ChapterParagraphs getChapterParagraphs(Long bookId, Long userId, Integer chapterIndex) throws IOException, ResourceNotFoundException {
+        UserBook userBook = userBookRepository.findByUserIdAndBookId(userId, bookId).orElseThrow(() -> new ResourceNotFoundException("UserBook not found for bookId: " + bookId + " and userId: " + userId));
+
+        String cachedContent = chapterContentCache.get(bookId, chapterIndex);
+        if(cachedContent != null){
+            return sink -> {
+                for(String paragraph : cachedContent.split("\n\n")){
+                    if(!paragraph.isEmpty()){
+                        sink.accept(paragraph);
+                    }
+                }
+            };
+        }
+
+        String bookFilePath = userBook.getBook().getFilePath();
+        if(chapterTextStore.contains(bookFilePath, chapterIndex)){
+            return sink -> {
+                if(!chapterTextStore.readParagraphs(bookFilePath, chapterIndex, sink)){
+                    throw new NoSuchFileException("Chapter text store no longer available for: " + bookFilePath);
+                }
+            };
+        }
+
+        Chapter chapter = chapterRepository.findByBookIdAndChapterIndex(bookId, chapterIndex);
+        if(chapter == null){
+            throw new ResourceNotFoundException("Chapter not found with index: " + chapterIndex + " for bookId: " + bookId);
+        }
+
+        Path epubPath = uploadDir.resolve(bookFilePath).normalize();
+
+        if (!epubPath.startsWith(uploadDir.normalize())) {
+            log.error("Attempted to access EPUB file outside of the upload directory: {}", epubPath);
+            throw new SecurityException("Access denied to EPUB path: " + epubPath);
+        }
+
+        if(!Files.exists(epubPath)){
+            log.error("Epub file does not exist at path: {}", epubPath);
+            throw new NoSuchFileException("Epub file does not exist at path: " + epubPath);
+        }
+
+        String filePath = chapter.getFilePath();
+        String chapterAnchor = chapter.getAnchor();
+        return sink -> epubParser.parseContent(epubPath, filePath, chapterAnchor, sink);
+    }
+
+    /**
+     * Retrieves the cover image resource of the requested size and its content type for a specific book.
+     * Thumbnails that have not been generated (yet) are served from the next larger size, or the original.
      *
      * @param bookId The ID of the book whose cover image is requested.
      * @param userId The ID of the user requesting the cover image.
-     * @return A Map containing the image Resource ("coverImage") and its MediaType ("contentType").
+     * @param size The requested cover size.
+     * @return A Map containing the image Resource ("coverImage"), its MediaType ("contentType"), the book's
+     *         content hash ("contentHash"), the served file's name ("fileName") and whether it is the requested size ("exactSize").
      * @throws ResourceNotFoundException If the UserBook association, cover image path, or the image file itself is missing.
      */
     @Transactional(readOnly = true)
-    public Map<String, Object> getCoverImage(Long bookId, Long userId) throws ResourceNotFoundException {
+    public Map<String, Object> getCoverImage(Long bookId, Long userId, CoverSize size) throws ResourceNotFoundException {
         UserBook userBook = userBookRepository.findByUserIdAndBookId(userId, bookId)
                 .orElseThrow(() -> new ResourceNotFoundException("UserBook not found for bookId: " + bookId + " and userId: " + userId));
 
         Book book = userBook.getBook();
-        String coverImagePath = book.getCoverImagePath();
+        String coverImagePath = book.getCoverPath(size);
         if(coverImagePath == null || coverImagePath.isBlank()){
             log.warn("Book cover image path is missing for bookId: {}", bookId);
             throw new ResourceNotFoundException("Book cover image path is missing for bookId: " + bookId);
@@ -370,7 +875,25 @@ public class LibraryService {
         Map<String, Object> response = new HashMap<>();
         response.put("coverImage", resource);
         response.put("contentType", contentType);
+        response.put("contentHash", book.getContentHash());
+        response.put("fileName", absoluteCoverImagePath.getFileName().toString());
+        //False while the original is served for a thumbnail that has not been generated yet
+        response.put("exactSize", size == CoverSize.ORIGINAL || book.isCoverThumbnailsGenerated()
+                || !coverImagePath.equals(book.getCoverImagePath()));
 
         return response;
     }
+
+    /**
+     * Looks up the content hash of a book in the user's library with a single query, so conditional
+     * requests can be answered before any EPUB parsing or file access.
+     *
+     * @param bookId The ID of the book.
+     * @param userId The ID of the user requesting the book.
+     * @return The book's content hash, or empty if the book is not in the user's library or has no hash.
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> getBookContentHash(Long bookId, Long userId) {
+        return userBookRepository.findBookContentHash(userId, bookId);
+    }
 }
@@ -1,22 +1,44 @@
 package com.example.springreader.service;
 
+import com.example.springreader.model.User;
 import com.example.springreader.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.example.springreader.utility.BoundedByteCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
 /**
  * Service class that implements Spring Security's UserDetailsService.
  * It is responsible for loading user-specific data (like UserDetails)
  * based on the username provided during the authentication process.
+ *
+ * Users authenticated by their JWT on every request are cached for a short time, so requests do not
+ * query the users table. Code that changes or deletes a user must evict it from the cache.
  */
 @Service
-@RequiredArgsConstructor
-public class MyUserDetailsService implements UserDetailsService {
+public class MyUserDetailsService implements UserDetailsService, MeterBinder {
 
     private final UserRepository userRepository;
+    private final long ttlNanos;
+    //Every entry weighs 1, so the budget is the number of cached users
+    private final BoundedByteCache<String, CachedUser> principals;
+
+    public MyUserDetailsService(UserRepository userRepository,
+                                @Value("${security.principal-cache.ttl:PT1M}") Duration ttl,
+                                @Value("${security.principal-cache.max-size:10000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.principals = new BoundedByteCache<>(maxSize, cachedUser -> 1);
+    }
 
     /**
      * Locates the user based on the username. Currently case-sensitive.
@@ -31,4 +53,48 @@ public class MyUserDetailsService implements UserDetailsService {
         return userRepository.findByUsername(lowercaseUsername)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
+
+    /**
+     * Loads the user of an authenticated request, from the cache when it was loaded less than the TTL ago.
+     * Unknown usernames are not cached.
+     *
+     * @param username the username taken from a verified token.
+     * @return the user, shared between requests and not to be modified
+     * @throws UsernameNotFoundException if the user could not be found
+     */
+    public User loadAuthenticatedUser(String username) throws UsernameNotFoundException {
+        String lowercaseUsername = username.toLowerCase();
+        CachedUser cached = principals.get(lowercaseUsername);
+        if (cached != null && System.nanoTime() - cached.loadedAt() < ttlNanos) {
+            return cached.user();
+        }
+
+        User user = (User) loadUserByUsername(lowercaseUsername);
+        principals.put(lowercaseUsername, new CachedUser(user, System.nanoTime()));
+        return user;
+    }
+
+    /**
+     * Drops a user from the cache, so the next request loads it again.
+     *
+     * @param username the username of the user that changed or was deleted.
+     */
+    public void evict(String username) {
+        principals.invalidate(username.toLowerCase());
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        FunctionCounter.builder("springreader.principal.cache.hits", principals, BoundedByteCache::hitCount)
+                .description("Authenticated requests whose user was found in the cache")
+                .register(registry);
+        FunctionCounter.builder("springreader.principal.cache.misses", principals, BoundedByteCache::missCount)
+                .description("Authenticated requests whose user was not cached")
+                .register(registry);
+        Gauge.builder("springreader.principal.cache.entries", principals, BoundedByteCache::size)
+                .description("Number of users currently cached")
+                .register(registry);
+    }
+
+    private record CachedUser(User user, long loadedAt) {}
 }
@@ -0,0 +1,199 @@
+package com.example.springreader.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.NonNull;
+import com.example.springreader.exception.ProgressBufferFullException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds reading progress in memory and writes it to the database in batches.
+ *
+ * Clients save their progress on every page turn, but only the latest position of each book matters, so updates
+ * are kept per user and book, each replacing the previous one, and written with one batched UPDATE per flush:
+ * on an interval, early on the task scheduler once half the buffer is used, and at shutdown. Progress saved since
+ * the last flush is lost if the process dies without shutting down. Reads of this instance see pending progress
+ * through get.
+ *
+ * Request threads never write. While the database fails, pending positions are retried on the interval only, and
+ * once the buffer is full, positions of books that are not already pending are rejected.
+ */
+@Slf4j
+@Component
+public class ReadingProgressBuffer implements MeterBinder {
+
+    private static final String UPDATE_PROGRESS_SQL =
+            "update user_books set last_chapter_index = ?, last_read_at = ? where user_id = ? and book_id = ?";
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskScheduler taskScheduler;
+    private final int maxPending;
+    private final Map<ProgressKey, PendingProgress> pending = new ConcurrentHashMap<>();
+    //Serializes flushes, so an older batch never overwrites a newer one
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean();
+    private volatile boolean lastFlushFailed = false;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ReadingProgressBuffer(JdbcTemplate jdbcTemplate, TaskScheduler taskScheduler,
+                                 @Value("${progress.buffer.max-pending:100000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.taskScheduler = taskScheduler;
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Records a user's position in a book, replacing any pending position of the same book.
+     * Callers must have checked that the book is in the user's library.
+     *
+     * @throws ProgressBufferFullException if the book has no pending position and the buffer is full.
+     */
+    public void record(Long userId, Long bookId, Integer chapterIndex) {
+        ProgressKey key = new ProgressKey(userId, bookId);
+        //Replacing a pending position does not grow the buffer, so it is accepted even when the buffer is full.
+        //Concurrent saves of different books can overshoot the limit by a few entries
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            rejected.increment();
+            scheduleEarlyFlush();
+            throw new ProgressBufferFullException("Reading progress buffer is full, rejected progress of user: " + userId);
+        }
+        pending.put(key, new PendingProgress(chapterIndex, Instant.now()));
+        recorded.increment();
+        if (pending.size() >= maxPending / 2) {
+            scheduleEarlyFlush();
+        }
+    }
+
+    /**
+     * Flushes on the task scheduler rather than the saving thread, once at a time. After a failed flush the buffer
+     * waits for the next scheduled flush instead, so a failing database is not retried on every save.
+     */
+    private void scheduleEarlyFlush() {
+        if (lastFlushFailed || !earlyFlushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        taskScheduler.schedule(() -> {
+            try {
+                flush();
+            } finally {
+                earlyFlushScheduled.set(false);
+            }
+        }, Instant.now());
+    }
+
+    /**
+     * @return the position recorded since the last flush, or null if there is none
+     */
+    public PendingProgress get(Long userId, Long bookId) {
+        return pending.get(new ProgressKey(userId, bookId));
+    }
+
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Drops the pending position of a book, e.g. because it was removed from the user's library.
+     */
+    public void discard(Long userId, Long bookId) {
+        pending.remove(new ProgressKey(userId, bookId));
+    }
+
+    /**
+     * Writes every pending position to the database.
+     */
+    @Scheduled(fixedDelayString = "${progress.buffer.flush-interval:PT5S}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            writePending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        log.info("Flushed reading progress at shutdown");
+    }
+
+    private void writePending() {
+        List<Map.Entry<ProgressKey, PendingProgress>> batch = new ArrayList<>(pending.size());
+        pending.forEach((key, progress) -> batch.add(Map.entry(key, progress)));
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_PROGRESS_SQL, batch, BATCH_SIZE, (statement, entry) -> {
+                statement.setObject(1, entry.getValue().chapterIndex(), Types.INTEGER);
+                statement.setObject(2, OffsetDateTime.ofInstant(entry.getValue().readAt(), ZoneOffset.UTC));
+                statement.setLong(3, entry.getKey().userId());
+                statement.setLong(4, entry.getKey().bookId());
+            });
+        } catch (DataAccessException e) {
+            //Kept pending and retried on the next scheduled flush
+            lastFlushFailed = true;
+            log.error("Could not write {} reading progress updates", batch.size(), e);
+            return;
+        }
+        lastFlushFailed = false;
+
+        //Positions recorded during the write are newer than the written ones and stay pending
+        batch.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+        written.add(batch.size());
+        log.debug("Wrote {} reading progress updates", batch.size());
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        Gauge.builder("springreader.progress.pending", pending, Map::size)
+                .description("Reading positions waiting to be written")
+                .register(registry);
+        FunctionCounter.builder("springreader.progress.recorded", recorded, LongAdder::sum)
+                .description("Reading positions saved by clients")
+                .register(registry);
+        FunctionCounter.builder("springreader.progress.written", written, LongAdder::sum)
+                .description("Reading positions written to the database")
+                .register(registry);
+        FunctionCounter.builder("springreader.progress.rejected", rejected, LongAdder::sum)
+                .description("Reading positions rejected because the buffer was full")
+                .register(registry);
+    }
+
+    private record ProgressKey(Long userId, Long bookId) {}
+
+    /**
+     * A position not yet written to the database.
+     *
+     * @param chapterIndex The last read chapter index.
+     * @param readAt When the position was saved.
+     */
+    public record PendingProgress(Integer chapterIndex, Instant readAt) {}
+}
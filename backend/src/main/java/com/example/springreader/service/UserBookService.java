@@ -1,17 +1,29 @@
 package com.example.springreader.service;
 
 
+import com.example.springreader.dto.BookDTO;
+import com.example.springreader.dto.LibraryPageDTO;
 import com.example.springreader.dto.UserBookProgressDTO;
 import com.example.springreader.exception.ResourceNotFoundException;
 import com.example.springreader.model.Book;
+import com.example.springreader.model.LibrarySort;
 import com.example.springreader.model.User;
 import com.example.springreader.model.UserBook;
 import com.example.springreader.repository.UserBookRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * Service layer for managing the relationship between users and books (UserBook).
@@ -20,7 +32,10 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class UserBookService {
+    public static final int MAX_LIBRARY_PAGE_SIZE = 500;
+
     private final UserBookRepository userBookRepository;
+    private final ReadingProgressBuffer progressBuffer;
 
 
     /**
@@ -40,30 +55,140 @@ public class UserBookService {
 
     /**
      * Updates the reading progress (last read chapter index) for a specific user and book.
+     * The progress is buffered and written to the database with other updates a few seconds later;
+     * the library is only queried for the first update of a book since the last write.
      *
      * @param progressDTO DTO containing the bookId and the new lastChapterIndex.
      * @param user The currently authenticated User making the update.
      * @throws ResourceNotFoundException if no UserBook association exists for the given user and bookId.
      */
-    @Transactional
     public void saveBookProgress(UserBookProgressDTO progressDTO, User user) {
-        UserBook userBook = userBookRepository.findByUserIdAndBookId(user.getId(), progressDTO.bookId())
-                .orElseThrow(() -> new ResourceNotFoundException("UserBook not found for user: " + user.getId() + " and book: " + progressDTO.bookId()));
-        userBook.setLastChapterIndex(progressDTO.lastChapterIndex());
-        userBookRepository.save(userBook);
+        Long bookId = progressDTO.bookId();
+        //Pending progress was checked against the library when it was first recorded
+        if(progressBuffer.get(user.getId(), bookId) == null && !userBookRepository.existsByUserIdAndBookId(user.getId(), bookId)){
+            throw new ResourceNotFoundException("UserBook not found for user: " + user.getId() + " and book: " + bookId);
+        }
+        progressBuffer.record(user.getId(), bookId, progressDTO.lastChapterIndex());
     }
 
 
     /**
-     * Retrieves all UserBook associations for a specific user.
-     * This effectively gets the user's library.
+     * Retrieves a user's whole library, in the order the books were added, with a single query.
+     *
+     * @param userId The ID of the user whose library is to be retrieved.
+     * @return A List of BookDTOs, one per book in the user's library.
+     */
+    @Transactional(readOnly = true)
+    public List<BookDTO> getLibrary(Long userId) {
+        return withPendingProgress(userId, userBookRepository.findLibrary(userId));
+    }
+
+    /**
+     * Retrieves a page of a user's library with keyset pagination: each page continues after the last book
+     * of the previous one, so pages stay consistent while books are added or read, and deep pages cost
+     * as much as the first.
      *
-     * @param userId The ID of the user whose books are to be retrieved.
-     * @return A List of UserBook entities associated with the user.
+     * @param userId The ID of the user whose library is to be retrieved.
+     * @param sort The order of the library.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param limit The maximum number of books to return, between 1 and MAX_LIBRARY_PAGE_SIZE.
+     * @return The page, with the cursor of the next page, or null if this is the last one.
+     * @throws IllegalArgumentException If the limit is out of range, or the cursor is invalid or from another order.
      */
     @Transactional(readOnly = true)
-    public List<UserBook> getUserBooks(Long userId) {
-        return userBookRepository.findByUserId(userId);
+    public LibraryPageDTO getLibraryPage(Long userId, LibrarySort sort, String cursor, int limit) {
+        if(limit < 1 || limit > MAX_LIBRARY_PAGE_SIZE){
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIBRARY_PAGE_SIZE);
+        }
+        List<String> after = cursor == null ? null : decodeCursor(cursor, sort);
+        Long afterId = after == null ? null : parseId(after.get(after.size() - 1));
+        //One more book than requested tells whether there is a next page
+        Pageable pageable = PageRequest.of(0, limit + 1);
+
+        List<BookDTO> books = switch (sort) {
+            case TITLE -> userBookRepository.findLibraryByTitle(userId, after == null ? null : after.get(0), afterId, pageable);
+            case AUTHOR -> userBookRepository.findLibraryByAuthor(userId, after == null ? null : after.get(0),
+                    after == null ? null : after.get(1), afterId, pageable);
+            case RECENT -> userBookRepository.findLibraryByRecent(userId, after == null ? null : parseInstant(after.get(0)), afterId, pageable);
+        };
+
+        if(books.size() <= limit){
+            return new LibraryPageDTO(withPendingProgress(userId, books), null);
+        }
+        List<BookDTO> page = books.subList(0, limit);
+        //The cursor continues from the stored sort key, so it is taken before pending progress is applied
+        String nextCursor = encodeCursor(sort, page.get(limit - 1));
+        return new LibraryPageDTO(withPendingProgress(userId, page), nextCursor);
+    }
+
+    /**
+     * Replaces the stored progress of books with their progress not yet written to the database.
+     */
+    private List<BookDTO> withPendingProgress(Long userId, List<BookDTO> books) {
+        if(progressBuffer.isEmpty()){
+            return books;
+        }
+        for(BookDTO book : books){
+            ReadingProgressBuffer.PendingProgress progress = progressBuffer.get(userId, book.getId());
+            if(progress != null){
+                book.setLastChapterIndex(progress.chapterIndex());
+                book.setLastReadAt(progress.readAt());
+            }
+        }
+        return books;
+    }
+
+    /**
+     * A cursor holds the order and the sort key of the last book of a page, each part Base64URL encoded and
+     * joined by dots, e.g. TITLE.title.id. A missing title or author is encoded as the empty string it sorts as.
+     */
+    private static String encodeCursor(LibrarySort sort, BookDTO last) {
+        String title = Objects.requireNonNullElse(last.getTitle(), "");
+        String author = Objects.requireNonNullElse(last.getAuthor(), "");
+        List<String> parts = switch (sort) {
+            case TITLE -> List.of(sort.name(), title, last.getId().toString());
+            case AUTHOR -> List.of(sort.name(), author, title, last.getId().toString());
+            case RECENT -> List.of(sort.name(), last.getLastReadAt().toString(), last.getId().toString());
+        };
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return parts.stream()
+                .map(part -> encoder.encodeToString(part.getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.joining("."));
+    }
+
+    /**
+     * @return The sort key parts of the cursor, without the order.
+     */
+    private static List<String> decodeCursor(String cursor, LibrarySort sort) {
+        List<String> parts;
+        try {
+            parts = Arrays.stream(cursor.split("\\.", -1))
+                    .map(part -> new String(Base64.getUrlDecoder().decode(part), StandardCharsets.UTF_8))
+                    .toList();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid library cursor", e);
+        }
+        int keyParts = sort == LibrarySort.AUTHOR ? 3 : 2;
+        if(parts.size() != keyParts + 1 || !parts.get(0).equals(sort.name())){
+            throw new IllegalArgumentException("The library cursor does not belong to the requested order");
+        }
+        return parts.subList(1, parts.size());
+    }
+
+    private static Long parseId(String id) {
+        try {
+            return Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid library cursor", e);
+        }
+    }
+
+    private static Instant parseInstant(String instant) {
+        try {
+            return Instant.parse(instant);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid library cursor", e);
+        }
     }
 
     /**
@@ -75,6 +200,10 @@ public class UserBookService {
      */
     @Transactional(readOnly = true)
     public Integer getBookProgress(Long bookId, User user) {
+        ReadingProgressBuffer.PendingProgress progress = progressBuffer.get(user.getId(), bookId);
+        if(progress != null){
+            return progress.chapterIndex();
+        }
         return userBookRepository.findByUserIdAndBookId(user.getId(), bookId)
                 .map(userBook -> userBook.getLastChapterIndex())
                 .orElse(0);
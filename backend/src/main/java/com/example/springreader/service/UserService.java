@@ -1,6 +1,7 @@
 package com.example.springreader.service;
 
 import com.example.springreader.dto.LoginRequest;
+import com.example.springreader.exception.PasswordHashingBusyException;
 import com.example.springreader.exception.UsernameAlreadyExistsException;
 import com.example.springreader.model.Book;
 import com.example.springreader.model.User;
@@ -10,10 +11,11 @@ import com.example.springreader.repository.UserBookRepository;
 import com.example.springreader.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 
@@ -30,24 +32,53 @@ public class UserService {
     private final JwtService jwtService;
     private final BookRepository bookRepository;
     private final UserBookRepository userBookRepository;
+    private final MyUserDetailsService userDetailsService;
+    private final TransactionTemplate transactionTemplate;
 
 
     /**
      * Authenticates a user based on provided credentials.
      * Verifies the username exists and the provided password matches the stored hash.
-     * If successful, generates and returns a JWT token for the user.
+     * If successful, upgrades the stored hash when it was made with a lower BCrypt cost than configured,
+     * and generates and returns a JWT token for the user.
      *
      * @param loginRequest DTO containing the username and password attempt.
      * @return A JWT token string upon successful authentication.
      * @throws BadCredentialsException if the username is not found or the password does not match.
+     * @throws PasswordHashingBusyException if the password cannot be checked because password hashing is saturated.
      */
     public String authenticate(LoginRequest loginRequest) {
-        //Find user, check password match, generate token, or throw exception
+        //Find user, check password match, or throw exception
         String lowercaseUsername = loginRequest.username().toLowerCase();
-        return userRepository.findByUsername(lowercaseUsername)
-                .filter(user -> passwordEncoder.matches(loginRequest.password(), user.getPassword()))
-                .map(jwtService::generateToken)
+        User user = userRepository.findByUsername(lowercaseUsername)
+                .filter(candidate -> passwordEncoder.matches(loginRequest.password(), candidate.getPassword()))
                 .orElseThrow(() -> new BadCredentialsException("Invalid username or password"));
+
+        upgradePasswordHash(user, loginRequest.password());
+        return jwtService.generateToken(user);
+    }
+
+    /**
+     * Re-hashes a user's password with the configured cost, if its stored hash was made with a lower one.
+     * The password is only known at login, so this is the only time it can be done.
+     * When hashing is saturated the upgrade is left for a later login rather than failing this one.
+     *
+     * @param user The user who just logged in.
+     * @param rawPassword The password the user logged in with.
+     */
+    private void upgradePasswordHash(User user, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(passwordEncoder.encode(rawPassword));
+        } catch (PasswordHashingBusyException e) {
+            log.info("Password hashing busy, not upgrading the password hash of user: {}", user.getUsername());
+            return;
+        }
+        userRepository.save(user);
+        userDetailsService.evict(user.getUsername());
+        log.info("Upgraded the password hash of user: {}", user.getUsername());
     }
 
 
@@ -55,19 +86,32 @@ public class UserService {
      * Registers a new user in the system.
      * Checks if the username already exists. If not, encodes the password,
      * saves the new user, and associates the default book with the user.
+     * The password is hashed before the transaction starts, so waiting for the hashing pool holds no database connection.
      *
      * @param loginRequest DTO containing the desired username and password.
      * @throws UsernameAlreadyExistsException if the requested username is already taken.
+     * @throws PasswordHashingBusyException if the password cannot be hashed because password hashing is saturated.
      */
-    @Transactional
     public void register(LoginRequest loginRequest) {
         String lowercaseUsername = loginRequest.username().toLowerCase();
         if (userRepository.findByUsername(lowercaseUsername).isPresent()) {
             throw new UsernameAlreadyExistsException(loginRequest.username());
         }
 
-        //Create and save the new user with encoded password
         User newUser = new User(lowercaseUsername, passwordEncoder.encode(loginRequest.password()));
+        try {
+            transactionTemplate.executeWithoutResult(status -> saveNewUser(newUser));
+        } catch (DataIntegrityViolationException e) {
+            //Registered concurrently since the check above, rejected by the unique username
+            throw new UsernameAlreadyExistsException(loginRequest.username());
+        }
+        userDetailsService.evict(lowercaseUsername);
+    }
+
+    /**
+     * Saves a new user and adds the default book to its library, in the caller's transaction.
+     */
+    private void saveNewUser(User newUser) {
         userRepository.save(newUser);
         log.info("Registered new user: {}", newUser.getUsername());
 
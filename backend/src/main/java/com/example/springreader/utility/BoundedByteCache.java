@@ -0,0 +1,200 @@
+package com.example.springreader.utility;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * A thread safe, least recently used cache bounded by the total weight (in bytes) of its values
+ * rather than by the number of entries. Entries are evicted oldest-access first once the
+ * configured byte budget is exceeded. Hit, miss and eviction counts are tracked for metrics.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BoundedByteCache<K, V> {
+
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    //accessOrder = true makes iteration order least recently used first
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxBytes the maximum combined weight of all cached values, must be positive
+     * @param weigher  function returning the approximate size of a value in bytes
+     */
+    public BoundedByteCache(long maxBytes, ToLongFunction<V> weigher) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        if (weigher == null) {
+            throw new IllegalArgumentException("weigher cannot be null");
+        }
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Looks up a value and marks it as recently used.
+     *
+     * @param key the key to look up
+     * @return the cached value, or null if absent
+     */
+    public V get(K key) {
+        lock.lock();
+        try {
+            V value = entries.get(key);
+            if (value == null) {
+                misses.increment();
+            } else {
+                hits.increment();
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stores a value, evicting least recently used entries until the cache fits its byte budget.
+     * Values that are larger than the whole budget are not cached at all.
+     *
+     * @param key   the key to store the value under
+     * @param value the value to cache
+     */
+    public void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxBytes) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            V previous = entries.put(key, value);
+            if (previous != null) {
+                currentBytes -= weigher.applyAsLong(previous);
+            }
+            currentBytes += weight;
+
+            Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<K, V> eldest = iterator.next();
+                currentBytes -= weigher.applyAsLong(eldest.getValue());
+                iterator.remove();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the entry stored under a key, if any.
+     *
+     * @param key the key to remove
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            V previous = entries.remove(key);
+            if (previous != null) {
+                currentBytes -= weigher.applyAsLong(previous);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes every entry whose key matches the given predicate.
+     *
+     * @param keyPredicate selects the keys to remove
+     */
+    public void invalidateIf(Predicate<K> keyPredicate) {
+        lock.lock();
+        try {
+            Iterator<Map.Entry<K, V>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<K, V> entry = iterator.next();
+                if (keyPredicate.test(entry.getKey())) {
+                    currentBytes -= weigher.applyAsLong(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long sizeInBytes() {
+        lock.lock();
+        try {
+            return currentBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes the counters and size of a cache weighed in bytes to Micrometer, as name.hits, name.misses,
+     * name.evictions, name.size and name.entries.
+     *
+     * @param registry the registry to register the meters with
+     * @param name     the common prefix of the meter names, e.g. "springreader.chapter.cache"
+     * @param contents what is cached, in the plural, used in the meter descriptions, e.g. "chapters"
+     */
+    public void bindMeters(MeterRegistry registry, String name, String contents) {
+        FunctionCounter.builder(name + ".hits", this, BoundedByteCache::hitCount)
+                .description("Lookups of " + contents + " served from the cache")
+                .register(registry);
+        FunctionCounter.builder(name + ".misses", this, BoundedByteCache::missCount)
+                .description("Lookups of " + contents + " that missed the cache")
+                .register(registry);
+        FunctionCounter.builder(name + ".evictions", this, BoundedByteCache::evictionCount)
+                .description("Cached " + contents + " evicted to keep the cache within its byte budget")
+                .register(registry);
+        Gauge.builder(name + ".size", this, BoundedByteCache::sizeInBytes)
+                .description("Approximate heap size of the cached " + contents)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder(name + ".entries", this, BoundedByteCache::size)
+                .description("Number of " + contents + " currently cached")
+                .register(registry);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.springreader.utility;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Read-only access to the entries of an open EPUB (zip) archive, by entry path.
+ *
+ * Two readers are available: ZipFileArchive over java.util.zip.ZipFile, and MappedEpubArchive which
+ * memory-maps the archive and serves entries straight from the mapping. Implementations are safe to
+ * read from concurrently; every stream or buffer handed out is independent.
+ */
+public interface EpubArchive extends Closeable {
+
+    /**
+     * @return the path of the archive, for logging
+     */
+    String getName();
+
+    /**
+     * @return the number of entries in the archive
+     * @throws IllegalStateException if the archive has been closed
+     */
+    int size();
+
+    /**
+     * @param entryPath the path of the entry within the archive
+     * @return true if the archive has an entry with this path
+     * @throws IllegalStateException if the archive has been closed
+     */
+    boolean hasEntry(String entryPath);
+
+    /**
+     * Opens a stream over the uncompressed content of an entry.
+     *
+     * @param entryPath the path of the entry within the archive
+     * @return a stream over the entry's content, to be closed by the caller
+     * @throws java.nio.file.NoSuchFileException if the archive has no entry with this path
+     * @throws IOException if the entry cannot be read
+     * @throws IllegalStateException if the archive has been closed
+     */
+    InputStream getInputStream(String entryPath) throws IOException;
+
+    /**
+     * Returns the content of an entry stored without compression as a read-only buffer, without copying it.
+     *
+     * @param entryPath the path of the entry within the archive
+     * @return the entry's content, or empty if the entry is compressed or the reader cannot expose it directly
+     * @throws java.nio.file.NoSuchFileException if the archive has no entry with this path
+     * @throws IOException if the entry cannot be read
+     */
+    default Optional<ByteBuffer> getStoredContent(String entryPath) throws IOException {
+        return Optional.empty();
+    }
+
+    /**
+     * The available archive readers, selected with the books.archive.reader property.
+     */
+    enum Reader {
+        ZIP_FILE,
+        MAPPED;
+
+        /**
+         * Opens an archive with this reader.
+         *
+         * @param path path to the archive
+         * @return the open archive
+         * @throws java.util.zip.ZipException if the file is not a valid zip archive
+         * @throws IOException if the file cannot be read
+         */
+        public EpubArchive open(Path path) throws IOException {
+            return switch (this) {
+                case ZIP_FILE -> ZipFileArchive.open(path);
+                case MAPPED -> MappedEpubArchive.open(path);
+            };
+        }
+    }
+}
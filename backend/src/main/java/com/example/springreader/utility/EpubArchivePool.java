@@ -0,0 +1,209 @@
+package com.example.springreader.utility;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pool of open EpubArchive handles keyed by the absolute path of the EPUB.
+ *
+ * Opening an archive reads the whole central directory, so reusing handles avoids that cost on every request.
+ * Archives are opened with the reader selected by books.archive.reader (zip-file or mapped).
+ * Handles are leased out with reference counting: idle handles are closed least recently used first once more
+ * than the configured number of files are open, and a handle removed with evict() is only closed after
+ * its last reader has released it. When every open handle is in use the pool temporarily exceeds its cap
+ * rather than blocking readers, and shrinks back as leases are released.
+ */
+@Slf4j
+@Component
+public class EpubArchivePool {
+
+    private final int maxOpenFiles;
+    private final EpubArchive.Reader reader;
+
+    //accessOrder = true makes iteration order least recently used first
+    private final LinkedHashMap<Path, PooledArchive> openFiles = new LinkedHashMap<>(16, 0.75f, true);
+
+    public EpubArchivePool(@Value("${books.archive.pool.max-open:64}") int maxOpenFiles,
+                           @Value("${books.archive.reader:zip-file}") EpubArchive.Reader reader) {
+        if (maxOpenFiles <= 0) {
+            throw new IllegalArgumentException("maxOpenFiles must be positive");
+        }
+        this.maxOpenFiles = maxOpenFiles;
+        this.reader = reader;
+    }
+
+    /**
+     * Leases an open archive for the given EPUB, opening it if it is not already pooled.
+     * The returned lease must be closed (try-with-resources) to release the handle back to the pool.
+     *
+     * @param epubPath path to the EPUB file
+     * @return a lease holding the open archive
+     * @throws IOException if the file cannot be opened as a zip archive
+     */
+    public Lease acquire(Path epubPath) throws IOException {
+        Path key = epubPath.toAbsolutePath().normalize();
+
+        synchronized (this) {
+            PooledArchive pooled = openFiles.get(key);
+            if (pooled != null) {
+                pooled.refCount++;
+                return new Lease(pooled);
+            }
+        }
+
+        //Open outside the lock so a slow open does not block readers of other books
+        EpubArchive archive = reader.open(key);
+        PooledArchive pooled;
+        boolean lostRace = false;
+        List<EpubArchive> toClose;
+        synchronized (this) {
+            pooled = openFiles.get(key);
+            if (pooled == null) {
+                pooled = new PooledArchive(archive);
+                openFiles.put(key, pooled);
+            } else {
+                lostRace = true;
+            }
+            pooled.refCount++;
+            toClose = trimIdle();
+        }
+
+        if (lostRace) {
+            toClose.add(archive);
+        }
+        closeAll(toClose);
+        return new Lease(pooled);
+    }
+
+    /**
+     * Removes the EPUB's handle from the pool so it can be deleted. The handle is closed immediately if idle,
+     * otherwise as soon as the last reader releases it.
+     *
+     * @param epubPath path to the EPUB file
+     */
+    public void evict(Path epubPath) {
+        Path key = epubPath.toAbsolutePath().normalize();
+        EpubArchive toClose = null;
+        synchronized (this) {
+            PooledArchive pooled = openFiles.remove(key);
+            if (pooled == null) {
+                return;
+            }
+            pooled.retired = true;
+            if (pooled.refCount == 0) {
+                toClose = pooled.archive;
+            }
+        }
+        if (toClose != null) {
+            closeAll(List.of(toClose));
+        }
+    }
+
+    /**
+     * @return the number of archive handles currently held open by the pool
+     */
+    public synchronized int openCount() {
+        return openFiles.size();
+    }
+
+    /**
+     * Closes every pooled handle on shutdown.
+     */
+    @PreDestroy
+    public void close() {
+        List<EpubArchive> toClose = new ArrayList<>();
+        synchronized (this) {
+            for (PooledArchive pooled : openFiles.values()) {
+                pooled.retired = true;
+                toClose.add(pooled.archive);
+            }
+            openFiles.clear();
+        }
+        closeAll(toClose);
+    }
+
+    private void release(PooledArchive pooled) {
+        List<EpubArchive> toClose;
+        synchronized (this) {
+            pooled.refCount--;
+            if (pooled.retired) {
+                toClose = pooled.refCount == 0 ? List.of(pooled.archive) : List.of();
+            } else {
+                toClose = trimIdle();
+            }
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * Removes idle handles, least recently used first, until the pool is within its cap.
+     * Must be called while holding the pool lock; the returned files should be closed after releasing it.
+     */
+    private List<EpubArchive> trimIdle() {
+        List<EpubArchive> toClose = new ArrayList<>();
+        Iterator<Map.Entry<Path, PooledArchive>> iterator = openFiles.entrySet().iterator();
+        while (openFiles.size() > maxOpenFiles && iterator.hasNext()) {
+            PooledArchive candidate = iterator.next().getValue();
+            if (candidate.refCount == 0) {
+                candidate.retired = true;
+                toClose.add(candidate.archive);
+                iterator.remove();
+            }
+        }
+        return toClose;
+    }
+
+    private static void closeAll(List<EpubArchive> archives) {
+        for (EpubArchive archive : archives) {
+            try {
+                archive.close();
+            } catch (IOException e) {
+                log.warn("Error closing pooled archive: {}", archive.getName(), e);
+            }
+        }
+    }
+
+    private static final class PooledArchive {
+        private final EpubArchive archive;
+        private int refCount = 0;
+        private boolean retired = false;
+
+        private PooledArchive(EpubArchive archive) {
+            this.archive = archive;
+        }
+    }
+
+    /**
+     * A leased archive handle. Closing the lease releases the handle back to the pool; it does not close the file.
+     */
+    public final class Lease implements AutoCloseable {
+        private final PooledArchive pooled;
+        private boolean released = false;
+
+        private Lease(PooledArchive pooled) {
+            this.pooled = pooled;
+        }
+
+        public EpubArchive archive() {
+            return pooled.archive;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(pooled);
+            }
+        }
+    }
+}
@@ -1,151 +1,129 @@
 package com.example.springreader.utility;
 
 import com.example.springreader.exception.EpubProcessingException;
-import com.example.springreader.model.EpubChapter;
-import com.example.springreader.model.EpubContentFile;
-import com.example.springreader.model.EpubToc;
-import com.example.springreader.model.OpfData;
+import com.example.springreader.model.*;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.springframework.stereotype.Component;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 
 
 /**
- * Utility class for parsing EPUB files. Provides static methods to extract
+ * Utility class for parsing EPUB files. Provides methods to extract
  * metadata (title, author, table of contents), chapter content, and cover images.
+ * Archives are opened through the shared EpubArchivePool rather than once per call, with either
+ * archive reader, and the
+ * EPUB's XML files are read with the streaming EpubXmlParser.
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class EpubParser {
 
+    private final EpubArchivePool epubArchivePool;
+    private final EpubXmlParser epubXmlParser;
 
     /**
-     * Parses the core metadata from an EPUB file, including title, author, and table of contents.
+     * Parses everything needed to ingest an EPUB in a single pass over the archive: title, author,
+     * table of contents, manifest and cover image entry. container.xml and the OPF are parsed once.
      * Navigates the EPUB structure (container.xml -> OPF -> NCX/TOC) to extract information.
      *
-     * @param epubFile the epub to extract the metadata from
-     * @return a Map containing extracted metadata ("title", "author", "toc").
+     * @param archive the open EPUB archive to parse
+     * @return an EpubIngestResult holding the extracted metadata
      * @throws EpubProcessingException If the EPUB structure is invalid or required files are missing/malformed.
      * @throws IOException If an error occurs reading the EPUB file.
-     * @throws IllegalArgumentException If epubFile is null.
+     * @throws IllegalArgumentException If archive is null.
      */
-    public Map<String, Object> parseMeta(File epubFile) throws EpubProcessingException, IOException{
-        if (epubFile == null) {
-            throw new IllegalArgumentException("epubFile cannot be null");
+    public EpubIngestResult parseEpub(EpubArchive archive) throws EpubProcessingException, IOException{
+        if (archive == null) {
+            throw new IllegalArgumentException("archive cannot be null");
         }
 
-        Map<String, Object> response = new HashMap<>();
+        OpfData opfData = getOpfData(archive);
 
-        try(ZipFile zipFile = new ZipFile(epubFile)){
-            OpfData opfData = getOpfDocument(zipFile);
-            Document opfDocument = opfData.opfDocument();
-            String opfFilePath = opfData.opfFilePath();
+        String title = "Unknown Title";
+        if(opfData.title() == null || opfData.title().isBlank()){
+            log.warn("Title not found in OPF document");
+        }
+        else{
+            title = opfData.title();
+        }
 
+        String author = "Unknown Author";
+        if(opfData.author() == null || opfData.author().isBlank()){
+            log.warn("Author not found in OPF document");
+        }
+        else{
+            author = opfData.author();
+        }
 
-            String title = "Unknown Title";
-            NodeList titleNode = opfDocument.getElementsByTagName("dc:title");
-            if(titleNode.getLength() == 0 || titleNode.item(0).getTextContent().isBlank()){
-                log.warn("Title not found in OPF document");
-                response.put("title", title);
-            }
-            else{
-                title = titleNode.item(0).getTextContent();
-                response.put("title", title);
+        Map<String, ManifestItem> manifest = opfData.manifest();
+
+        List<NavPoint> navPoints = getToc(archive, manifest);
+        if(navPoints.isEmpty()){
+            log.error("No navPoints found in toc.ncx for epub: {}", archive.getName());
+            throw new EpubProcessingException("No navPoints found in toc.ncx");
+        }
+
+        EpubToc toc = new EpubToc();
+
+        int[] childCounts = new int[navPoints.size()];
+        for(NavPoint navPoint : navPoints){
+            if(navPoint.parentIndex() >= 0){
+                childCounts[navPoint.parentIndex()]++;
             }
+        }
 
-            String author = "Unknown Author";
-            NodeList authorNode = opfDocument.getElementsByTagName("dc:creator");
-            if(authorNode.getLength() == 0 || authorNode.item(0).getTextContent().isBlank()){
-                log.warn("Author not found in OPF document");
-                response.put("author", author);
+        for(int i = 0; i < navPoints.size(); i++){
+            NavPoint navPoint = navPoints.get(i);
+            String chapterTitle = "Unknown Chapter Title";
+            if(navPoint.label() == null || navPoint.label().isBlank()){
+                log.warn("Chapter title not found in navPoint: {}", navPoint.id());
             }
             else{
-                author = authorNode.item(0).getTextContent();
+                chapterTitle = navPoint.label().trim();
             }
-            response.put("title", title);
-            response.put("author", author);
 
-            Document tocDocument = getToc(zipFile, opfDocument, opfFilePath);
-
-            NodeList navPoints = tocDocument.getElementsByTagName("navPoint");
-            if(navPoints.getLength() == 0){
-                log.error("No navPoints found in toc.ncx for epub: {}", epubFile.getName());
-                throw new EpubProcessingException("No navPoints found in toc.ncx");
+            if(navPoint.src() == null){
+                log.error("Content src not found in navPoint: {}", navPoint.id());
+                throw new EpubProcessingException("Content src not found in navPoint: " + navPoint.id());
             }
 
-            EpubToc toc = new EpubToc();
-
-
-            for(int i = 0; i < navPoints.getLength(); i++){
-                Element navPoint = (Element) navPoints.item(i);
-                NodeList chapterTitleNode = navPoint.getElementsByTagName("navLabel");
-                String chapterTitle = "Unknown Chapter Title";
-                if(chapterTitleNode.getLength() == 0 || chapterTitleNode.item(0).getTextContent().isBlank()){
-                    log.warn("Chapter title not found in navPoint: {}", navPoint.getAttribute("id"));
-                }
-                else{
-                    chapterTitle = chapterTitleNode.item(0).getTextContent().trim();
-                }
-
-                NodeList contentList = navPoint.getElementsByTagName("content");
-                if(contentList.getLength() == 0 || contentList.item(0).getAttributes().getNamedItem("src") == null){
-                    log.error("Content src not found in navPoint: {}", navPoint.getAttribute("id"));
-                    throw new EpubProcessingException("Content src not found in navPoint: " + navPoint.getAttribute("id"));
-                }
-
-                String rawSrc = contentList.item(0).getAttributes().getNamedItem("src").getTextContent();
-                if(rawSrc.isBlank()){
-                    log.error("Content src is blank in navPoint: {}", navPoint.getAttribute("id"));
-                    throw new EpubProcessingException("Content src is blank in navPoint: " + navPoint.getAttribute("id"));
-                }
-
+            String rawSrc = navPoint.src();
+            if(rawSrc.isBlank()){
+                log.error("Content src is blank in navPoint: {}", navPoint.id());
+                throw new EpubProcessingException("Content src is blank in navPoint: " + navPoint.id());
+            }
 
-                int hashIndex = rawSrc.indexOf("#");
-                String rawFilePath = (hashIndex != -1) ? rawSrc.substring(0, hashIndex) : rawSrc;
-                String filePath = Path.of(opfData.opfParent()).resolve(rawFilePath).toString().replace("\\", "/");
 
-                String anchor = (hashIndex != -1) ? rawSrc.substring(hashIndex + 1) : "";
+            int hashIndex = rawSrc.indexOf("#");
+            String rawFilePath = (hashIndex != -1) ? rawSrc.substring(0, hashIndex) : rawSrc;
+            String filePath = Path.of(opfData.opfParent()).resolve(rawFilePath).toString().replace("\\", "/");
 
-                EpubContentFile contentFile = null;
-                for (EpubContentFile cf : toc.getContentFiles()) {
-                    if (cf.getFilePath().equals(filePath)) {
-                        contentFile = cf;
-                        break;
-                    }
-                }
+            String anchor = (hashIndex != -1) ? rawSrc.substring(hashIndex + 1) : "";
 
-                if (contentFile == null) {
-                    contentFile = new EpubContentFile(filePath);
-                    toc.addContentFile(contentFile);
-                }
+            toc.getOrAddContentFile(filePath)
+                    .addChapter(new EpubChapter(chapterTitle, anchor, i, filePath, navPoint.depth(), navPoint.parentIndex(), childCounts[i]));
 
-                contentFile.addChapter(new EpubChapter(chapterTitle, anchor, i, filePath));
-
-            }
+        }
 
-            response.put("toc", toc);
+        EpubCover cover = findCoverImage(archive, manifest);
 
-        }
-        catch (ZipException e){
-            log.error("Invalid Zip/Epub file: {}", epubFile, e);
-            throw new EpubProcessingException("Invalid Zip/Epub file: " + epubFile.getName() + "\n" + e.getMessage());
-        }
-        return response;
+        return new EpubIngestResult(title, author, toc, manifest, cover);
     }
 
     /**
@@ -162,367 +140,370 @@ public class EpubParser {
      * @throws IllegalArgumentException If epubFile or filePath is null or blank.
      */
     public String parseContent(Path epubFile, String filePath, String anchor) throws EpubProcessingException, IOException{
+        return parseContentFile(epubFile, filePath, List.of(anchor)).get(anchor);
+    }
+
+    /**
+     * Parses a content file of an EPUB file once and splits it into the text of every chapter it holds.
+     *
+     * @param epubFile Path to the EPUB file on the filesystem.
+     * @param filePath The path to the content file *within* the EPUB archive.
+     * @param anchors The anchors of the chapters within the file, empty for a chapter covering the whole file.
+     * @return The extracted text of each chapter keyed by its anchor, in the order given.
+     * @throws EpubProcessingException If the EPUB or the content file is invalid or cannot be found.
+     * @throws IOException If an error occurs reading the EPUB or content file.
+     * @throws IllegalArgumentException If epubFile or filePath is null or blank.
+     * @see #parseContentFile(EpubArchive, String, Collection)
+     */
+    public Map<String, String> parseContentFile(Path epubFile, String filePath, Collection<String> anchors) throws EpubProcessingException, IOException{
         if(epubFile == null){
             throw new IllegalArgumentException("epubFile cannot be null");
         }
-        if(filePath == null || filePath.isBlank()){
-            throw new IllegalArgumentException("filePath cannot be null or blank");
+        try(EpubArchivePool.Lease lease = epubArchivePool.acquire(epubFile)){
+            return parseContentFile(lease.archive(), filePath, anchors);
+        } catch (ZipException e){
+            log.error("Invalid Zip/Epub file: {}", epubFile.getFileName(), e);
+            throw new EpubProcessingException("Invalid Zip/Epub file: " + epubFile.getFileName() + "\n" + e.getMessage());
         }
-        try(ZipFile zipFile = new ZipFile(epubFile.toFile())){
-            ZipEntry chapterZipEntry = zipFile.getEntry(filePath);
-
-            if(chapterZipEntry == null){
-                log.error("Chapter zip entry not found for path: {}", filePath);
-                throw new EpubProcessingException("Chapter zip entry not found for path: " + filePath);
-            }
-
-
-            try(InputStream chapterInputStream = zipFile.getInputStream(chapterZipEntry)){
-                org.jsoup.nodes.Document chapterDocument = Jsoup.parse(chapterInputStream, "UTF-8", filePath);
-
-                if(!anchor.isEmpty()){
-                    chapterDocument = Jsoup.parse(chapterDocument.html());
-
-                    //Find the element using our anchor as an id
-                    org.jsoup.nodes.Element anchorElement = chapterDocument.getElementById(anchor);
-
-                    if (anchorElement != null) {
-                        log.info("Found anchor element: {}", anchorElement.tagName());
-                        //Create a StringBuilder to collect all content
-                        StringBuilder contentBuilder = new StringBuilder();
-
-                        //If it's a div (container element), process all its children
-                        if (anchorElement.tagName().equals("div")) {
-                            //Look for a heading, if present.
-                            org.jsoup.nodes.Element heading = anchorElement.select("h1, h2, h3, h4, h5, h6").first();
-                            if (heading != null) {
-                                /**
-                                 * ("\n\n") so we can format between paragraphs/headings/etc on front end easily.
-                                 */
-                                contentBuilder.append(heading.text()).append("\n\n");
-                            }
-
-                            //Add all paragraphs
-                            for (org.jsoup.nodes.Element p : anchorElement.select("p")) {
-                                String pText = p.text().trim();
-                                if (!pText.isEmpty()) {
-                                    contentBuilder.append(pText).append("\n\n");
-                                }
-                            }
-                        } else {
-                            //Add the anchor element itself
-                            contentBuilder.append(anchorElement.text()).append("\n\n");
-
-                            //Add all following sibling elements until the next anchor or the end
-                            org.jsoup.nodes.Element currentElement = anchorElement;
-                            while ((currentElement = currentElement.nextElementSibling()) != null) {
-                                //Stop if we hit another anchor element
-                                if (currentElement.hasAttr("id")) {
-                                    break;
-                                }
-
-                                //Check if it's a paragraph element
-                                if (currentElement.tagName().equals("p")) {
-                                    String paragraphText = currentElement.text().trim();
-                                    if (!paragraphText.isEmpty()) {
-                                        contentBuilder.append(paragraphText).append("\n\n");
-                                    }
-                                }
-                                //Headings
-                                else if (currentElement.tagName().matches("h[1-6]")) {
-                                    String headingText = currentElement.text().trim();
-                                    if (!headingText.isEmpty()) {
-                                        contentBuilder.append(headingText).append("\n\n");
-                                    }
-                                }
-                            }
-                        }
-
-                        //Return the text content
-                        return contentBuilder.toString().trim();
-                    } else {
-                        //There was an anchor, but couldn't find it in our documenet
-                        return "Anchor not found: " + anchor;
-                    }
-                } else //No anchor
-                {
-                    log.info("No anchor provided");
-                    chapterDocument.head().remove();
-
-
-
-                    StringBuilder contentBuilder = new StringBuilder();
+    }
 
-                    //add any headings
-                    for (org.jsoup.nodes.Element hElement : chapterDocument.select("h1, h2, h3, h4, h5, h6")) {
-                        String hText = hElement.text().trim();
-                        if (!hText.isEmpty()) {
-                            contentBuilder.append(hText).append("\n\n");
-                        }
-                    }
+    /**
+     * Parses and extracts the text content of a specific chapter from an already open EPUB archive.
+     *
+     * @param archive The open EPUB archive.
+     * @param filePath The path to the chapter's content file *within* the EPUB archive.
+     * @param anchor The optional anchor (ID) within the chapter file to start extraction from. Can be empty.
+     * @return A String containing the extracted text content, paragraphs separated by double newlines.
+     * @throws EpubProcessingException If the chapter file or anchor cannot be found.
+     * @throws IOException If an error occurs reading the chapter file.
+     * @throws IllegalArgumentException If filePath is null or blank.
+     */
+    public String parseContent(EpubArchive archive, String filePath, String anchor) throws EpubProcessingException, IOException{
+        return parseContentFile(archive, filePath, List.of(anchor)).get(anchor);
+    }
 
-                    //add all paragraphs
-                    for (org.jsoup.nodes.Element pElement : chapterDocument.select("p")) {
-                        String pText = pElement.text().trim();
-                        if (!pText.isEmpty()) {
-                            contentBuilder.append(pText).append("\n\n");
-                            //log.info("Paragraph text: {}", pText);
-                        }
+    /**
+     * Parses a content file once and splits it into the text of every chapter it holds.
+     * Several TOC entries often point into the same file with different anchors; segmenting them
+     * from a single parse avoids re-reading and re-parsing the file for each of them.
+     *
+     * @param archive The open EPUB archive.
+     * @param filePath The path to the content file *within* the EPUB archive.
+     * @param anchors The anchors of the chapters within the file, empty for a chapter covering the whole file.
+     * @return The extracted text of each chapter keyed by its anchor, in the order given.
+     * @throws EpubProcessingException If the content file cannot be found.
+     * @throws IOException If an error occurs reading the content file.
+     * @throws IllegalArgumentException If filePath is null or blank.
+     */
+    public Map<String, String> parseContentFile(EpubArchive archive, String filePath, Collection<String> anchors) throws EpubProcessingException, IOException{
+        org.jsoup.nodes.Document chapterDocument = parseDocument(archive, filePath);
+
+        Map<String, String> chapterTexts = new LinkedHashMap<>();
+        for(String anchor : anchors){
+            if(!chapterTexts.containsKey(anchor)){
+                StringBuilder contentBuilder = new StringBuilder();
+                //("\n\n") so we can format between paragraphs/headings/etc on front end easily.
+                extractParagraphs(chapterDocument, anchor, paragraph -> {
+                    if(!contentBuilder.isEmpty()){
+                        contentBuilder.append("\n\n");
                     }
-
-                    return contentBuilder.toString().trim();
-                }
+                    contentBuilder.append(paragraph);
+                });
+                chapterTexts.put(anchor, contentBuilder.toString());
             }
+        }
+        return chapterTexts;
+    }
+
+    /**
+     * Parses a chapter of an EPUB file and hands its paragraphs to the sink one at a time as they are extracted,
+     * instead of assembling the chapter text. The paragraphs are the ones parseContent joins with double newlines.
+     *
+     * @param epubFile Path to the EPUB file on the filesystem.
+     * @param filePath The path to the chapter's content file *within* the EPUB archive.
+     * @param anchor The optional anchor (ID) within the chapter file to start extraction from. Can be empty.
+     * @param sink Receives each paragraph in reading order.
+     * @throws EpubProcessingException If the EPUB or the chapter file is invalid or cannot be found.
+     * @throws IOException If an error occurs reading the EPUB or chapter file, or the sink fails.
+     * @throws IllegalArgumentException If epubFile or filePath is null or blank.
+     */
+    public void parseContent(Path epubFile, String filePath, String anchor, ParagraphSink sink) throws EpubProcessingException, IOException{
+        if(epubFile == null){
+            throw new IllegalArgumentException("epubFile cannot be null");
+        }
+        org.jsoup.nodes.Document chapterDocument;
+        try(EpubArchivePool.Lease lease = epubArchivePool.acquire(epubFile)){
+            chapterDocument = parseDocument(lease.archive(), filePath);
         } catch (ZipException e){
             log.error("Invalid Zip/Epub file: {}", epubFile.getFileName(), e);
             throw new EpubProcessingException("Invalid Zip/Epub file: " + epubFile.getFileName() + "\n" + e.getMessage());
         }
+        extractParagraphs(chapterDocument, anchor, sink);
     }
 
     /**
-     * Extracts the cover image data (bytes and media type) from an EPUB file.
-     * Searches the OPF manifest for an item identified as the cover image.
+     * Reads and parses a content file of the EPUB archive with Jsoup.
      *
-     * @param epubFile The EPUB file to extract the cover from.
-     * @return An Optional containing a Map with "coverImage" (byte[]) and "mediaType" (String) if found,
-     *         otherwise an empty Optional.
-     * @throws EpubProcessingException If the EPUB structure is invalid or reading the image fails.
-     * @throws IOException If an error occurs reading the EPUB file.
-     * @throws IllegalArgumentException If epubFile is null.
+     * @param archive The open EPUB archive.
+     * @param filePath The path to the content file *within* the EPUB archive.
+     * @return The parsed content file.
+     * @throws EpubProcessingException If the content file cannot be found.
+     * @throws IOException If an error occurs reading the content file.
+     * @throws IllegalArgumentException If filePath is null or blank.
      */
-    public Optional<Map<String, Object>> extractCoverImage(File epubFile) throws EpubProcessingException, IOException{
-        if(epubFile == null){
-            throw new IllegalArgumentException("epubFile cannot be null");
+    private org.jsoup.nodes.Document parseDocument(EpubArchive archive, String filePath) throws EpubProcessingException, IOException{
+        if(filePath == null || filePath.isBlank()){
+            throw new IllegalArgumentException("filePath cannot be null or blank");
+        }
+        if(!archive.hasEntry(filePath)){
+            log.error("Chapter zip entry not found for path: {}", filePath);
+            throw new EpubProcessingException("Chapter zip entry not found for path: " + filePath);
         }
 
-        try(ZipFile zipFile = new ZipFile(epubFile)){
-            OpfData opfData = getOpfDocument(zipFile);
+        try(InputStream chapterInputStream = archive.getInputStream(filePath)){
+            return Jsoup.parse(chapterInputStream, "UTF-8", filePath);
+        }
+    }
 
-            Document opfDocument = opfData.opfDocument();
-            NodeList manifestItems = opfDocument.getElementsByTagName("item");
+    /**
+     * Extracts the non-empty paragraphs and headings of a chapter: the whole file when there is no anchor,
+     * otherwise the section starting at the anchor.
+     *
+     * @param chapterDocument The parsed content file.
+     * @param anchor The optional anchor (ID) the section starts at. Can be empty.
+     * @param sink Receives each paragraph in reading order.
+     * @throws IOException If the sink fails.
+     */
+    private void extractParagraphs(org.jsoup.nodes.Document chapterDocument, String anchor, ParagraphSink sink) throws IOException{
+        if(anchor.isEmpty()){
+            extractDocumentParagraphs(chapterDocument, sink);
+        }
+        else{
+            extractAnchorParagraphs(chapterDocument, anchor, sink);
+        }
+    }
+
+    /**
+     * Extracts the paragraphs of the section starting at an anchor.
+     *
+     * @param chapterDocument The parsed content file.
+     * @param anchor The anchor (ID) of the element the section starts at.
+     * @param sink Receives each paragraph in reading order.
+     * @throws IOException If the sink fails.
+     */
+    private void extractAnchorParagraphs(org.jsoup.nodes.Document chapterDocument, String anchor, ParagraphSink sink) throws IOException{
+        //Find the element using our anchor as an id
+        org.jsoup.nodes.Element anchorElement = chapterDocument.getElementById(anchor);
+
+        if (anchorElement == null) {
+            //There was an anchor, but couldn't find it in our documenet
+            sink.accept("Anchor not found: " + anchor);
+            return;
+        }
 
-            for(int i = 0; i < manifestItems.getLength(); i++){
-                Element item = (Element) manifestItems.item(i);
-                String id = item.getAttribute("id");
-                String href = item.getAttribute("href");
-                String mediaType = item.getAttribute("media-type");
+        log.info("Found anchor element: {}", anchorElement.tagName());
 
-                //some books don't seem to have this attribute (hp)
-                String properties = item.getAttribute("properties");
+        //If it's a div (container element), process all its children
+        if (anchorElement.tagName().equals("div")) {
+            //Look for a heading, if present.
+            org.jsoup.nodes.Element heading = anchorElement.select("h1, h2, h3, h4, h5, h6").first();
+            if (heading != null) {
+                emit(heading.text(), sink);
+            }
 
+            //Add all paragraphs
+            for (org.jsoup.nodes.Element p : anchorElement.select("p")) {
+                emit(p.text(), sink);
+            }
+        } else {
+            //Add the anchor element itself
+            emit(anchorElement.text(), sink);
+
+            //Add all following sibling elements until the next anchor or the end
+            org.jsoup.nodes.Element currentElement = anchorElement;
+            while ((currentElement = currentElement.nextElementSibling()) != null) {
+                //Stop if we hit another anchor element
+                if (currentElement.hasAttr("id")) {
+                    break;
+                }
 
-                if(mediaType.equals("image/jpeg") || mediaType.equals("image/png")){
-                    String coverImagePath;
-                    if(id.toLowerCase().contains("cover") || properties.toLowerCase().contains("cover-image") || href.toLowerCase().contains("cover")){
-                        if(Path.of(opfData.opfFilePath()).getParent() != null){
-                            coverImagePath = Path.of(opfData.opfFilePath()).getParent().resolve(href).normalize().toString().replace("\\", "/");
-                        }
-                        else{
-                            coverImagePath = Path.of(href).normalize().toString().replace("\\", "/");
-                        }
+                //Paragraphs and headings
+                if (currentElement.tagName().equals("p") || currentElement.tagName().matches("h[1-6]")) {
+                    emit(currentElement.text(), sink);
+                }
+            }
+        }
+    }
 
+    /**
+     * Extracts the paragraphs of a whole content file: its headings followed by its paragraphs.
+     * Only the body is read, the document itself is left untouched so other anchors can still be extracted from it.
+     *
+     * @param chapterDocument The parsed content file.
+     * @param sink Receives each paragraph in reading order.
+     * @throws IOException If the sink fails.
+     */
+    private void extractDocumentParagraphs(org.jsoup.nodes.Document chapterDocument, ParagraphSink sink) throws IOException{
+        log.info("No anchor provided");
+        org.jsoup.nodes.Element body = chapterDocument.body();
 
-                        //log.info("Found cover image path at: {}", coverImagePath);
+        //add any headings
+        for (org.jsoup.nodes.Element hElement : body.select("h1, h2, h3, h4, h5, h6")) {
+            emit(hElement.text(), sink);
+        }
 
-                        ZipEntry coverImageEntry = zipFile.getEntry(coverImagePath);
+        //add all paragraphs
+        for (org.jsoup.nodes.Element pElement : body.select("p")) {
+            emit(pElement.text(), sink);
+        }
+    }
 
-                        //log.info("Cover image entry: {}", coverImageEntry.getName());
-                        if(coverImageEntry != null) {
-                            Map<String, Object> response = new HashMap<>();
-                            try(InputStream coverImageStream = zipFile.getInputStream(coverImageEntry)){
-                                response.put("coverImage", coverImageStream.readAllBytes());
-                                response.put("mediaType", mediaType);
-                                return Optional.of(response);
-                            }
-                            catch (IOException e){
-                                log.error("Error reading cover image stream for path: {}", coverImagePath, e);
-                                throw new EpubProcessingException("Error reading cover image: " + coverImagePath + "\n" + e.getMessage());
-                            }
-                        }
-                        else{
-                            log.warn("Cover image entry not found for path: {} despite being listed in OPF document", coverImagePath);
-                            throw new EpubProcessingException("Cover image not found for path: " + coverImagePath);
-                        }
+    private static void emit(String text, ParagraphSink sink) throws IOException{
+        String trimmed = text.trim();
+        if (!trimmed.isEmpty()) {
+            sink.accept(trimmed);
+        }
+    }
 
+    /**
+     * Finds the cover image in the OPF manifest: the first JPEG/PNG item whose id, properties
+     * or href identifies it as the cover.
+     *
+     * @param archive The open EPUB archive, used to verify the cover entry exists.
+     * @param manifest The parsed OPF manifest.
+     * @return The cover image entry, or null if the EPUB has no cover image.
+     * @throws EpubProcessingException If the manifest lists a cover image that is missing from the archive.
+     */
+    private EpubCover findCoverImage(EpubArchive archive, Map<String, ManifestItem> manifest) throws EpubProcessingException{
+        for(ManifestItem item : manifest.values()){
+            String mediaType = item.mediaType();
+
+            if(mediaType.equals("image/jpeg") || mediaType.equals("image/png")){
+                //some books don't seem to have the properties attribute (hp)
+                if(item.id().toLowerCase().contains("cover") || item.properties().toLowerCase().contains("cover-image") || item.path().toLowerCase().contains("cover")){
+                    if(!archive.hasEntry(item.path())){
+                        log.warn("Cover image entry not found for path: {} despite being listed in OPF document", item.path());
+                        throw new EpubProcessingException("Cover image not found for path: " + item.path());
                     }
+                    return new EpubCover(item.path(), mediaType);
                 }
             }
+        }
 
-            log.warn("No cover image found in epub: {}", epubFile.getName());
-
-            return Optional.empty();
+        log.warn("No cover image found in epub: {}", archive.getName());
+        return null;
+    }
 
+    /**
+     * Streams a single entry of the EPUB archive straight to a file on disk, without buffering it in memory.
+     * Entries stored without compression are written straight from the archive reader's buffer when it exposes one.
+     *
+     * @param archive The open EPUB archive.
+     * @param entryPath The path of the entry within the archive.
+     * @param target The file to write the entry to.
+     * @throws EpubProcessingException If the entry does not exist or cannot be read.
+     * @throws IOException If an error occurs writing the target file.
+     */
+    public void copyEntry(EpubArchive archive, String entryPath, Path target) throws EpubProcessingException, IOException{
+        if(!archive.hasEntry(entryPath)){
+            throw new EpubProcessingException("Entry not found at: " + entryPath);
+        }
+        try{
+            Optional<ByteBuffer> storedContent = archive.getStoredContent(entryPath);
+            if(storedContent.isPresent()){
+                writeBuffer(storedContent.get(), target);
+            }
+            else{
+                try(InputStream entryStream = archive.getInputStream(entryPath)){
+                    Files.copy(entryStream, target);
+                }
+            }
         }
         catch (ZipException e){
-            log.error("Invalid Zip/Epub file: {}", epubFile.getName(), e);
-            throw new EpubProcessingException("Invalid Zip/Epub file: " + epubFile.getName() + "\n" + e.getMessage());
+            log.error("Error reading entry stream for path: {}", entryPath, e);
+            throw new EpubProcessingException("Error reading entry: " + entryPath + "\n" + e.getMessage());
         }
     }
 
-
     /**
-     * Parses an XML InputStream into a W3C Document object.
-     *
-     * @param input the InputStream representing the XML to be parsed
-     * @return The parsed Document object.
-     * @throws EpubProcessingException if parsing fails.
+     * Writes a buffer to a new file, failing like Files.copy if the file already exists.
      */
-    private Document parseXML(InputStream input) throws EpubProcessingException {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        try {
-            return factory.newDocumentBuilder().parse(input);
-        } catch (Exception e) {
-            log.error("Error parsing XML", e);
-            throw new EpubProcessingException("Failed to parse XML: " + e.getMessage());
+    private static void writeBuffer(ByteBuffer content, Path target) throws IOException{
+        try(FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)){
+            while(content.hasRemaining()){
+                channel.write(content);
+            }
         }
     }
 
+
     /**
-     * Locates and parses the OPF file within the EPUB archive.
+     * Locates and reads the OPF file within the EPUB archive.
      * Reads META-INF/container.xml to find the path to the OPF file.
      *
-     * @param zipFile the zip file representing the EPUB
-     * @return an OpfData record containing the parsed OPF Document, its path, and its parent directory path.
+     * @param archive the open EPUB archive
+     * @return an OpfData record containing the OPF metadata, manifest, path, and parent directory path.
      * @throws EpubProcessingException If container.xml or the OPF file is missing or invalid.
-     * @throws IOException If an error occurs reading from the zip file.
+     * @throws IOException If an error occurs reading from the archive.
      */
-    private OpfData getOpfDocument(ZipFile zipFile) throws EpubProcessingException, IOException {
-        ZipEntry containerEntry = zipFile.getEntry("META-INF/container.xml");
-        if (containerEntry == null) {
+    private OpfData getOpfData(EpubArchive archive) throws EpubProcessingException, IOException {
+        if (!archive.hasEntry("META-INF/container.xml")) {
             throw new EpubProcessingException("Container.xml not found at: META-INF/container.xml");
         }
 
-        Document containerDocument;
-        try(InputStream containerStream = zipFile.getInputStream(containerEntry)){
-            containerDocument = parseXML(containerStream);
+        String opfFilePath;
+        try(InputStream containerStream = archive.getInputStream("META-INF/container.xml")){
+            opfFilePath = epubXmlParser.readRootFilePath(containerStream);
         }
 
-
-        NodeList containerRootFiles = containerDocument.getElementsByTagName("rootfile");
-        if(containerRootFiles.getLength() == 0 || containerRootFiles.item(0).getAttributes().getNamedItem("full-path") == null){
+        if(opfFilePath == null){
             throw new EpubProcessingException("Invalid container.xml: No rootfile found or full-path attribute not found");
         }
 
-        String opfFilePath = containerRootFiles.item(0).getAttributes().getNamedItem("full-path").getTextContent();
-
         if(opfFilePath.isBlank()){
             throw new EpubProcessingException("OPF file path is blank in container.xml");
         }
 
-        ZipEntry opfEntry = zipFile.getEntry(opfFilePath);
-        if(opfEntry == null){
+        if(!archive.hasEntry(opfFilePath)){
             throw new EpubProcessingException("OPF file not found at: " + opfFilePath);
         }
-        Document opfDocument;
-        try(InputStream opfStream = zipFile.getInputStream(opfEntry)){
-            opfDocument = parseXML(opfStream);
+        try(InputStream opfStream = archive.getInputStream(opfFilePath)){
+            return epubXmlParser.readOpf(opfStream, opfFilePath);
         }
 
-        String opfParentDir = Path.of(opfFilePath).getParent() != null ? Path.of(opfFilePath).getParent().toString() : "";
-
-        return new OpfData(opfDocument, opfFilePath, opfParentDir);
-
     }
 
     /**
      * Locates and parses the TOC (Table of Contents) file (typically NCX) referenced within the OPF manifest.
      *
-     * @param zipFile our epub file represented as java ZipFile
-     * @param opfDocument the OPF document containing the reference to the TOC file.
-     * @param opfFilePath the file path of the OPF document within the archive (for resolving relative paths).
-     * @return The parsed TOC Document object.
+     * @param archive the open EPUB archive
+     * @param manifest the parsed OPF manifest containing the reference to the TOC file.
+     * @return The TOC's navPoints in document order.
      * @throws EpubProcessingException If the TOC reference is not found or the TOC file is missing/invalid.
-     * @throws IOException If an error occurs reading from the zip file.
+     * @throws IOException If an error occurs reading from the archive.
      */
-    private Document getToc(ZipFile zipFile, Document opfDocument, String opfFilePath) throws EpubProcessingException, IOException{
-
-        NodeList manifestItems = opfDocument.getElementsByTagName("item");
-        String tocHref = "";
-        for( int i = 0; i < manifestItems.getLength(); i++){
-            String mediaType = manifestItems.item(i).getAttributes().getNamedItem("media-type").getTextContent();
-            if(mediaType.equals("application/x-dtbncx+xml")){
-                tocHref = manifestItems.item(i).getAttributes().getNamedItem("href").getTextContent();
+    private List<NavPoint> getToc(EpubArchive archive, Map<String, ManifestItem> manifest) throws EpubProcessingException, IOException{
+        String tocPath = "";
+        for(ManifestItem item : manifest.values()){
+            if(item.mediaType().equals("application/x-dtbncx+xml")){
+                tocPath = item.path();
                 break;
             }
         }
 
-        if(tocHref.isBlank()){
+        if(tocPath.isBlank()){
             throw new EpubProcessingException("TOC entry reference not found in OPF document.");
         }
-        String tocPath;
-        Path opfPath =  Path.of(opfFilePath);
-        if(Path.of(opfFilePath).getParent() != null){
-            tocPath = opfPath.getParent().resolve(tocHref).normalize().toString();
-        }
-        else{
-            tocPath = Path.of(tocHref).normalize().toString();
-        }
-
-        tocPath = tocPath.replace("\\", "/");
 
-
-        ZipEntry tocEntry = zipFile.getEntry(tocPath);
-
-        if(tocEntry == null){
+        if(!archive.hasEntry(tocPath)){
             log.error("TOC not found at: {}", tocPath);
             throw new EpubProcessingException("TOC not found at: " + tocPath);
         }
 
-        try(InputStream tocStream = zipFile.getInputStream(tocEntry)){
-            return parseXML(tocStream);
-        }
-
-    }
-
-    /**
-     * Helper method to extract the EpubToc object from the metadata map returned by parseMeta.
-     *
-     * @param meta The metadata map.
-     * @return The EpubToc object, or null if not found.
-     */
-    public EpubToc getToc(Map<String, Object> meta) {
-        Object tocObj = meta.get("toc");
-        if(tocObj instanceof EpubToc){
-            return (EpubToc) tocObj;
-        }
-        else{
-            log.warn("Value for 'toc' is not an EpubToc object.");
-            return null;
-        }
-    }
-
-    /**
-     * Helper method to extract the title string from the metadata map returned by parseMeta.
-     *
-     * @param meta The metadata map.
-     * @return The title String, or null if not found.
-     */
-    public String getTitle(Map<String, Object> meta) {
-        Object titleObj = meta.get("title");
-        if(titleObj instanceof String){
-            return (String) titleObj;
-        }
-        else{
-            log.warn("Value for 'title' is not a String.");
-            return null;
+        try(InputStream tocStream = archive.getInputStream(tocPath)){
+            return epubXmlParser.readNavPoints(tocStream);
         }
-    }
 
-    /**
-     * Helper method to extract the author string from the metadata map returned by parseMeta.
-     *
-     * @param meta The metadata map.
-     * @return The author String, or null if not found.
-     */
-    public String getAuthor(Map<String, Object> meta){
-        Object authorObj = meta.get("author");
-        if(authorObj instanceof String){
-            return (String) authorObj;
-        }
-        else{
-            log.warn("Value for 'author' is not a String.");
-            return null;
-        }
     }
 
 }
@@ -0,0 +1,75 @@
+package com.example.springreader.utility;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Checks the first bytes of an upload against the signature every EPUB starts with, so invalid uploads can be
+ * rejected before the rest of them is read.
+ *
+ * The OCF container spec requires an EPUB to be a ZIP archive whose first entry is named "mimetype" and holds
+ * "application/epub+zip", stored uncompressed. The entry's content is only checked when it is stored; some
+ * EPUBs in the wild compress it and are otherwise readable.
+ */
+public final class EpubSignature {
+
+    /**
+     * The number of leading bytes to check. Enough for the mimetype entry's header and content, unless its
+     * extra field is unusually long, in which case its content is not checked.
+     */
+    public static final int PREFIX_BYTES = 256;
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50; //"PK\3\4"
+    private static final int LOCAL_FILE_HEADER_BYTES = 30;
+    private static final int METHOD_STORED = 0;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+    private static final byte[] MIMETYPE_NAME = "mimetype".getBytes(StandardCharsets.US_ASCII);
+    private static final String EPUB_MEDIA_TYPE = "application/epub+zip";
+
+    private EpubSignature() {
+    }
+
+    /**
+     * @param prefix a buffer holding the first bytes of an upload
+     * @param length the number of bytes in the buffer, fewer than PREFIX_BYTES only if the upload is that short
+     * @throws IllegalArgumentException if the bytes are not the start of an EPUB
+     */
+    public static void verify(byte[] prefix, int length) {
+        ByteBuffer header = ByteBuffer.wrap(prefix, 0, length).order(ByteOrder.LITTLE_ENDIAN);
+        if (length < LOCAL_FILE_HEADER_BYTES || header.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+            throw new IllegalArgumentException("Invalid file. The file is not an epub (ZIP) archive");
+        }
+
+        int flags = Short.toUnsignedInt(header.getShort(6));
+        int method = Short.toUnsignedInt(header.getShort(8));
+        long size = Integer.toUnsignedLong(header.getInt(18));
+        int nameLength = Short.toUnsignedInt(header.getShort(26));
+        int extraLength = Short.toUnsignedInt(header.getShort(28));
+
+        if (nameLength != MIMETYPE_NAME.length || !regionEquals(prefix, length, LOCAL_FILE_HEADER_BYTES, MIMETYPE_NAME)) {
+            throw new IllegalArgumentException("Invalid file. The epub does not start with its mimetype entry");
+        }
+
+        int contentOffset = LOCAL_FILE_HEADER_BYTES + nameLength + extraLength;
+        boolean sizeKnown = (flags & FLAG_DATA_DESCRIPTOR) == 0;
+        if (method == METHOD_STORED && sizeKnown && contentOffset + size <= length) {
+            String mediaType = new String(prefix, contentOffset, (int) size, StandardCharsets.US_ASCII).strip();
+            if (!mediaType.equals(EPUB_MEDIA_TYPE)) {
+                throw new IllegalArgumentException("Invalid file. The epub's mimetype is not " + EPUB_MEDIA_TYPE);
+            }
+        }
+    }
+
+    private static boolean regionEquals(byte[] bytes, int length, int offset, byte[] expected) {
+        if (offset + expected.length > length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
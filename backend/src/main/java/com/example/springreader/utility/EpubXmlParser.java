@@ -0,0 +1,234 @@
+package com.example.springreader.utility;
+
+import com.example.springreader.exception.EpubProcessingException;
+import com.example.springreader.model.ManifestItem;
+import com.example.springreader.model.NavPoint;
+import com.example.springreader.model.OpfData;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming (StAX) reader for the XML files that describe an EPUB: container.xml, the OPF package and the NCX TOC.
+ * Each file is read in a single forward pass that only keeps the parts we use, instead of building a DOM tree.
+ *
+ * The XMLInputFactory is created once and shared: factories are thread safe once configured, so every call
+ * only pays for a new stream reader. DTD processing is disabled, which also stops the parser from trying to
+ * fetch the external DTD declared by most NCX files.
+ */
+@Component
+public class EpubXmlParser {
+
+    private static final String DC_NAMESPACE = "http://purl.org/dc/elements/1.1/";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createFactory();
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * Reads the path of the OPF package from META-INF/container.xml.
+     *
+     * @param input the container.xml stream
+     * @return the full-path of the first rootfile, or null if there is no rootfile with a full-path attribute
+     * @throws EpubProcessingException if the XML is malformed
+     */
+    public String readRootFilePath(InputStream input) throws EpubProcessingException {
+        XMLStreamReader reader = open(input);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("rootfile")) {
+                    return reader.getAttributeValue(null, "full-path");
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new EpubProcessingException("Failed to parse XML: " + e.getMessage());
+        } finally {
+            close(reader);
+        }
+    }
+
+    /**
+     * Reads the metadata (first dc:title and dc:creator) and the manifest of an OPF package.
+     * Reading stops at the end of the manifest; the spine and guide are never parsed.
+     *
+     * @param input the OPF stream
+     * @param opfFilePath the path of the OPF file within the archive
+     * @return the OPF data, with manifest hrefs resolved against the OPF directory
+     * @throws EpubProcessingException if the XML is malformed
+     */
+    public OpfData readOpf(InputStream input, String opfFilePath) throws EpubProcessingException {
+        Path opfParentPath = Path.of(opfFilePath).getParent();
+        String opfParent = opfParentPath != null ? opfParentPath.toString() : "";
+
+        String title = null;
+        String author = null;
+        Map<String, ManifestItem> manifest = new LinkedHashMap<>();
+
+        XMLStreamReader reader = open(input);
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("manifest")) {
+                    break;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                String name = reader.getLocalName();
+                if (title == null && name.equals("title") && isDublinCore(reader)) {
+                    title = reader.getElementText();
+                } else if (author == null && name.equals("creator") && isDublinCore(reader)) {
+                    author = reader.getElementText();
+                } else if (name.equals("item")) {
+                    String id = attribute(reader, "id");
+                    String href = attribute(reader, "href");
+                    String path = Path.of(opfParent).resolve(href).normalize().toString().replace("\\", "/");
+                    manifest.put(id, new ManifestItem(id, path, attribute(reader, "media-type"), attribute(reader, "properties")));
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new EpubProcessingException("Failed to parse XML: " + e.getMessage());
+        } finally {
+            close(reader);
+        }
+
+        return new OpfData(opfFilePath, opfParent, title, author, manifest);
+    }
+
+    /**
+     * Reads every navPoint of an NCX file in document order, keeping its nesting depth and parent.
+     * A navPoint's label and src come from the first navLabel and content element found inside it,
+     * matching how a DOM lookup of its descendants would resolve them.
+     *
+     * @param input the NCX stream
+     * @return the navPoints in document order
+     * @throws EpubProcessingException if the XML is malformed
+     */
+    public List<NavPoint> readNavPoints(InputStream input) throws EpubProcessingException {
+        List<NavPointBuilder> navPoints = new ArrayList<>();
+        Deque<NavPointBuilder> open = new ArrayDeque<>();
+        StringBuilder label = null;
+
+        XMLStreamReader reader = open(input);
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "navPoint" -> {
+                            NavPointBuilder parent = open.peek();
+                            NavPointBuilder navPoint = new NavPointBuilder(attribute(reader, "id"), open.size(),
+                                    parent != null ? parent.index : -1, navPoints.size());
+                            navPoints.add(navPoint);
+                            open.push(navPoint);
+                        }
+                        case "navLabel" -> {
+                            if (label == null) {
+                                label = new StringBuilder();
+                            }
+                        }
+                        case "content" -> {
+                            String src = reader.getAttributeValue(null, "src");
+                            for (NavPointBuilder navPoint : open) {
+                                if (!navPoint.hasContent) {
+                                    navPoint.hasContent = true;
+                                    navPoint.src = src;
+                                }
+                            }
+                        }
+                        default -> { }
+                    }
+                } else if ((event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) && label != null) {
+                    label.append(reader.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (reader.getLocalName().equals("navPoint")) {
+                        open.pop();
+                    } else if (reader.getLocalName().equals("navLabel") && label != null) {
+                        String text = label.toString();
+                        for (NavPointBuilder navPoint : open) {
+                            if (navPoint.label == null) {
+                                navPoint.label = text;
+                            }
+                        }
+                        label = null;
+                    }
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new EpubProcessingException("Failed to parse XML: " + e.getMessage());
+        } finally {
+            close(reader);
+        }
+
+        List<NavPoint> result = new ArrayList<>(navPoints.size());
+        for (NavPointBuilder navPoint : navPoints) {
+            result.add(new NavPoint(navPoint.id, navPoint.label, navPoint.src, navPoint.depth, navPoint.parentIndex));
+        }
+        return result;
+    }
+
+    private static XMLStreamReader open(InputStream input) throws EpubProcessingException {
+        try {
+            return XML_INPUT_FACTORY.createXMLStreamReader(input);
+        } catch (XMLStreamException e) {
+            throw new EpubProcessingException("Failed to parse XML: " + e.getMessage());
+        }
+    }
+
+    private static void close(XMLStreamReader reader) {
+        try {
+            reader.close();
+        } catch (XMLStreamException ignored) {
+            //Closing the reader does not close the underlying stream, nothing to clean up
+        }
+    }
+
+    private static boolean isDublinCore(XMLStreamReader reader) {
+        return DC_NAMESPACE.equals(reader.getNamespaceURI()) || "dc".equals(reader.getPrefix());
+    }
+
+    /**
+     * @return the attribute value, or an empty string if absent (matching DOM's getAttribute)
+     */
+    private static String attribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value != null ? value : "";
+    }
+
+    private static final class NavPointBuilder {
+        private final String id;
+        private final int depth;
+        private final int parentIndex;
+        private final int index;
+        private String label;
+        private String src;
+        private boolean hasContent = false;
+
+        private NavPointBuilder(String id, int depth, int parentIndex, int index) {
+            this.id = id;
+            this.depth = depth;
+            this.parentIndex = parentIndex;
+            this.index = index;
+        }
+    }
+}
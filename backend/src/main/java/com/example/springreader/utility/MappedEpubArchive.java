@@ -0,0 +1,320 @@
+package com.example.springreader.utility;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * EpubArchive that memory-maps the whole archive and reads entries straight from the mapping.
+ *
+ * The central directory is indexed once when the archive is opened. Stored (uncompressed) entries are handed out
+ * as read-only views of the mapping without any copy, and deflated entries are inflated from the mapping on the
+ * fly, so no entry is ever read through an intermediate buffer. ZIP64 archives and archives larger than 2GB are
+ * rejected; EPUBs are far below either limit.
+ *
+ * The mapping is released by the garbage collector once the archive and every buffer or stream handed out
+ * from it are unreachable, not when close() is called.
+ */
+public final class MappedEpubArchive implements EpubArchive {
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int LOCAL_HEADER_BYTES = 30;
+    private static final int CENTRAL_HEADER_BYTES = 46;
+    private static final int END_BYTES = 22;
+    private static final int MAX_COMMENT_BYTES = 0xFFFF;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private final String name;
+    private final Map<String, Entry> entries;
+    private volatile ByteBuffer mapping;
+
+    private MappedEpubArchive(String name, ByteBuffer mapping, Map<String, Entry> entries) {
+        this.name = name;
+        this.mapping = mapping;
+        this.entries = entries;
+    }
+
+    /**
+     * Maps an archive and indexes its central directory.
+     *
+     * @param path path to the archive
+     * @return the open archive
+     * @throws ZipException if the file is not a valid zip archive, or is a ZIP64 archive
+     * @throws IOException if the file cannot be read
+     */
+    public static MappedEpubArchive open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ZipException("Archive too large to map: " + path);
+            }
+            //The mapping stays valid after the channel is closed
+            MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapping.order(ByteOrder.LITTLE_ENDIAN);
+            return new MappedEpubArchive(path.toString(), mapping, readCentralDirectory(mapping));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int size() {
+        mapping();
+        return entries.size();
+    }
+
+    @Override
+    public boolean hasEntry(String entryPath) {
+        mapping();
+        return entries.containsKey(entryPath);
+    }
+
+    @Override
+    public InputStream getInputStream(String entryPath) throws IOException {
+        Entry entry = entry(entryPath);
+        ByteBuffer data = data(entry, entryPath);
+        return entry.method() == STORED ? new BufferInputStream(data) : new InflatingInputStream(data, entry.size());
+    }
+
+    @Override
+    public Optional<ByteBuffer> getStoredContent(String entryPath) throws IOException {
+        Entry entry = entry(entryPath);
+        return entry.method() == STORED ? Optional.of(data(entry, entryPath)) : Optional.empty();
+    }
+
+    @Override
+    public void close() {
+        mapping = null;
+    }
+
+    private ByteBuffer mapping() {
+        ByteBuffer current = mapping;
+        if (current == null) {
+            throw new IllegalStateException("zip file closed");
+        }
+        return current;
+    }
+
+    private Entry entry(String entryPath) throws NoSuchFileException {
+        mapping();
+        Entry entry = entries.get(entryPath);
+        if (entry == null) {
+            throw new NoSuchFileException(entryPath, null, "Entry not found in " + name);
+        }
+        return entry;
+    }
+
+    /**
+     * Locates the entry's data through its local header and returns a read-only view of it.
+     */
+    private ByteBuffer data(Entry entry, String entryPath) throws ZipException {
+        if (entry.method() != STORED && entry.method() != DEFLATED) {
+            throw new ZipException("Unsupported compression method " + entry.method() + " for entry: " + entryPath);
+        }
+        if (entry.encrypted()) {
+            throw new ZipException("Encrypted entry: " + entryPath);
+        }
+
+        ByteBuffer mapping = mapping();
+        try {
+            int header = entry.localHeaderOffset();
+            if (mapping.getInt(header) != LOCAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid local header for entry: " + entryPath);
+            }
+            int dataOffset = header + LOCAL_HEADER_BYTES + unsignedShort(mapping, header + 26) + unsignedShort(mapping, header + 28);
+            if ((long) dataOffset + entry.compressedSize() > mapping.limit()) {
+                throw new ZipException("Entry data out of bounds: " + entryPath);
+            }
+            return mapping.slice(dataOffset, (int) entry.compressedSize()).asReadOnlyBuffer();
+        } catch (IndexOutOfBoundsException e) {
+            throw new ZipException("Invalid local header for entry: " + entryPath);
+        }
+    }
+
+    private static Map<String, Entry> readCentralDirectory(ByteBuffer mapping) throws ZipException {
+        try {
+            int end = findEndOfCentralDirectory(mapping);
+            int entryCount = unsignedShort(mapping, end + 10);
+            long directoryOffset = unsignedInt(mapping, end + 16);
+            if (entryCount == 0xFFFF || directoryOffset == 0xFFFFFFFFL) {
+                throw new ZipException("ZIP64 archives are not supported");
+            }
+
+            Map<String, Entry> entries = new HashMap<>(entryCount * 2);
+            int position = (int) directoryOffset;
+            for (int i = 0; i < entryCount; i++) {
+                if (mapping.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                    throw new ZipException("invalid CEN header (bad signature)");
+                }
+                int flags = unsignedShort(mapping, position + 8);
+                int method = unsignedShort(mapping, position + 10);
+                long compressedSize = unsignedInt(mapping, position + 20);
+                long size = unsignedInt(mapping, position + 24);
+                int nameLength = unsignedShort(mapping, position + 28);
+                int extraLength = unsignedShort(mapping, position + 30);
+                int commentLength = unsignedShort(mapping, position + 32);
+                long localHeaderOffset = unsignedInt(mapping, position + 42);
+                if (compressedSize == 0xFFFFFFFFL || size == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+                    throw new ZipException("ZIP64 archives are not supported");
+                }
+
+                byte[] nameBytes = new byte[nameLength];
+                mapping.get(position + CENTRAL_HEADER_BYTES, nameBytes);
+                entries.putIfAbsent(new String(nameBytes, StandardCharsets.UTF_8),
+                        new Entry(method, (flags & 1) != 0, compressedSize, size, (int) localHeaderOffset));
+
+                position += CENTRAL_HEADER_BYTES + nameLength + extraLength + commentLength;
+            }
+            return entries;
+        } catch (IndexOutOfBoundsException e) {
+            throw new ZipException("invalid CEN header (out of bounds)");
+        }
+    }
+
+    /**
+     * Scans backwards from the end of the archive for the end of central directory record,
+     * which is followed only by an optional archive comment of at most 64KB.
+     */
+    private static int findEndOfCentralDirectory(ByteBuffer mapping) throws ZipException {
+        int lowest = Math.max(0, mapping.limit() - END_BYTES - MAX_COMMENT_BYTES);
+        for (int position = mapping.limit() - END_BYTES; position >= lowest; position--) {
+            if (mapping.getInt(position) == END_SIGNATURE) {
+                return position;
+            }
+        }
+        throw new ZipException("zip END header not found");
+    }
+
+    private static int unsignedShort(ByteBuffer buffer, int position) {
+        return buffer.getShort(position) & 0xFFFF;
+    }
+
+    private static long unsignedInt(ByteBuffer buffer, int position) {
+        return buffer.getInt(position) & 0xFFFFFFFFL;
+    }
+
+    private record Entry(int method, boolean encrypted, long compressedSize, long size, int localHeaderOffset) {}
+
+    /**
+     * Reads a stored entry directly from its view of the mapping.
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer data;
+
+        private BufferInputStream(ByteBuffer data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            return data.hasRemaining() ? data.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!data.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, data.remaining());
+            data.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, data.remaining()));
+            data.position(data.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return data.remaining();
+        }
+    }
+
+    /**
+     * Inflates a deflated entry, feeding the compressed view of the mapping to the Inflater as its input.
+     */
+    private static final class InflatingInputStream extends InputStream {
+        private final Inflater inflater = new Inflater(true);
+        private final long size;
+        private boolean closed = false;
+
+        private InflatingInputStream(ByteBuffer compressed, long size) {
+            this.inflater.setInput(compressed);
+            this.size = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (length == 0) {
+                return 0;
+            }
+            try {
+                while (true) {
+                    int inflated = inflater.inflate(bytes, offset, length);
+                    if (inflated > 0) {
+                        return inflated;
+                    }
+                    if (inflater.finished()) {
+                        return -1;
+                    }
+                    if (inflater.needsInput()) {
+                        throw new EOFException("Unexpected end of ZLIB input stream");
+                    }
+                    if (inflater.needsDictionary()) {
+                        throw new ZipException("Deflated entry requires a preset dictionary");
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+
+        @Override
+        public int available() {
+            return closed || inflater.finished() ? 0 : (int) Math.min(Integer.MAX_VALUE, size - inflater.getBytesWritten());
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                inflater.end();
+            }
+        }
+    }
+}
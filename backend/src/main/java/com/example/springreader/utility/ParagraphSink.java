@@ -0,0 +1,18 @@
+package com.example.springreader.utility;
+
+import java.io.IOException;
+
+/**
+ * Receives the paragraphs of a chapter one at a time, in reading order, as they are extracted.
+ * Lets chapter text be written straight to its destination (a response, a buffer) without first
+ * assembling the whole chapter in memory.
+ */
+@FunctionalInterface
+public interface ParagraphSink {
+
+    /**
+     * @param paragraph the text of the next non-empty paragraph or heading
+     * @throws IOException if the paragraph cannot be written
+     */
+    void accept(String paragraph) throws IOException;
+}
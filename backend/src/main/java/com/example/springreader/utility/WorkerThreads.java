@@ -0,0 +1,26 @@
+package com.example.springreader.utility;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread factories for the application's own worker pools, which follow spring.threads.virtual.enabled
+ * like the threads Spring Boot creates for requests, @Async methods and scheduling.
+ *
+ * Pools keep their size when their threads are virtual: the size caps how much work runs at once,
+ * the virtual threads only stop that work from holding a platform thread while it blocks on files or the database.
+ */
+public final class WorkerThreads {
+
+    private WorkerThreads() {
+    }
+
+    /**
+     * @param namePrefix the prefix of the threads' names, which are numbered from 1
+     * @param virtual true to create virtual threads, false for platform threads
+     * @return a factory creating named threads of the requested kind
+     */
+    public static ThreadFactory factory(String namePrefix, boolean virtual) {
+        Thread.Builder builder = virtual ? Thread.ofVirtual() : Thread.ofPlatform();
+        return builder.name(namePrefix, 1).factory();
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.springreader.utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * EpubArchive backed by java.util.zip.ZipFile.
+ */
+public final class ZipFileArchive implements EpubArchive {
+
+    private final ZipFile zipFile;
+
+    private ZipFileArchive(ZipFile zipFile) {
+        this.zipFile = zipFile;
+    }
+
+    /**
+     * @param path path to the archive
+     * @return the open archive
+     * @throws java.util.zip.ZipException if the file is not a valid zip archive
+     * @throws IOException if the file cannot be read
+     */
+    public static ZipFileArchive open(Path path) throws IOException {
+        return new ZipFileArchive(new ZipFile(path.toFile()));
+    }
+
+    @Override
+    public String getName() {
+        return zipFile.getName();
+    }
+
+    @Override
+    public int size() {
+        return zipFile.size();
+    }
+
+    @Override
+    public boolean hasEntry(String entryPath) {
+        return zipFile.getEntry(entryPath) != null;
+    }
+
+    @Override
+    public InputStream getInputStream(String entryPath) throws IOException {
+        ZipEntry entry = zipFile.getEntry(entryPath);
+        if (entry == null) {
+            throw new NoSuchFileException(entryPath, null, "Entry not found in " + zipFile.getName());
+        }
+        return zipFile.getInputStream(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+}
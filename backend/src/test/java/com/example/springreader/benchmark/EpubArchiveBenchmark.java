@@ -0,0 +1,113 @@
+package com.example.springreader.benchmark;
+
+import com.example.springreader.utility.EpubArchive;
+import com.example.springreader.utility.TestEpub;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two EpubArchive readers, java.util.zip.ZipFile and the memory-mapped MappedEpubArchive,
+ * on a TestEpub with deflated chapters of ~20KB and a stored cover image: opening and indexing the archive,
+ * inflating one chapter, and reading the stored image the way EpubParser.copyEntry does.
+ *
+ * Not part of the test suite. Run from the backend directory after mvn test-compile:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     com.example.springreader.benchmark.EpubArchiveBenchmark
+ * </pre>
+ * The gc profiler is enabled so allocation per operation (gc.alloc.rate.norm) is reported next to the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EpubArchiveBenchmark {
+
+    private static final int CHAPTER_COUNT = 300;
+    private static final String COVER = TestEpub.COVER;
+
+    @Param({"ZIP_FILE", "MAPPED"})
+    public EpubArchive.Reader reader;
+
+    private Path epub;
+    private EpubArchive archive;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        epub = Files.createTempFile("archive-benchmark", ".epub");
+        //Random bytes do not compress, like a real JPEG
+        byte[] cover = new byte[512 * 1024];
+        new Random(42).nextBytes(cover);
+        TestEpub.ofChapters(CHAPTER_COUNT, 230).cover(cover).write(epub);
+        archive = reader.open(epub);
+        buffer = new byte[8192];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        archive.close();
+        Files.deleteIfExists(epub);
+    }
+
+    @Benchmark
+    public void openAndIndex(Blackhole blackhole) throws IOException {
+        try (EpubArchive opened = reader.open(epub)) {
+            blackhole.consume(opened.hasEntry("META-INF/container.xml"));
+        }
+    }
+
+    @Benchmark
+    public long readDeflatedChapter() throws IOException {
+        return drain(archive.getInputStream(TestEpub.chapterPath(CHAPTER_COUNT / 2)));
+    }
+
+    @Benchmark
+    public long readStoredImage() throws IOException {
+        Optional<ByteBuffer> storedContent = archive.getStoredContent(COVER);
+        if (storedContent.isPresent()) {
+            ByteBuffer content = storedContent.get();
+            long sum = 0;
+            while (content.remaining() >= Long.BYTES) {
+                sum += content.getLong();
+            }
+            return sum;
+        }
+        return drain(archive.getInputStream(COVER));
+    }
+
+    private long drain(InputStream in) throws IOException {
+        long total = 0;
+        try (in) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += buffer[0] + read;
+            }
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(EpubArchiveBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.springreader.benchmark;
+
+import com.example.springreader.exception.EpubProcessingException;
+import com.example.springreader.utility.EpubArchive;
+import com.example.springreader.utility.EpubArchivePool;
+import com.example.springreader.utility.EpubParser;
+import com.example.springreader.utility.EpubXmlParser;
+import com.example.springreader.utility.TestEpub;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A synthetic comparison of the two ways requests can be run: a pool of platform threads sized like Tomcat's
+ * default (200 threads), and a virtual thread per request, as with spring.threads.virtual.enabled.
+ * It measures the executors, not the application: no controller, service or database is involved.
+ *
+ * Each simulated request sleeps for a fixed time, standing in for the database round trips of a request,
+ * then parses a chapter of a shared TestEpub with EpubParser, the CPU work of a chapter request that misses
+ * the caches and the chapter text store. A batch of concurrent requests is submitted per operation and the
+ * score is per request, so it reads as requests per second. With platform threads throughput is capped at
+ * pool size / sleep time; with virtual threads sleeping requests release their carrier and the cap becomes the CPU.
+ * The sleep makes the result depend on its length, so the numbers only show where each executor's ceiling lies.
+ *
+ * Not part of the test suite. Run from the backend directory after mvn test-compile:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     com.example.springreader.benchmark.RequestThreadingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestThreadingBenchmark {
+
+    private static final int CHAPTER_COUNT = 50;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int BATCH = 2000;
+    private static final long BLOCKING_MILLIS = 10;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    public String threads;
+
+    private ExecutorService executor;
+    private Path epub;
+    private EpubArchive archive;
+    private EpubArchivePool archivePool;
+    private EpubParser epubParser;
+
+    @Setup
+    public void setUp() throws IOException {
+        executor = threads.equals("VIRTUAL")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        epub = Files.createTempFile("threading-benchmark", ".epub");
+        TestEpub.ofChapters(CHAPTER_COUNT, 230).write(epub);
+        archive = EpubArchive.Reader.ZIP_FILE.open(epub);
+        archivePool = new EpubArchivePool(1, EpubArchive.Reader.ZIP_FILE);
+        epubParser = new EpubParser(archivePool, new EpubXmlParser());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        archive.close();
+        archivePool.close();
+        Files.deleteIfExists(epub);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long concurrentRequests() throws Exception {
+        List<Future<Integer>> responses = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            int chapter = i % CHAPTER_COUNT;
+            responses.add(executor.submit(() -> handleRequest(chapter)));
+        }
+        long total = 0;
+        for (Future<Integer> response : responses) {
+            total += response.get();
+        }
+        return total;
+    }
+
+    private int handleRequest(int chapter) throws IOException, EpubProcessingException, InterruptedException {
+        Thread.sleep(BLOCKING_MILLIS);
+        return epubParser.parseContent(archive, TestEpub.chapterPath(chapter), "").length();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RequestThreadingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.springreader.benchmark;
+
+import com.example.springreader.model.NavPoint;
+import com.example.springreader.utility.EpubXmlParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading an NCX table of contents with a DOM tree (how EpubParser used to do it) against the
+ * streaming EpubXmlParser, on synthetic NCX files with a few levels of nesting.
+ *
+ * Not part of the test suite. Run from the backend directory after mvn test-compile:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     com.example.springreader.benchmark.TocParsingBenchmark
+ * </pre>
+ * The gc profiler is enabled so allocation per operation (gc.alloc.rate.norm) is reported next to the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TocParsingBenchmark {
+
+    @Param({"200", "2000"})
+    public int navPointCount;
+
+    private byte[] ncx;
+    private EpubXmlParser epubXmlParser;
+
+    @Setup
+    public void setUp() {
+        ncx = createNcx(navPointCount);
+        epubXmlParser = new EpubXmlParser();
+    }
+
+    @Benchmark
+    public void dom(Blackhole blackhole) throws Exception {
+        Document document = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().parse(new ByteArrayInputStream(ncx));
+        NodeList navPoints = document.getElementsByTagName("navPoint");
+        for (int i = 0; i < navPoints.getLength(); i++) {
+            Element navPoint = (Element) navPoints.item(i);
+            blackhole.consume(navPoint.getElementsByTagName("navLabel").item(0).getTextContent().trim());
+            blackhole.consume(navPoint.getElementsByTagName("content").item(0).getAttributes().getNamedItem("src").getTextContent());
+        }
+    }
+
+    @Benchmark
+    public void stax(Blackhole blackhole) throws Exception {
+        List<NavPoint> navPoints = epubXmlParser.readNavPoints(new ByteArrayInputStream(ncx));
+        for (NavPoint navPoint : navPoints) {
+            blackhole.consume(navPoint.label().trim());
+            blackhole.consume(navPoint.src());
+        }
+    }
+
+    /**
+     * Builds an NCX with the given number of navPoints: top level parts holding chapters holding sections.
+     */
+    static byte[] createNcx(int navPointCount) {
+        StringBuilder ncx = new StringBuilder(navPointCount * 200);
+        ncx.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\" version=\"2005-1\">\n")
+                .append("<head><meta name=\"dtb:uid\" content=\"benchmark\"/></head>\n")
+                .append("<docTitle><text>Benchmark</text></docTitle>\n<navMap>\n");
+
+        int written = 0;
+        int part = 0;
+        while (written < navPointCount) {
+            written += openNavPoint(ncx, "part" + part, "Part " + part, "part" + part + ".xhtml");
+            for (int chapter = 0; chapter < 10 && written < navPointCount; chapter++) {
+                String file = "part" + part + "_ch" + chapter + ".xhtml";
+                written += openNavPoint(ncx, "p" + part + "c" + chapter, "Chapter " + chapter, file);
+                for (int section = 0; section < 4 && written < navPointCount; section++) {
+                    written += openNavPoint(ncx, "p" + part + "c" + chapter + "s" + section,
+                            "Section " + section, file + "#s" + section);
+                    ncx.append("</navPoint>\n");
+                }
+                ncx.append("</navPoint>\n");
+            }
+            ncx.append("</navPoint>\n");
+            part++;
+        }
+
+        ncx.append("</navMap>\n</ncx>\n");
+        return ncx.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int openNavPoint(StringBuilder ncx, String id, String label, String src) {
+        ncx.append("<navPoint id=\"").append(id).append("\" playOrder=\"1\">")
+                .append("<navLabel><text>").append(label).append("</text></navLabel>")
+                .append("<content src=\"").append(src).append("\"/>\n");
+        return 1;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TocParsingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.springreader.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the caching headers built by BookCacheHeaders.
+ */
+class BookCacheHeadersTest {
+
+    private static final String HASH = "0123456789abcdef";
+
+    @Test
+    @DisplayName("of should make the ETag from the content hash and the representation")
+    void of_ETagFormat() {
+        BookCacheHeaders headers = BookCacheHeaders.of(HASH, "chapter-3", null);
+
+        assertEquals(HASH + "-chapter-3", headers.eTag());
+        assertEquals("\"" + HASH + "-chapter-3\"", headers.ok().build().getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("of should only mark responses immutable when v equals the content hash")
+    void of_ImmutableOnlyWhenVersioned() {
+        assertEquals(BookCacheHeaders.IMMUTABLE, BookCacheHeaders.of(HASH, "meta", HASH).cacheControl());
+        assertEquals(BookCacheHeaders.REVALIDATE, BookCacheHeaders.of(HASH, "meta", null).cacheControl());
+        assertEquals(BookCacheHeaders.REVALIDATE, BookCacheHeaders.of(HASH, "meta", "fedcba9876543210").cacheControl());
+        assertEquals(BookCacheHeaders.REVALIDATE, BookCacheHeaders.of(HASH, "meta", "").cacheControl());
+
+        String immutable = BookCacheHeaders.of(HASH, "meta", HASH).ok().build().getHeaders().getCacheControl();
+        assertTrue(immutable.contains("immutable"), immutable);
+        String revalidate = BookCacheHeaders.of(HASH, "meta", null).ok().build().getHeaders().getCacheControl();
+        assertFalse(revalidate.contains("immutable"), revalidate);
+        assertTrue(revalidate.contains("no-cache"), revalidate);
+    }
+
+    @Test
+    @DisplayName("of should not mark unstable representations immutable, even when versioned")
+    void of_UnstableNeverImmutable() {
+        assertEquals(BookCacheHeaders.REVALIDATE, BookCacheHeaders.of(HASH, "cover-medium", HASH, false).cacheControl());
+        assertEquals(BookCacheHeaders.IMMUTABLE, BookCacheHeaders.of(HASH, "cover-medium", HASH, true).cacheControl());
+    }
+
+    @Test
+    @DisplayName("isNotModified should match If-None-Match without writing to the response")
+    void isNotModified_LeavesResponseUntouched() {
+        BookCacheHeaders headers = BookCacheHeaders.of(HASH, "chapter-3", HASH);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/epub/1/chapter/3");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "-chapter-3\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(headers.isNotModified(new ServletWebRequest(request, response)));
+        assertFalse(BookCacheHeaders.of(HASH, "chapter-3-gzip", HASH).isNotModified(new ServletWebRequest(request, response)));
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @DisplayName("notModifiedVaryingBy should send 304 with the validators and Vary")
+    void notModifiedVaryingBy_CarriesVary() {
+        BookCacheHeaders headers = BookCacheHeaders.of(HASH, "chapter-0-gzip", HASH);
+
+        ResponseEntity<Object> response = headers.notModifiedVaryingBy(HttpHeaders.ACCEPT_ENCODING);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"" + HASH + "-chapter-0-gzip\"", response.getHeaders().getETag());
+        assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), response.getHeaders().getVary());
+        assertNotNull(response.getHeaders().getCacheControl());
+        assertNull(response.getBody());
+    }
+}
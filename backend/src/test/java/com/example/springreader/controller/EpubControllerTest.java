@@ -0,0 +1,242 @@
+package com.example.springreader.controller;
+
+import com.example.springreader.controller.exceptionHandler.GlobalExceptionHandler;
+import com.example.springreader.dto.ChapterContentDTO;
+import com.example.springreader.exception.ResourceNotFoundException;
+import com.example.springreader.model.User;
+import com.example.springreader.repository.UserBookRepository;
+import com.example.springreader.service.LibraryService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Unit tests for the EpubController class.
+ * Requests go through MockMvc against a mocked LibraryService, with the user set as the authenticated principal.
+ */
+@ExtendWith(MockitoExtension.class)
+class EpubControllerTest {
+
+    private static final String HASH = "0123456789abcdef";
+
+    @Mock
+    private LibraryService libraryService;
+
+    @Mock
+    private UserBookRepository userBookRepository;
+
+    private MockMvc mockMvc;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        EpubController controller = new EpubController(libraryService, userBookRepository, new ObjectMapper());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+
+        user = new User();
+        user.setId(7L);
+        user.setUsername("reader");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("acceptsGzip should accept gzip by name unless its q value is zero")
+    void acceptsGzip_ByName() {
+        assertTrue(EpubController.acceptsGzip("gzip"));
+        assertTrue(EpubController.acceptsGzip("deflate, GZIP, br"));
+        assertTrue(EpubController.acceptsGzip("gzip;q=0.5"));
+        assertTrue(EpubController.acceptsGzip("gzip ; q=1.0"));
+        assertFalse(EpubController.acceptsGzip("gzip;q=0"));
+        assertFalse(EpubController.acceptsGzip("gzip;q=0.000"));
+        assertFalse(EpubController.acceptsGzip("identity, deflate"));
+        assertFalse(EpubController.acceptsGzip(""));
+        assertFalse(EpubController.acceptsGzip(null));
+    }
+
+    @Test
+    @DisplayName("acceptsGzip should fall back to * when gzip is not named")
+    void acceptsGzip_Wildcard() {
+        assertTrue(EpubController.acceptsGzip("*"));
+        assertTrue(EpubController.acceptsGzip("br, *;q=0.1"));
+        assertFalse(EpubController.acceptsGzip("*;q=0"));
+        //gzip named explicitly wins over the wildcard, whichever comes first
+        assertFalse(EpubController.acceptsGzip("*, gzip;q=0"));
+        assertTrue(EpubController.acceptsGzip("*;q=0, gzip"));
+    }
+
+    @Test
+    @DisplayName("getEpubChapter should answer a matching If-None-Match with 304 before loading the chapter")
+    void getEpubChapter_IfNoneMatch_NotModified() throws Exception {
+        when(libraryService.getBookContentHash(1L, 7L)).thenReturn(Optional.of(HASH));
+
+        mockMvc.perform(get("/api/epub/1/chapter/3").param("v", HASH)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "-chapter-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"" + HASH + "-chapter-3\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(content().bytes(new byte[0]));
+
+        verify(libraryService, never()).getChapterContent(anyLong(), anyLong(), anyInt());
+        verify(libraryService, never()).getCompressedChapterContent(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getEpubChapter should answer a matching If-None-Match on the gzip variant with 304 before reading it")
+    void getEpubChapter_GzipIfNoneMatch_NotModified() throws Exception {
+        when(libraryService.getBookContentHash(1L, 7L)).thenReturn(Optional.of(HASH));
+        when(libraryService.hasCompressedChapterContent(1L, 7L, 3)).thenReturn(true);
+
+        mockMvc.perform(get("/api/epub/1/chapter/3")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "-chapter-3-gzip\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"" + HASH + "-chapter-3-gzip\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+
+        verify(libraryService, never()).getChapterContent(anyLong(), anyLong(), anyInt());
+        verify(libraryService, never()).getCompressedChapterContent(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getEpubChapter should send precompressed chapters to gzip clients under the gzip ETag")
+    void getEpubChapter_Gzip_SendsCompressed() throws Exception {
+        byte[] compressed = {31, -117, 8, 0};
+        when(libraryService.getBookContentHash(1L, 7L)).thenReturn(Optional.of(HASH));
+        when(libraryService.hasCompressedChapterContent(1L, 7L, 3)).thenReturn(true);
+        when(libraryService.getCompressedChapterContent(1L, 7L, 3)).thenReturn(Optional.of(compressed));
+
+        mockMvc.perform(get("/api/epub/1/chapter/3").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"" + HASH + "-chapter-3-gzip\""))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(content().bytes(compressed));
+
+        verify(libraryService, never()).getChapterContent(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getEpubChapter should send a chapter that was not precompressed to gzip clients under the identity ETag")
+    void getEpubChapter_GzipNotPrecompressed_IdentityETag() throws Exception {
+        when(libraryService.getBookContentHash(1L, 7L)).thenReturn(Optional.of(HASH));
+        when(libraryService.hasCompressedChapterContent(1L, 7L, 3)).thenReturn(false);
+        when(libraryService.getChapterContent(1L, 7L, 3)).thenReturn(new ChapterContentDTO("Text"));
+
+        mockMvc.perform(get("/api/epub/1/chapter/3").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"" + HASH + "-chapter-3\""))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(jsonPath("$.content").value("Text"));
+
+        verify(libraryService, never()).getCompressedChapterContent(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getEpubChapter should fall back to identity, under the identity ETag, when the compressed chapter cannot be read")
+    void getEpubChapter_GzipUnreadable_IdentityETag() throws Exception {
+        when(libraryService.getBookContentHash(1L, 7L)).thenReturn(Optional.of(HASH));
+        when(libraryService.hasCompressedChapterContent(1L, 7L, 3)).thenReturn(true);
+        when(libraryService.getCompressedChapterContent(1L, 7L, 3)).thenReturn(Optional.empty());
+        when(libraryService.getChapterContent(1L, 7L, 3)).thenReturn(new ChapterContentDTO("Text"));
+
+        mockMvc.perform(get("/api/epub/1/chapter/3").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"" + HASH + "-chapter-3\""))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.content").value("Text"));
+    }
+
+    @Test
+    @DisplayName("getEpubChapter should answer the identity ETag of a chapter that was not precompressed with 304 for gzip clients")
+    void getEpubChapter_GzipNotPrecompressedIfNoneMatch_NotModified() throws Exception {
+        when(libraryService.getBookContentHash(1L, 7L)).thenReturn(Optional.of(HASH));
+        when(libraryService.hasCompressedChapterContent(1L, 7L, 3)).thenReturn(false);
+
+        mockMvc.perform(get("/api/epub/1/chapter/3")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "-chapter-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"" + HASH + "-chapter-3\""));
+
+        verify(libraryService, never()).getChapterContent(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("getEpubChapter should load the chapter when If-None-Match names another representation")
+    void getEpubChapter_StaleETag_ServesChapter() throws Exception {
+        when(libraryService.getBookContentHash(1L, 7L)).thenReturn(Optional.of(HASH));
+        when(libraryService.getChapterContent(1L, 7L, 3)).thenReturn(new ChapterContentDTO("Text"));
+
+        mockMvc.perform(get("/api/epub/1/chapter/3")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "-chapter-2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"" + HASH + "-chapter-3\""))
+                .andExpect(jsonPath("$.content").value("Text"));
+    }
+
+    @Test
+    @DisplayName("getEpubMeta should send the stored metadata JSON of a book in the user's library")
+    void getEpubMeta_InLibrary_SendsStoredJson() throws Exception {
+        byte[] metaJson = "{\"title\":\"Title\",\"chapters\":[]}".getBytes(StandardCharsets.UTF_8);
+        when(libraryService.getBookContentHash(1L, 7L)).thenReturn(Optional.of(HASH));
+        when(libraryService.getBookMetaJson(1L)).thenReturn(metaJson);
+
+        mockMvc.perform(get("/api/epub/1/meta").param("v", HASH))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"" + HASH + "-meta\""))
+                .andExpect(content().bytes(metaJson));
+    }
+
+    @Test
+    @DisplayName("getEpubMeta should reject a book outside the user's library without reading its metadata")
+    void getEpubMeta_NotInLibrary_NotFound() throws Exception {
+        when(libraryService.getBookContentHash(1L, 7L)).thenReturn(Optional.empty());
+        when(libraryService.getBookMeta(1L, 7L)).thenThrow(new ResourceNotFoundException("UserBook not found"));
+
+        mockMvc.perform(get("/api/epub/1/meta"))
+                .andExpect(status().isNotFound());
+
+        verify(libraryService, never()).getBookMetaJson(anyLong());
+    }
+
+    @Test
+    @DisplayName("getEpubMeta should answer a matching If-None-Match with 304 without reading the metadata")
+    void getEpubMeta_IfNoneMatch_NotModified() throws Exception {
+        when(libraryService.getBookContentHash(1L, 7L)).thenReturn(Optional.of(HASH));
+
+        mockMvc.perform(get("/api/epub/1/meta").header(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "-meta\""))
+                .andExpect(status().isNotModified());
+
+        verify(libraryService, never()).getBookMetaJson(anyLong());
+        verify(libraryService, never()).getBookMeta(anyLong(), anyLong());
+    }
+}
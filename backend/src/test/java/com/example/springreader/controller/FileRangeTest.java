@@ -0,0 +1,60 @@
+package com.example.springreader.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for resolving the Range and If-Range headers of a download with FileRange.
+ */
+class FileRangeTest {
+
+    private static final long LENGTH = 1000;
+    private static final String ETAG = "abc-epub";
+
+    @Test
+    @DisplayName("resolve should return the whole file without a Range header")
+    void resolve_NoRange_WholeFile() {
+        FileRange range = FileRange.resolve(null, null, ETAG, LENGTH);
+
+        assertEquals(new FileRange(0, LENGTH, LENGTH, false), range);
+        assertEquals(HttpStatus.OK, range.status());
+    }
+
+    @Test
+    @DisplayName("resolve should return single ranges, clamped to the end of the file")
+    void resolve_SingleRange_Partial() {
+        assertEquals(new FileRange(100, 100, LENGTH, true), FileRange.resolve("bytes=100-199", null, ETAG, LENGTH));
+        assertEquals(new FileRange(500, 500, LENGTH, true), FileRange.resolve("bytes=500-", null, ETAG, LENGTH));
+        assertEquals(new FileRange(900, 100, LENGTH, true), FileRange.resolve("bytes=-100", null, ETAG, LENGTH));
+        assertEquals(new FileRange(900, 100, LENGTH, true), FileRange.resolve("bytes=900-5000", null, ETAG, LENGTH));
+        assertEquals(HttpStatus.PARTIAL_CONTENT, FileRange.resolve("bytes=0-0", null, ETAG, LENGTH).status());
+    }
+
+    @Test
+    @DisplayName("resolve should honour the range only when If-Range matches the ETag")
+    void resolve_IfRange() {
+        assertTrue(FileRange.resolve("bytes=100-", "\"abc-epub\"", ETAG, LENGTH).partial());
+        assertFalse(FileRange.resolve("bytes=100-", "\"other-epub\"", ETAG, LENGTH).partial());
+        assertFalse(FileRange.resolve("bytes=100-", "Wed, 21 Oct 2015 07:28:00 GMT", ETAG, LENGTH).partial());
+        assertFalse(FileRange.resolve("bytes=100-", "\"abc-epub\"", null, LENGTH).partial());
+    }
+
+    @Test
+    @DisplayName("resolve should return the whole file for multiple or malformed ranges")
+    void resolve_MultipleOrMalformed_WholeFile() {
+        assertFalse(FileRange.resolve("bytes=0-1,5-6", null, ETAG, LENGTH).partial());
+        assertFalse(FileRange.resolve("bytes=abc", null, ETAG, LENGTH).partial());
+        assertFalse(FileRange.resolve("items=0-1", null, ETAG, LENGTH).partial());
+    }
+
+    @Test
+    @DisplayName("resolve should return null for ranges starting past the end of the file")
+    void resolve_Unsatisfiable_ReturnsNull() {
+        assertNull(FileRange.resolve("bytes=1000-", null, ETAG, LENGTH));
+        assertNull(FileRange.resolve("bytes=2000-3000", null, ETAG, LENGTH));
+        assertNull(FileRange.resolve("bytes=-0", null, ETAG, LENGTH));
+    }
+}
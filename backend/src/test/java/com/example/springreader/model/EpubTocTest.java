@@ -21,4 +21,20 @@ class EpubTocTest {
         assertEquals(contentFile, toc.getContentFiles().get(0));
     }
 
-}
\ No newline at end of file
+    /**
+     * Tests that getOrAddContentFile returns the existing content file for a known path and adds unknown ones in order.
+     */
+    @Test
+    void getOrAddContentFile_ExistingAndNewPaths_ReusesAndAppends() {
+        EpubToc toc = new EpubToc();
+
+        EpubContentFile first = toc.getOrAddContentFile("chapter1.xhtml");
+        EpubContentFile second = toc.getOrAddContentFile("chapter2.xhtml");
+
+        assertSame(first, toc.getOrAddContentFile("chapter1.xhtml"));
+        assertEquals(2, toc.getContentFiles().size());
+        assertEquals(first, toc.getContentFiles().get(0));
+        assertEquals(second, toc.getContentFiles().get(1));
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.example.springreader.security.crypto;
+
+import com.example.springreader.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the OffloadingPasswordEncoder class.
+ * Uses the lowest BCrypt cost to keep hashing fast.
+ */
+class OffloadingPasswordEncoderTest {
+
+    private OffloadingPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        encoder.shutdown();
+    }
+
+    @Test
+    @DisplayName("encode and matches should hash on the pool and record hashing metrics")
+    void encodeAndMatches_HashOnPool() {
+        encoder = new OffloadingPasswordEncoder(4, 1, 4);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        String hash = encoder.encode("secret");
+
+        assertTrue(hash.startsWith("$2a$04$"));
+        assertTrue(encoder.matches("secret", hash));
+        assertFalse(encoder.matches("wrong", hash));
+        assertEquals(3, registry.get("springreader.password.hashing").functionTimer().count());
+        assertEquals(0, registry.get("springreader.password.queued").gauge().value());
+    }
+
+    @Test
+    @DisplayName("upgradeEncoding should report hashes made with a lower cost than configured")
+    void upgradeEncoding_LowerCost() {
+        encoder = new OffloadingPasswordEncoder(5, 1, 4);
+
+        assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")));
+        assertFalse(encoder.upgradeEncoding(encoder.encode("secret")));
+    }
+
+    @Test
+    @DisplayName("encode should be refused once the hashing thread is busy and the queue is full")
+    void encode_QueueFull_Throws() throws Exception {
+        encoder = new OffloadingPasswordEncoder(4, 1, 1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+        CountDownLatch hashing = new CountDownLatch(1);
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        //A raw password whose toString blocks keeps the single hashing thread busy
+        CharSequence blockingPassword = new BlockingPassword(hashing, release);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<String>> pending = new ArrayList<>();
+            pending.add(callers.submit(() -> encoder.encode(blockingPassword)));
+            hashing.await();
+            pending.add(callers.submit(() -> encoder.encode("queued")));
+            while (registry.get("springreader.password.queued").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+
+            assertThrows(PasswordHashingBusyException.class, () -> encoder.encode("rejected"));
+            assertEquals(1, registry.get("springreader.password.rejected").functionCounter().count());
+
+            release.complete(null);
+            for (Future<String> result : pending) {
+                assertNotNull(result.get());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private record BlockingPassword(CountDownLatch hashing, CompletableFuture<Void> release) implements CharSequence {
+        @Override
+        public String toString() {
+            hashing.countDown();
+            release.join();
+            return "blocked";
+        }
+
+        @Override
+        public int length() {
+            return toString().length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return toString().charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+    }
+}
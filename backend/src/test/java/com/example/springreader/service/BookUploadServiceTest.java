@@ -0,0 +1,204 @@
+package com.example.springreader.service;
+
+import com.example.springreader.exception.EpubProcessingException;
+import com.example.springreader.exception.UploadTooLargeException;
+import com.example.springreader.model.Book;
+import com.example.springreader.model.PreparedBook;
+import com.example.springreader.model.User;
+import com.example.springreader.utility.ContentHash;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the BookUploadService class.
+ * Stores uploads into a temporary upload directory, with LibraryService mocked.
+ */
+class BookUploadServiceTest {
+
+    private static final byte[] CONTENT = epubPrefixed("not really an epub");
+
+    @TempDir
+    Path uploadDir;
+
+    private LibraryService libraryService;
+    private BookUploadService bookUploadService;
+    private final User user = new User();
+
+    @BeforeEach
+    void setUp() {
+        libraryService = mock(LibraryService.class);
+        bookUploadService = new BookUploadService(libraryService, uploadDir, DataSize.ofKilobytes(1));
+        user.setId(1L);
+    }
+
+    @Test
+    @DisplayName("store should write the upload to a temporary file and hash it on the way")
+    void store_WritesAndHashes() throws IOException {
+        BookUploadService.StoredUpload upload = bookUploadService.store(new ByteArrayInputStream(CONTENT));
+
+        assertArrayEquals(CONTENT, Files.readAllBytes(upload.file()));
+        assertEquals(ContentHash.sha256(upload.file()), upload.contentHash());
+        assertEquals(uploadDir, upload.file().getParent());
+    }
+
+    @Test
+    @DisplayName("store should reject uploads that do not start like an EPUB without writing them")
+    void store_NotAnEpub_Rejects() throws IOException {
+        byte[] zipWithoutMimetype = CONTENT.clone();
+        zipWithoutMimetype[30] = 'M';
+
+        assertThrows(IllegalArgumentException.class,
+                () -> bookUploadService.store(new ByteArrayInputStream("plain text".getBytes(StandardCharsets.UTF_8))));
+        assertThrows(IllegalArgumentException.class, () -> bookUploadService.store(new ByteArrayInputStream(zipWithoutMimetype)));
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    @DisplayName("store should stop reading uploads over the size limit and delete what was written")
+    void store_TooLarge_RejectsAndDeletes() throws IOException {
+        ByteArrayInputStream upload = new ByteArrayInputStream(epubPrefixed("x".repeat(200_000)));
+
+        assertThrows(UploadTooLargeException.class, () -> bookUploadService.store(upload));
+
+        assertTrue(upload.available() > 100_000);
+        assertEquals(0, countFiles());
+        assertThrows(UploadTooLargeException.class, () -> bookUploadService.checkSize(2048L));
+        assertDoesNotThrow(() -> bookUploadService.checkSize(null));
+    }
+
+    @Test
+    @DisplayName("addToLibrary should link an existing book with the same content and discard the upload")
+    void addToLibrary_ExistingContent_LinksWithoutIngesting() throws IOException {
+        BookUploadService.StoredUpload upload = bookUploadService.store(new ByteArrayInputStream(CONTENT));
+        Book existing = new Book("Title", "Author", upload.contentHash() + ".epub", null);
+        when(libraryService.addExistingBook(upload.contentHash(), user)).thenReturn(Optional.of(existing));
+
+        assertSame(existing, bookUploadService.addToLibrary(upload, user));
+
+        verify(libraryService, never()).prepareBook(any(File.class), any());
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    @DisplayName("addToLibrary should store new content under its hash and a name of its own, and ingest it")
+    void addToLibrary_NewContent_StoresUnderHashAndIngests() throws IOException {
+        BookUploadService.StoredUpload upload = bookUploadService.store(new ByteArrayInputStream(CONTENT));
+        when(libraryService.addExistingBook(upload.contentHash(), user)).thenReturn(Optional.empty());
+        when(libraryService.prepareBook(any(File.class), eq(upload.contentHash()))).thenAnswer(invocation -> prepared(invocation.getArgument(0), upload));
+        Book book = new Book("Title", "Author", "path", null);
+        when(libraryService.addPreparedBook(any(PreparedBook.class), eq(user))).thenReturn(book);
+
+        assertSame(book, bookUploadService.addToLibrary(upload, user));
+
+        assertFalse(Files.exists(upload.file()));
+        ArgumentCaptor<File> bookFile = ArgumentCaptor.forClass(File.class);
+        verify(libraryService).prepareBook(bookFile.capture(), eq(upload.contentHash()));
+        assertTrue(bookFile.getValue().getName().startsWith(upload.contentHash() + "-"));
+        assertArrayEquals(CONTENT, Files.readAllBytes(bookFile.getValue().toPath()));
+    }
+
+    @Test
+    @DisplayName("addToLibrary should discard its own files and link the book when the same content was ingested concurrently")
+    void addToLibrary_ConcurrentIngest_LinksExisting() throws IOException {
+        BookUploadService.StoredUpload upload = bookUploadService.store(new ByteArrayInputStream(CONTENT));
+        Book winner = new Book("Title", "Author", upload.contentHash() + "-winner.epub", null);
+        when(libraryService.addExistingBook(upload.contentHash(), user)).thenReturn(Optional.empty(), Optional.of(winner));
+        when(libraryService.prepareBook(any(File.class), eq(upload.contentHash()))).thenAnswer(invocation -> prepared(invocation.getArgument(0), upload));
+        when(libraryService.addPreparedBook(any(PreparedBook.class), eq(user)))
+                .thenThrow(new DataIntegrityViolationException("duplicate content hash"));
+
+        assertSame(winner, bookUploadService.addToLibrary(upload, user));
+
+        ArgumentCaptor<PreparedBook> discarded = ArgumentCaptor.forClass(PreparedBook.class);
+        verify(libraryService).discardPreparedBook(discarded.capture());
+        assertNotEquals(winner.getFilePath(), discarded.getValue().filePath());
+    }
+
+    @Test
+    @DisplayName("addToLibrary should never delete the file of a book saved by another upload of the same content")
+    void addToLibrary_FailureAfterOtherUploadSaved_KeepsItsFile() throws IOException {
+        BookUploadService.StoredUpload first = bookUploadService.store(new ByteArrayInputStream(CONTENT));
+        BookUploadService.StoredUpload second = bookUploadService.store(new ByteArrayInputStream(CONTENT));
+        when(libraryService.addExistingBook(first.contentHash(), user)).thenReturn(Optional.empty());
+        when(libraryService.prepareBook(any(File.class), eq(first.contentHash()))).thenAnswer(invocation -> prepared(invocation.getArgument(0), first));
+        when(libraryService.addPreparedBook(any(PreparedBook.class), eq(user)))
+                .thenAnswer(invocation -> new Book("Title", "Author", invocation.<PreparedBook>getArgument(0).filePath(), null))
+                .thenThrow(new IllegalStateException("connection reset"));
+        doAnswer(invocation -> {
+            Files.delete(uploadDir.resolve(invocation.<PreparedBook>getArgument(0).filePath()));
+            return null;
+        }).when(libraryService).discardPreparedBook(any());
+
+        Book saved = bookUploadService.addToLibrary(first, user);
+        assertThrows(IllegalStateException.class, () -> bookUploadService.addToLibrary(second, user));
+
+        assertTrue(Files.exists(uploadDir.resolve(saved.getFilePath())));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    @DisplayName("addToLibrary should delete the stored file when the upload cannot be parsed")
+    void addToLibrary_InvalidEpub_DeletesFile() throws IOException {
+        BookUploadService.StoredUpload upload = bookUploadService.store(new ByteArrayInputStream(CONTENT));
+        when(libraryService.addExistingBook(upload.contentHash(), user)).thenReturn(Optional.empty());
+        when(libraryService.prepareBook(any(File.class), eq(upload.contentHash())))
+                .thenThrow(new EpubProcessingException("Invalid Zip/Epub file"));
+
+        assertThrows(EpubProcessingException.class, () -> bookUploadService.addToLibrary(upload, user));
+
+        verify(libraryService).deleteFile(argThat(name -> name.startsWith(upload.contentHash() + "-")), eq("epub"));
+        verify(libraryService, never()).addPreparedBook(any(), any());
+        assertFalse(Files.exists(upload.file()));
+    }
+
+    private static PreparedBook prepared(File bookFile, BookUploadService.StoredUpload upload) {
+        return new PreparedBook("Title", "Author", bookFile.getName(), null, upload.contentHash(), List.of(), new byte[0]);
+    }
+
+    /**
+     * @return the stored mimetype entry every EPUB starts with, followed by the given text
+     */
+    static byte[] epubPrefixed(String text) {
+        byte[] name = "mimetype".getBytes(StandardCharsets.US_ASCII);
+        byte[] mediaType = "application/epub+zip".getBytes(StandardCharsets.US_ASCII);
+        byte[] rest = text.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(mediaType);
+        return ByteBuffer.allocate(30 + name.length + mediaType.length + rest.length).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(0x04034b50).putShort((short) 10).putShort((short) 0).putShort((short) 0)
+                .putShort((short) 0).putShort((short) 0).putInt((int) crc.getValue())
+                .putInt(mediaType.length).putInt(mediaType.length).putShort((short) name.length).putShort((short) 0)
+                .put(name).put(mediaType).put(rest)
+                .array();
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.springreader.service;
+
+import com.example.springreader.dto.BulkUploadResultDTO;
+import com.example.springreader.exception.EpubProcessingException;
+import com.example.springreader.model.Book;
+import com.example.springreader.model.IngestionJobStatus;
+import com.example.springreader.model.PreparedBook;
+import com.example.springreader.model.User;
+import com.example.springreader.utility.ContentHash;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the BulkUploadService class.
+ * Stores uploads into a temporary upload directory, with LibraryService mocked.
+ */
+class BulkUploadServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private LibraryService libraryService;
+    private BulkUploadService bulkUploadService;
+    private final User user = new User();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        libraryService = mock(LibraryService.class);
+        bulkUploadService = new BulkUploadService(new BookUploadService(libraryService, uploadDir, DataSize.ofMegabytes(1)), libraryService, 2, 4, 50, false);
+        user.setId(1L);
+
+        when(libraryService.addExistingBooks(anyCollection(), eq(user))).thenReturn(Map.of());
+        when(libraryService.prepareBook(any(File.class), any())).thenAnswer(invocation ->
+                new PreparedBook("Title", "Author", invocation.<File>getArgument(0).getName(), null, invocation.getArgument(1), List.of(), new byte[0]));
+        when(libraryService.addPreparedBooks(anyList(), eq(user))).thenAnswer(invocation ->
+                invocation.<List<PreparedBook>>getArgument(0).stream().map(BulkUploadServiceTest::saved).toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkUploadService.shutdown();
+    }
+
+    @Test
+    @DisplayName("addAllToLibrary should ingest EPUBs and ZIP entries once per content, and report every file in order")
+    void addAllToLibrary_EpubsAndZip_IngestsEachContentOnce() throws IOException {
+        Book existing = saved(hash("existing"), 99L);
+        when(libraryService.addExistingBooks(anyCollection(), eq(user))).thenReturn(Map.of(hash("existing"), existing));
+        MultipartFile zip = new MockMultipartFile("files", "books.zip", "application/zip",
+                zip(Map.of("new.epub", "new", "notes.txt", "ignored", "__MACOSX/._new.epub", "fork")));
+
+        List<BulkUploadResultDTO> results = bulkUploadService.addAllToLibrary(List.of(
+                epub("a.epub", "new"), zip, epub("b.epub", "existing"), epub("cover.jpg", "image")), user);
+
+        assertEquals(List.of("a.epub", "books.zip/new.epub", "b.epub", "cover.jpg"),
+                results.stream().map(BulkUploadResultDTO::fileName).toList());
+        assertEquals(results.get(0).bookId(), results.get(1).bookId());
+        assertEquals(IngestionJobStatus.COMPLETED, results.get(0).status());
+        assertEquals(99L, results.get(2).bookId());
+        assertEquals(IngestionJobStatus.FAILED, results.get(3).status());
+
+        verify(libraryService, times(1)).prepareBook(any(File.class), eq(hash("new")));
+        verify(libraryService, never()).prepareBook(any(File.class), eq(hash("existing")));
+        verify(libraryService, times(1)).addPreparedBooks(anyList(), eq(user));
+        List<Path> files = listFiles();
+        assertEquals(1, files.size());
+        assertTrue(files.get(0).getFileName().toString().startsWith(hash("new") + "-"));
+    }
+
+    @Test
+    @DisplayName("addAllToLibrary should report files that are not EPUBs or cannot be parsed, and delete their files")
+    void addAllToLibrary_InvalidEpub_FailsAndDeletesFile() throws IOException {
+        when(libraryService.prepareBook(any(File.class), eq(hash("bad")))).thenThrow(new EpubProcessingException("bad"));
+
+        MultipartFile notAnEpub = new MockMultipartFile("files", "fake.epub", "application/epub+zip", new byte[]{'P', 'K'});
+
+        List<BulkUploadResultDTO> results = bulkUploadService.addAllToLibrary(
+                List.of(epub("good.epub", "good"), epub("bad.epub", "bad"), notAnEpub), user);
+
+        assertEquals(IngestionJobStatus.COMPLETED, results.get(0).status());
+        assertEquals(IngestionJobStatus.FAILED, results.get(1).status());
+        assertEquals("The file could not be processed as an EPUB.", results.get(1).error());
+        assertEquals(IngestionJobStatus.FAILED, results.get(2).status());
+        verify(libraryService).deleteFile(argThat(name -> name.startsWith(hash("bad") + "-")), eq("epub"));
+        verify(libraryService, times(2)).prepareBook(any(File.class), any());
+    }
+
+    @Test
+    @DisplayName("addAllToLibrary should save books one by one when the batch conflicts, linking books added concurrently")
+    void addAllToLibrary_BatchConflict_SavesOneByOne() throws IOException {
+        when(libraryService.addPreparedBooks(anyList(), eq(user))).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(libraryService.addPreparedBook(any(PreparedBook.class), eq(user))).thenAnswer(invocation -> {
+            PreparedBook preparedBook = invocation.getArgument(0);
+            if (preparedBook.contentHash().equals(hash("raced"))) {
+                throw new DataIntegrityViolationException("duplicate");
+            }
+            return saved(preparedBook);
+        });
+        when(libraryService.addExistingBook(hash("raced"), user)).thenReturn(Optional.of(saved(hash("raced"), 42L)));
+
+        List<BulkUploadResultDTO> results = bulkUploadService.addAllToLibrary(List.of(epub("a.epub", "alone"), epub("b.epub", "raced")), user);
+
+        assertEquals(IngestionJobStatus.COMPLETED, results.get(0).status());
+        assertEquals(42L, results.get(1).bookId());
+        verify(libraryService, times(2)).addPreparedBook(any(PreparedBook.class), eq(user));
+        //The raced book's files are its own, the concurrently saved book has other ones
+        verify(libraryService).discardPreparedBook(argThat(preparedBook -> preparedBook.contentHash().equals(hash("raced"))));
+        verify(libraryService, never()).discardPreparedBook(argThat(preparedBook -> preparedBook.contentHash().equals(hash("alone"))));
+    }
+
+    @Test
+    @DisplayName("addAllToLibrary should reject uploads with too many books and remove what was stored")
+    void addAllToLibrary_TooManyBooks_Throws() throws IOException {
+        List<MultipartFile> files = List.of(epub("1.epub", "1"), epub("2.epub", "2"), epub("3.epub", "3"), epub("4.epub", "4"), epub("5.epub", "5"));
+
+        assertThrows(IllegalArgumentException.class, () -> bulkUploadService.addAllToLibrary(files, user));
+
+        assertTrue(listFiles().isEmpty());
+        verifyNoInteractions(libraryService);
+    }
+
+    private static MockMultipartFile epub(String name, String content) {
+        return new MockMultipartFile("files", name, "application/epub+zip", BookUploadServiceTest.epubPrefixed(content));
+    }
+
+    private static byte[] zip(Map<String, String> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(BookUploadServiceTest.epubPrefixed(entry.getValue()));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String hash(String content) {
+        MessageDigest digest = ContentHash.newDigest();
+        return ContentHash.toHex(digest.digest(BookUploadServiceTest.epubPrefixed(content)));
+    }
+
+    private static Book saved(PreparedBook preparedBook) {
+        return saved(preparedBook.contentHash(), (long) preparedBook.contentHash().hashCode());
+    }
+
+    private static Book saved(String contentHash, Long id) {
+        Book book = new Book("Title", "Author", contentHash + ".epub", null);
+        book.setContentHash(contentHash);
+        book.setId(id);
+        return book;
+    }
+
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            return files.toList();
+        }
+    }
+}
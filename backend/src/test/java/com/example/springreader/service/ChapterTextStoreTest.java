@@ -0,0 +1,129 @@
+package com.example.springreader.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the ChapterTextStore class.
+ * Writes packed stores into a temporary upload directory and reads chapters back.
+ */
+class ChapterTextStoreTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private ChapterTextStore chapterTextStore;
+
+    @BeforeEach
+    void setUp() {
+        chapterTextStore = new ChapterTextStore(uploadDir);
+    }
+
+    @Test
+    @DisplayName("read should return the text written for each chapter")
+    void writeAndRead_RoundTrip() throws IOException {
+        Map<Integer, String> chapterTexts = new HashMap<>();
+        chapterTexts.put(0, "Chapter one\n\nFirst paragraph");
+        chapterTexts.put(1, "Chapitre deux — café");
+        chapterTexts.put(2, "");
+
+        chapterTextStore.write("book.epub", chapterTexts);
+
+        assertEquals(Optional.of("Chapter one\n\nFirst paragraph"), chapterTextStore.read("book.epub", 0));
+        assertEquals(Optional.of("Chapitre deux — café"), chapterTextStore.read("book.epub", 1));
+        assertEquals(Optional.of(""), chapterTextStore.read("book.epub", 2));
+    }
+
+    @Test
+    @DisplayName("read should return empty for chapters that were not extracted or are out of range")
+    void read_MissingChapter_ReturnsEmpty() throws IOException {
+        Map<Integer, String> chapterTexts = new HashMap<>();
+        chapterTexts.put(0, "Only chapter");
+        chapterTexts.put(1, null);
+
+        chapterTextStore.write("book.epub", chapterTexts);
+
+        assertTrue(chapterTextStore.read("book.epub", 1).isEmpty(), "Failed chapters should fall back");
+        assertTrue(chapterTextStore.read("book.epub", 5).isEmpty(), "Out of range index should fall back");
+        assertTrue(chapterTextStore.read("book.epub", -1).isEmpty(), "Negative index should fall back");
+    }
+
+    @Test
+    @DisplayName("read should return empty when the book has no store")
+    void read_NoStore_ReturnsEmpty() {
+        assertTrue(chapterTextStore.read("legacy.epub", 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("readParagraphs should stream each paragraph of the chapter in order")
+    void readParagraphs_StreamsParagraphs() throws IOException {
+        chapterTextStore.write("book.epub", Map.of(0, "Heading\n\nFirst — café\n\nSecond", 1, "Other"));
+
+        List<String> paragraphs = new ArrayList<>();
+        assertTrue(chapterTextStore.readParagraphs("book.epub", 0, paragraphs::add));
+
+        assertEquals(List.of("Heading", "First — café", "Second"), paragraphs);
+        assertTrue(chapterTextStore.contains("book.epub", 1));
+    }
+
+    @Test
+    @DisplayName("readParagraphs should return false for chapters the store does not hold")
+    void readParagraphs_MissingChapter_ReturnsFalse() throws IOException {
+        chapterTextStore.write("book.epub", Map.of(0, "text"));
+
+        assertFalse(chapterTextStore.readParagraphs("book.epub", 3, paragraph -> fail("Nothing should be written")));
+        assertFalse(chapterTextStore.readParagraphs("legacy.epub", 0, paragraph -> fail("Nothing should be written")));
+        assertFalse(chapterTextStore.contains("book.epub", 3));
+    }
+
+    @Test
+    @DisplayName("readSlice should return the requested paragraphs and the chapter's paragraph count")
+    void readSlice_ReturnsRequestedParagraphs() throws IOException {
+        chapterTextStore.write("book.epub", Map.of(0, "One\n\nDeux — café\n\nThree\n\nFour", 1, ""));
+
+        ChapterTextStore.ParagraphSlice slice = chapterTextStore.readSlice("book.epub", 0, 1, 2).orElseThrow();
+        assertEquals(List.of("Deux — café", "Three"), slice.paragraphs());
+        assertEquals(4, slice.totalParagraphs());
+
+        assertEquals(List.of("Four"), chapterTextStore.readSlice("book.epub", 0, 3, 10).orElseThrow().paragraphs());
+        assertEquals(List.of(), chapterTextStore.readSlice("book.epub", 0, 7, 10).orElseThrow().paragraphs());
+        assertEquals(0, chapterTextStore.readSlice("book.epub", 1, 0, 10).orElseThrow().totalParagraphs());
+        assertTrue(chapterTextStore.readSlice("book.epub", 2, 0, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("readAll should return every chapter, with null for chapters that were not extracted")
+    void readAll_ReturnsEveryChapter() throws IOException {
+        Map<Integer, String> chapterTexts = new HashMap<>();
+        chapterTexts.put(0, "One\n\nTwo");
+        chapterTexts.put(1, null);
+        chapterTexts.put(2, "Trois — café");
+
+        chapterTextStore.write("book.epub", chapterTexts);
+
+        assertEquals(Optional.of(chapterTexts), chapterTextStore.readAll("book.epub"));
+        assertTrue(chapterTextStore.readAll("other.epub").isEmpty());
+    }
+
+    @Test
+    @DisplayName("delete should remove the store")
+    void delete_RemovesStore() throws IOException {
+        chapterTextStore.write("book.epub", Map.of(0, "text"));
+
+        chapterTextStore.delete("book.epub");
+
+        assertTrue(chapterTextStore.read("book.epub", 0).isEmpty());
+    }
+}
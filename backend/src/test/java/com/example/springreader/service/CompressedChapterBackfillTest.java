@@ -0,0 +1,123 @@
+package com.example.springreader.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CompressedChapterBackfill class.
+ * Builds compressed stores from ChapterTextStores written into a temporary upload directory.
+ */
+class CompressedChapterBackfillTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private ChapterTextStore chapterTextStore;
+    private CountingStore compressedChapterStore;
+    private CompressedChapterBackfill backfill;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        chapterTextStore = new ChapterTextStore(uploadDir);
+        compressedChapterStore = new CountingStore(uploadDir);
+        backfill = new CompressedChapterBackfill(chapterTextStore, compressedChapterStore, uploadDir, false);
+
+        Files.createFile(uploadDir.resolve("book.epub"));
+        chapterTextStore.write("book.epub", Map.of(0, "A paragraph that repeats.\n\n".repeat(200)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        backfill.shutdown();
+    }
+
+    @Test
+    @DisplayName("request should build a missing store once however many readers ask for it")
+    void request_ConcurrentReaders_BuildsOnce() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            backfill.request("book.epub");
+        }
+        compressedChapterStore.release.countDown();
+        awaitBuilt("marker.epub");
+
+        assertTrue(compressedChapterStore.read("book.epub", 0).isPresent());
+        backfill.request("book.epub");
+        awaitBuilt("second-marker.epub");
+        assertEquals(3, compressedChapterStore.writes.get(), "The book should be compressed once, besides the two markers");
+    }
+
+    @Test
+    @DisplayName("request should not leave a store behind for a book deleted while it was compressed")
+    void request_BookDeletedMeanwhile_DeletesStore() throws Exception {
+        backfill.request("book.epub");
+        Files.delete(uploadDir.resolve("book.epub"));
+        compressedChapterStore.release.countDown();
+        awaitBuilt("marker.epub");
+
+        assertFalse(compressedChapterStore.exists("book.epub"));
+    }
+
+    @Test
+    @DisplayName("request should do nothing for a book without a ChapterTextStore")
+    void request_NoTextStore_BuildsNothing() throws Exception {
+        compressedChapterStore.release.countDown();
+        backfill.request("other.epub");
+        awaitBuilt("marker.epub");
+
+        assertFalse(compressedChapterStore.exists("other.epub"));
+        assertEquals(1, compressedChapterStore.writes.get());
+    }
+
+    /**
+     * Builds are run one at a time in order, so once a marker book requested last is built, every earlier build is done.
+     */
+    private void awaitBuilt(String markerFilePath) throws Exception {
+        Files.createFile(uploadDir.resolve(markerFilePath));
+        chapterTextStore.write(markerFilePath, Map.of(0, "Marker"));
+        backfill.request(markerFilePath);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!compressedChapterStore.exists(markerFilePath)) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the store of " + markerFilePath);
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Holds every write until released, so concurrent requests overlap the first build.
+     */
+    private static final class CountingStore extends CompressedChapterStore {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger writes = new AtomicInteger();
+
+        private CountingStore(Path uploadDir) {
+            super(uploadDir, new ObjectMapper());
+        }
+
+        @Override
+        public void write(String bookFilePath, Map<Integer, String> chapterTexts) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            writes.incrementAndGet();
+            super.write(bookFilePath, chapterTexts);
+        }
+    }
+}
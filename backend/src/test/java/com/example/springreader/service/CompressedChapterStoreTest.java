@@ -0,0 +1,115 @@
+package com.example.springreader.service;
+
+import com.example.springreader.dto.ChapterContentDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the CompressedChapterStore class.
+ * Writes packed stores into a temporary upload directory and decompresses chapters read back.
+ */
+class CompressedChapterStoreTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private CompressedChapterStore compressedChapterStore;
+
+    @BeforeEach
+    void setUp() {
+        compressedChapterStore = new CompressedChapterStore(uploadDir, objectMapper);
+    }
+
+    @Test
+    @DisplayName("read should return a gzip member holding the chapter's JSON")
+    void writeAndRead_RoundTrip() throws IOException {
+        String longChapter = "A paragraph that repeats.\n\n".repeat(500);
+        Map<Integer, String> chapterTexts = new HashMap<>();
+        chapterTexts.put(0, "Chapter one\n\n\"Quoted\" paragraph. ".repeat(4));
+        chapterTexts.put(1, longChapter);
+        chapterTexts.put(2, "Chapitre trois — café. ".repeat(4));
+
+        compressedChapterStore.write("book.epub", chapterTexts);
+
+        for (Map.Entry<Integer, String> chapter : chapterTexts.entrySet()) {
+            byte[] compressed = compressedChapterStore.read("book.epub", chapter.getKey()).orElseThrow();
+            assertEquals(new ChapterContentDTO(chapter.getValue()), decompress(compressed));
+        }
+        assertTrue(compressedChapterStore.read("book.epub", 1).orElseThrow().length < longChapter.length() / 10,
+                "Repetitive text should compress well");
+    }
+
+    @Test
+    @DisplayName("read should return empty for chapters that do not shrink when compressed")
+    void read_Incompressible_ReturnsEmpty() throws IOException {
+        compressedChapterStore.write("book.epub", Map.of(0, "Short"));
+
+        assertTrue(compressedChapterStore.exists("book.epub"));
+        assertTrue(compressedChapterStore.read("book.epub", 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("read should return empty for missing chapters, out of range indexes and books without a store")
+    void read_Missing_ReturnsEmpty() throws IOException {
+        Map<Integer, String> chapterTexts = new HashMap<>();
+        chapterTexts.put(0, "Only chapter. ".repeat(8));
+        chapterTexts.put(1, null);
+
+        compressedChapterStore.write("book.epub", chapterTexts);
+
+        assertTrue(compressedChapterStore.exists("book.epub"));
+        assertTrue(compressedChapterStore.read("book.epub", 1).isEmpty());
+        assertTrue(compressedChapterStore.read("book.epub", 2).isEmpty());
+        assertTrue(compressedChapterStore.read("book.epub", -1).isEmpty());
+        assertFalse(compressedChapterStore.exists("other.epub"));
+        assertTrue(compressedChapterStore.read("other.epub", 0).isEmpty());
+    }
+
+    @Test
+    @DisplayName("contains should agree with read for stored, incompressible, missing and out of range chapters")
+    void contains_MatchesRead() throws IOException {
+        Map<Integer, String> chapterTexts = new HashMap<>();
+        chapterTexts.put(0, "Only chapter. ".repeat(8));
+        chapterTexts.put(1, null);
+        chapterTexts.put(2, "Short");
+
+        compressedChapterStore.write("book.epub", chapterTexts);
+
+        for (int chapterIndex = -1; chapterIndex <= 3; chapterIndex++) {
+            assertEquals(compressedChapterStore.read("book.epub", chapterIndex).isPresent(),
+                    compressedChapterStore.contains("book.epub", chapterIndex), "chapter " + chapterIndex);
+        }
+        assertTrue(compressedChapterStore.contains("book.epub", 0));
+        assertFalse(compressedChapterStore.contains("other.epub", 0));
+    }
+
+    @Test
+    @DisplayName("delete should remove the store")
+    void delete_RemovesStore() throws IOException {
+        compressedChapterStore.write("book.epub", Map.of(0, "text ".repeat(20)));
+
+        compressedChapterStore.delete("book.epub");
+
+        assertFalse(compressedChapterStore.exists("book.epub"));
+        assertTrue(compressedChapterStore.read("book.epub", 0).isEmpty());
+    }
+
+    private ChapterContentDTO decompress(byte[] compressed) throws IOException {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return objectMapper.readValue(gzip, ChapterContentDTO.class);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.springreader.service;
+
+import com.example.springreader.model.CoverSavedEvent;
+import com.example.springreader.model.CoverSize;
+import com.example.springreader.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the CoverThumbnailService class.
+ * Generates thumbnails from covers written into a temporary upload directory.
+ */
+class CoverThumbnailServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private BookRepository bookRepository;
+    private CoverThumbnailService coverThumbnailService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.createDirectories(uploadDir.resolve("covers"));
+        bookRepository = mock(BookRepository.class);
+        coverThumbnailService = new CoverThumbnailService(bookRepository, uploadDir);
+    }
+
+    @Test
+    @DisplayName("createThumbnails should write a JPEG of each width keeping the aspect ratio")
+    void createThumbnails_LargeCover_WritesEverySize() throws IOException {
+        writeCover("covers/cover.png", 1400, 2100);
+
+        Map<CoverSize, String> thumbnails = coverThumbnailService.createThumbnails("covers/cover.png");
+
+        assertEquals(Map.of(
+                CoverSize.SMALL, "covers/cover-small.jpg",
+                CoverSize.MEDIUM, "covers/cover-medium.jpg",
+                CoverSize.LARGE, "covers/cover-large.jpg"
+        ), thumbnails);
+        for (CoverSize size : thumbnails.keySet()) {
+            BufferedImage thumbnail = ImageIO.read(uploadDir.resolve(thumbnails.get(size)).toFile());
+            assertEquals(size.width(), thumbnail.getWidth());
+            assertEquals(size.width() * 3 / 2, thumbnail.getHeight(), 1);
+        }
+    }
+
+    @Test
+    @DisplayName("createThumbnails should skip sizes the cover is not wider than")
+    void createThumbnails_SmallCover_SkipsLargerSizes() throws IOException {
+        writeCover("covers/cover.png", 300, 450);
+
+        Map<CoverSize, String> thumbnails = coverThumbnailService.createThumbnails("covers/cover.png");
+
+        assertEquals(Map.of(CoverSize.SMALL, "covers/cover-small.jpg"), thumbnails);
+    }
+
+    @Test
+    @DisplayName("onCoverSaved should store the thumbnail paths, and leave the book untouched for unreadable covers")
+    void onCoverSaved_StoresPathsOrSkips() throws IOException {
+        writeCover("covers/cover.png", 800, 1200);
+        Files.writeString(uploadDir.resolve("covers/broken.jpg"), "not an image");
+        when(bookRepository.updateCoverThumbnails(anyLong(), any(), any(), any())).thenReturn(1);
+
+        coverThumbnailService.onCoverSaved(new CoverSavedEvent(1L, "covers/cover.png"));
+        coverThumbnailService.onCoverSaved(new CoverSavedEvent(2L, "covers/broken.jpg"));
+
+        verify(bookRepository).updateCoverThumbnails(1L, "covers/cover-small.jpg", "covers/cover-medium.jpg", "covers/cover-large.jpg");
+        verifyNoMoreInteractions(bookRepository);
+    }
+
+    @Test
+    @DisplayName("onCoverSaved should mark the thumbnails generated for covers too narrow for any thumbnail")
+    void onCoverSaved_NarrowCover_MarksGenerated() throws IOException {
+        writeCover("covers/cover.png", 150, 225);
+        when(bookRepository.updateCoverThumbnails(anyLong(), any(), any(), any())).thenReturn(1);
+
+        coverThumbnailService.onCoverSaved(new CoverSavedEvent(1L, "covers/cover.png"));
+
+        verify(bookRepository).updateCoverThumbnails(1L, null, null, null);
+    }
+
+    @Test
+    @DisplayName("onCoverSaved should delete the thumbnails when the book was deleted meanwhile")
+    void onCoverSaved_BookDeleted_RemovesThumbnails() throws IOException {
+        writeCover("covers/cover.png", 800, 1200);
+        when(bookRepository.updateCoverThumbnails(anyLong(), any(), any(), any())).thenReturn(0);
+
+        coverThumbnailService.onCoverSaved(new CoverSavedEvent(1L, "covers/cover.png"));
+
+        assertFalse(Files.exists(uploadDir.resolve("covers/cover-small.jpg")));
+        assertFalse(Files.exists(uploadDir.resolve("covers/cover-large.jpg")));
+    }
+
+    private void writeCover(String relativePath, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, ((x * 255 / width) << 16) | ((y * 255 / height) << 8) | 0xFF000000);
+            }
+        }
+        ImageIO.write(image, "png", uploadDir.resolve(relativePath).toFile());
+    }
+}
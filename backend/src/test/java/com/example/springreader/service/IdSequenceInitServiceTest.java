@@ -0,0 +1,55 @@
+package com.example.springreader.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the IdSequenceInitService class.
+ * Verifies the statements sent to a mocked JdbcTemplate for each database.
+ */
+@ExtendWith(MockitoExtension.class)
+class IdSequenceInitServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private IdSequenceInitService idSequenceInitService;
+
+    @Test
+    @DisplayName("alignSequences should set each sequence to its table's highest id when the sequence is behind")
+    void alignSequences_PostgreSQL_SetsEachSequence() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class))).thenReturn(List.of(120L), List.of(), List.of());
+
+        idSequenceInitService.alignSequences();
+
+        verify(jdbcTemplate).queryForList("select setval('books_seq', max(id)) from books"
+                + " having max(id) >= (select last_value from books_seq)", Long.class);
+        verify(jdbcTemplate).queryForList("select setval('chapters_seq', max(id)) from chapters"
+                + " having max(id) >= (select last_value from chapters_seq)", Long.class);
+        verify(jdbcTemplate).queryForList("select setval('user_books_seq', max(id)) from user_books"
+                + " having max(id) >= (select last_value from user_books_seq)", Long.class);
+    }
+
+    @Test
+    @DisplayName("alignSequences should leave databases other than PostgreSQL untouched")
+    void alignSequences_OtherDatabase_Skipped() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+
+        idSequenceInitService.alignSequences();
+
+        verify(jdbcTemplate, never()).queryForList(anyString(), eq(Long.class));
+    }
+}
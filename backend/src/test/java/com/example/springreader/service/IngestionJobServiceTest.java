@@ -0,0 +1,163 @@
+package com.example.springreader.service;
+
+import com.example.springreader.dto.IngestionJobDTO;
+import com.example.springreader.exception.EpubProcessingException;
+import com.example.springreader.exception.IngestionQueueFullException;
+import com.example.springreader.exception.ResourceNotFoundException;
+import com.example.springreader.model.Book;
+import com.example.springreader.model.IngestionJobStatus;
+import com.example.springreader.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the IngestionJobService class.
+ * Runs jobs on the service's own executor, with BookUploadService mocked.
+ */
+class IngestionJobServiceTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private BookUploadService bookUploadService;
+    private IngestionJobService ingestionJobService;
+    private final User user = new User();
+
+    @BeforeEach
+    void setUp() {
+        bookUploadService = mock(BookUploadService.class);
+        user.setId(1L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ingestionJobService.shutdown();
+    }
+
+    @Test
+    @DisplayName("A job should complete with the ID of the book added to the library")
+    void submit_Success_CompletesWithBookId() throws Exception {
+        ingestionJobService = new IngestionJobService(bookUploadService, 1, 4, Duration.ofHours(1), false);
+        Book book = new Book("Title", "Author", "hash.epub", null);
+        book.setId(7L);
+        when(bookUploadService.addToLibrary(any(), eq(user))).thenReturn(book);
+
+        IngestionJobDTO submitted = ingestionJobService.submit(upload("a"), user);
+        IngestionJobDTO finished = awaitFinished(submitted.jobId());
+
+        assertEquals(IngestionJobStatus.COMPLETED, finished.status());
+        assertEquals(7L, finished.bookId());
+        assertNull(finished.error());
+        assertNotNull(finished.finishedAt());
+    }
+
+    @Test
+    @DisplayName("A job should fail with a readable error when the upload is not a valid EPUB")
+    void submit_InvalidEpub_Fails() throws Exception {
+        ingestionJobService = new IngestionJobService(bookUploadService, 1, 4, Duration.ofHours(1), false);
+        when(bookUploadService.addToLibrary(any(), eq(user))).thenThrow(new EpubProcessingException("bad"));
+
+        IngestionJobDTO finished = awaitFinished(ingestionJobService.submit(upload("a"), user).jobId());
+
+        assertEquals(IngestionJobStatus.FAILED, finished.status());
+        assertNull(finished.bookId());
+        assertEquals("The file could not be processed as an EPUB.", finished.error());
+    }
+
+    @Test
+    @DisplayName("submit should reject uploads and delete them when the queue is full")
+    void submit_QueueFull_RejectsAndDeletesUpload() throws Exception {
+        ingestionJobService = new IngestionJobService(bookUploadService, 1, 1, Duration.ofHours(1), false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookUploadService.addToLibrary(any(), eq(user))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new Book();
+        });
+
+        ingestionJobService.submit(upload("running"), user);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        IngestionJobDTO queued = ingestionJobService.submit(upload("queued"), user);
+        BookUploadService.StoredUpload rejected = upload("rejected");
+
+        assertThrows(IngestionQueueFullException.class, () -> ingestionJobService.submit(rejected, user));
+        assertFalse(Files.exists(rejected.file()));
+        assertEquals(IngestionJobStatus.QUEUED, ingestionJobService.getJob(queued.jobId(), user.getId()).status());
+        release.countDown();
+    }
+
+    @Test
+    @DisplayName("Jobs should run on virtual threads when virtual threads are enabled")
+    void submit_VirtualThreads_RunsOnVirtualThread() throws Exception {
+        ingestionJobService = new IngestionJobService(bookUploadService, 1, 4, Duration.ofHours(1), true);
+        Book book = new Book();
+        book.setId(1L);
+        when(bookUploadService.addToLibrary(any(), eq(user))).thenAnswer(invocation ->
+                Thread.currentThread().isVirtual() && Thread.currentThread().getName().equals("ingest-1") ? book : null);
+
+        IngestionJobDTO finished = awaitFinished(ingestionJobService.submit(upload("a"), user).jobId());
+
+        assertEquals(1L, finished.bookId());
+    }
+
+    @Test
+    @DisplayName("getJob should not reveal other users' jobs")
+    void getJob_OtherUser_ThrowsNotFound() {
+        ingestionJobService = new IngestionJobService(bookUploadService, 1, 4, Duration.ofHours(1), false);
+        IngestionJobDTO submitted = ingestionJobService.submit(upload("a"), user);
+
+        assertThrows(ResourceNotFoundException.class, () -> ingestionJobService.getJob(submitted.jobId(), 2L));
+        assertThrows(ResourceNotFoundException.class, () -> ingestionJobService.getJob("missing", user.getId()));
+    }
+
+    @Test
+    @DisplayName("removeFinishedJobs should remove jobs that finished longer ago than the retention period")
+    void removeFinishedJobs_RemovesExpiredJobs() throws Exception {
+        ingestionJobService = new IngestionJobService(bookUploadService, 1, 4, Duration.ZERO, false);
+        when(bookUploadService.addToLibrary(any(), eq(user))).thenReturn(new Book());
+        String jobId = ingestionJobService.submit(upload("a"), user).jobId();
+        awaitFinished(jobId);
+        Thread.sleep(5);
+
+        ingestionJobService.removeFinishedJobs();
+
+        assertThrows(ResourceNotFoundException.class, () -> ingestionJobService.getJob(jobId, user.getId()));
+    }
+
+    private BookUploadService.StoredUpload upload(String name) {
+        try {
+            Path file = Files.writeString(uploadDir.resolve("upload-" + name + ".tmp"), name);
+            return new BookUploadService.StoredUpload(file, name);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private IngestionJobDTO awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            IngestionJobDTO job = ingestionJobService.getJob(jobId, user.getId());
+            if (job.finishedAt() != null) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        fail("Ingestion job did not finish: " + jobId);
+        return null;
+    }
+}
@@ -7,6 +7,7 @@ import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -150,6 +151,40 @@ class JwtServiceTest {
         assertThrows(ExpiredJwtException.class, () -> jwtService.isTokenValid(expiredToken, testUser),  "Expired token should cause isTokenValid to throw ExpiredJwtException.");
     }
 
+    @Test
+    @DisplayName("verifiedUsername should check a token's signature only on first use")
+    void verifiedUsername_RepeatedToken_VerifiedOnce() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        jwtService.bindTo(registry);
+        String token = jwtService.generateToken(testUser);
+
+        assertEquals("testuser", jwtService.verifiedUsername(token));
+        assertEquals("testuser", jwtService.verifiedUsername(token));
+
+        assertEquals(1, registry.get("springreader.jwt.cache.misses").functionCounter().count());
+        assertEquals(1, registry.get("springreader.jwt.cache.hits").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("verifiedUsername should throw for expired tokens and tokens signed with a different key")
+    void verifiedUsername_InvalidTokens_Throw() {
+        String expiredToken = Jwts.builder()
+                .subject(testUser.getUsername())
+                .expiration(new Date(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)))
+                .signWith(TEST_SECRET_KEY)
+                .compact();
+        SecretKey differentKey = Keys.hmacShaKeyFor(Base64.getDecoder().decode("gd8Ru9oWkQLCLiYuPf5AuklFhujbrJL/gRCQhrSXIXM="));
+        String forgedToken = Jwts.builder()
+                .subject(testUser.getUsername())
+                .expiration(new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1)))
+                .signWith(differentKey)
+                .compact();
+        jwtService.verifiedUsername(jwtService.generateToken(testUser));
+
+        assertThrows(ExpiredJwtException.class, () -> jwtService.verifiedUsername(expiredToken));
+        assertThrows(SignatureException.class, () -> jwtService.verifiedUsername(forgedToken));
+    }
+
     // --- Error Handling Tests ---
 
     @Test
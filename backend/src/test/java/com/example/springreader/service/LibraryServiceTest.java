@@ -0,0 +1,293 @@
+package com.example.springreader.service;
+
+import com.example.springreader.exception.ResourceNotFoundException;
+import com.example.springreader.model.Book;
+import com.example.springreader.model.BookMeta;
+import com.example.springreader.model.Chapter;
+import com.example.springreader.model.CoverSize;
+import com.example.springreader.model.PreparedBook;
+import com.example.springreader.model.UserBook;
+import com.example.springreader.repository.BookMetaRepository;
+import com.example.springreader.repository.BookRepository;
+import com.example.springreader.repository.ChapterRepository;
+import com.example.springreader.repository.UserBookRepository;
+import com.example.springreader.utility.EpubArchive;
+import com.example.springreader.utility.EpubArchivePool;
+import com.example.springreader.utility.EpubParser;
+import com.example.springreader.utility.EpubXmlParser;
+import com.example.springreader.utility.TestEpub;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the LibraryService class.
+ * Books are ingested from EPUBs written into a temporary upload directory, with real parsing and stores
+ * and mocked repositories.
+ */
+@ExtendWith(MockitoExtension.class)
+class LibraryServiceTest {
+
+    private static final byte[] META_JSON = "{\"title\":\"Title\",\"chapters\":[]}".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path uploadDir;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private ChapterRepository chapterRepository;
+
+    @Mock
+    private UserBookRepository userBookRepository;
+
+    @Mock
+    private BookMetaRepository bookMetaRepository;
+
+    @Mock
+    private ReadingProgressBuffer progressBuffer;
+
+    @Mock
+    private CompressedChapterBackfill compressedChapterBackfill;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private EpubArchivePool epubArchivePool;
+    private ChapterTextStore chapterTextStore;
+    private BookMetaCache bookMetaCache;
+    private ChapterContentCache chapterContentCache;
+    private LibraryService libraryService;
+
+    @BeforeEach
+    void setUp() {
+        epubArchivePool = new EpubArchivePool(4, EpubArchive.Reader.ZIP_FILE);
+        chapterTextStore = new ChapterTextStore(uploadDir);
+        bookMetaCache = new BookMetaCache(1024 * 1024);
+        chapterContentCache = new ChapterContentCache(1024 * 1024);
+        libraryService = new LibraryService(bookRepository, chapterRepository, userBookRepository, bookMetaRepository,
+                uploadDir, new EpubParser(epubArchivePool, new EpubXmlParser()), chapterContentCache,
+                bookMetaCache, progressBuffer, chapterTextStore, new CompressedChapterStore(uploadDir, objectMapper),
+                compressedChapterBackfill, epubArchivePool, eventPublisher, objectMapper);
+    }
+
+    @AfterEach
+    void tearDown() {
+        epubArchivePool.close();
+    }
+
+    @Test
+    @DisplayName("prepareBook should serialize the book's metadata response for its BookMeta row")
+    void prepareBook_StoresMetaJson() throws Exception {
+        Path epub = new TestEpub().title("A Title").author("An Author")
+                .contentFile("text/one.xhtml", "<h1>One</h1><p>First chapter.</p>")
+                .contentFile("text/two.xhtml", "<h1>Two</h1><p>Second chapter.</p>")
+                .tocEntry("Chapter One", "text/one.xhtml")
+                .tocEntry("Chapter Two", "text/two.xhtml")
+                .write(uploadDir.resolve("book.epub"));
+
+        PreparedBook preparedBook = libraryService.prepareBook(epub.toFile(), "hash");
+
+        JsonNode meta = objectMapper.readTree(preparedBook.metaJson());
+        assertEquals("A Title", meta.get("title").asText());
+        assertEquals("An Author", meta.get("author").asText());
+        assertEquals("hash", meta.get("version").asText());
+        assertEquals(2, meta.get("chapters").size());
+        assertEquals("Chapter Two", meta.get("chapters").get(1).get("title").asText());
+        assertEquals(1, meta.get("chapters").get(1).get("index").asInt());
+
+        Book book = preparedBook.toBook();
+        BookMeta bookMeta = preparedBook.toBookMeta(book);
+        assertSame(book, bookMeta.getBook());
+        assertArrayEquals(preparedBook.metaJson(), bookMeta.getJson());
+    }
+
+    @Test
+    @DisplayName("getBookMetaJson should serve cached metadata without touching the database")
+    void getBookMetaJson_Cached_NoDatabase() throws Exception {
+        bookMetaCache.put(1L, META_JSON);
+
+        assertSame(META_JSON, libraryService.getBookMetaJson(1L));
+
+        verifyNoInteractions(bookMetaRepository, bookRepository, chapterRepository);
+    }
+
+    @Test
+    @DisplayName("getBookMetaJson should read stored metadata once and cache it")
+    void getBookMetaJson_Stored_ReadsOnceAndCaches() throws Exception {
+        when(bookMetaRepository.findJsonByBookId(1L)).thenReturn(Optional.of(META_JSON));
+
+        assertSame(META_JSON, libraryService.getBookMetaJson(1L));
+        assertSame(META_JSON, libraryService.getBookMetaJson(1L));
+
+        verify(bookMetaRepository, times(1)).findJsonByBookId(1L);
+        verify(bookMetaRepository, never()).save(any());
+        verifyNoInteractions(bookRepository, chapterRepository);
+    }
+
+    @Test
+    @DisplayName("getBookMetaJson should build, store and cache the metadata of books ingested without it")
+    void getBookMetaJson_Missing_Backfills() throws Exception {
+        Book book = olderBook();
+        when(bookMetaRepository.findJsonByBookId(1L)).thenReturn(Optional.empty());
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(book));
+        when(chapterRepository.findByBookIdOrderByChapterIndex(1L)).thenReturn(List.of(chapter(0, "First"), chapter(1, "Second")));
+
+        byte[] json = libraryService.getBookMetaJson(1L);
+
+        JsonNode meta = objectMapper.readTree(json);
+        assertEquals("Old Title", meta.get("title").asText());
+        assertEquals("oldhash", meta.get("version").asText());
+        assertEquals("Second", meta.get("chapters").get(1).get("title").asText());
+
+        ArgumentCaptor<BookMeta> saved = ArgumentCaptor.forClass(BookMeta.class);
+        verify(bookMetaRepository).save(saved.capture());
+        assertSame(book, saved.getValue().getBook());
+        assertArrayEquals(json, saved.getValue().getJson());
+        assertSame(json, bookMetaCache.get(1L));
+    }
+
+    @Test
+    @DisplayName("getBookMetaJson should still serve and cache its copy when a concurrent request stored the metadata first")
+    void getBookMetaJson_ConcurrentBackfill_ServesItsCopy() throws Exception {
+        when(bookMetaRepository.findJsonByBookId(1L)).thenReturn(Optional.empty());
+        when(bookRepository.findById(1L)).thenReturn(Optional.of(olderBook()));
+        when(chapterRepository.findByBookIdOrderByChapterIndex(1L)).thenReturn(List.of(chapter(0, "First")));
+        when(bookMetaRepository.save(any(BookMeta.class))).thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        byte[] json = libraryService.getBookMetaJson(1L);
+
+        assertEquals("First", objectMapper.readTree(json).get("chapters").get(0).get("title").asText());
+        assertSame(json, bookMetaCache.get(1L));
+    }
+
+    @Test
+    @DisplayName("getBookMetaJson should throw ResourceNotFoundException for a book that does not exist")
+    void getBookMetaJson_NoBook_Throws() {
+        when(bookMetaRepository.findJsonByBookId(1L)).thenReturn(Optional.empty());
+        when(bookRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> libraryService.getBookMetaJson(1L));
+        assertNull(bookMetaCache.get(1L));
+    }
+
+    @Test
+    @DisplayName("getCoverImage should only report the original as exact for a thumbnail size once thumbnails are generated")
+    void getCoverImage_OriginalForThumbnail_ExactOnceGenerated() throws Exception {
+        Book book = coveredBook();
+        book.setCoverSmallPath("covers/cover-small.jpg");
+        when(userBookRepository.findByUserIdAndBookId(7L, 1L)).thenReturn(Optional.of(userBook(book)));
+
+        assertFalse((Boolean) libraryService.getCoverImage(1L, 7L, CoverSize.MEDIUM).get("exactSize"),
+                "The medium thumbnail may still be generated");
+
+        book.setCoverThumbnailsGenerated(true);
+        Map<String, Object> medium = libraryService.getCoverImage(1L, 7L, CoverSize.MEDIUM);
+        assertTrue((Boolean) medium.get("exactSize"), "A cover narrower than medium is served as is for good");
+        assertEquals("cover.jpg", medium.get("fileName"));
+    }
+
+    @Test
+    @DisplayName("getCoverImage should report thumbnails and the original size as exact")
+    void getCoverImage_ThumbnailOrOriginal_Exact() throws Exception {
+        Book book = coveredBook();
+        book.setCoverSmallPath("covers/cover-small.jpg");
+        when(userBookRepository.findByUserIdAndBookId(7L, 1L)).thenReturn(Optional.of(userBook(book)));
+
+        Map<String, Object> small = libraryService.getCoverImage(1L, 7L, CoverSize.SMALL);
+        assertTrue((Boolean) small.get("exactSize"));
+        assertEquals("cover-small.jpg", small.get("fileName"));
+        assertTrue((Boolean) libraryService.getCoverImage(1L, 7L, CoverSize.ORIGINAL).get("exactSize"));
+    }
+
+    @Test
+    @DisplayName("getChapterContent should parse a shared content file once and cache every chapter it holds")
+    void getChapterContent_SharedContentFile_CachesSiblings() throws Exception {
+        new TestEpub()
+                .contentFile("text/part.xhtml", "<h2 id=\"one\">One</h2><p>First.</p><h2 id=\"two\">Two</h2><p>Second.</p>"
+                        + "<h2 id=\"three\">Three</h2><p>Third.</p>")
+                .tocEntry("One", "text/part.xhtml#one")
+                .tocEntry("Two", "text/part.xhtml#two")
+                .tocEntry("Three", "text/part.xhtml#three")
+                .write(uploadDir.resolve("book.epub"));
+        Book book = olderBook();
+        book.setFilePath("book.epub");
+        List<Chapter> siblings = List.of(sectionChapter(0, "one"), sectionChapter(1, "two"), sectionChapter(2, "three"));
+        when(userBookRepository.findByUserIdAndBookId(7L, 1L)).thenReturn(Optional.of(userBook(book)));
+        when(chapterRepository.findByBookIdAndChapterIndex(1L, 1)).thenReturn(siblings.get(1));
+        when(chapterRepository.findByBookIdAndFilePath(1L, "OEBPS/text/part.xhtml")).thenReturn(siblings);
+
+        assertEquals("Two\n\nSecond.", libraryService.getChapterContent(1L, 7L, 1).content());
+
+        assertEquals("One\n\nFirst.", chapterContentCache.get(1L, 0));
+        assertEquals("Two\n\nSecond.", chapterContentCache.get(1L, 1));
+        assertEquals("Three\n\nThird.", chapterContentCache.get(1L, 2));
+
+        assertEquals("Three\n\nThird.", libraryService.getChapterContent(1L, 7L, 2).content());
+        assertEquals("One\n\nFirst.", libraryService.getChapterContent(1L, 7L, 0).content());
+        verify(chapterRepository, times(1)).findByBookIdAndFilePath(anyLong(), anyString());
+        verify(chapterRepository, times(1)).findByBookIdAndChapterIndex(anyLong(), anyInt());
+    }
+
+    private Book coveredBook() throws IOException {
+        Files.createDirectories(uploadDir.resolve("covers"));
+        Files.write(uploadDir.resolve("covers/cover.jpg"), new byte[]{1});
+        Files.write(uploadDir.resolve("covers/cover-small.jpg"), new byte[]{2});
+        Book book = olderBook();
+        book.setCoverImagePath("covers/cover.jpg");
+        return book;
+    }
+
+    private static UserBook userBook(Book book) {
+        UserBook userBook = new UserBook();
+        userBook.setBook(book);
+        return userBook;
+    }
+
+    private static Book olderBook() {
+        Book book = new Book();
+        book.setId(1L);
+        book.setTitle("Old Title");
+        book.setAuthor("Old Author");
+        book.setContentHash("oldhash");
+        return book;
+    }
+
+    private static Chapter chapter(int index, String title) {
+        Chapter chapter = new Chapter();
+        chapter.setChapterIndex(index);
+        chapter.setTitle(title);
+        return chapter;
+    }
+
+    private static Chapter sectionChapter(int index, String anchor) {
+        Chapter chapter = chapter(index, anchor);
+        chapter.setFilePath("OEBPS/text/part.xhtml");
+        chapter.setAnchor(anchor);
+        return chapter;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.springreader.service;
+
+import com.example.springreader.model.User;
+import com.example.springreader.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the principal cache of the MyUserDetailsService class.
+ */
+class MyUserDetailsServiceTest {
+
+    private UserRepository userRepository;
+    private final User user = new User("reader", "hashedPassword");
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername("reader")).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    @DisplayName("loadAuthenticatedUser should query the repository once while the user is cached")
+    void loadAuthenticatedUser_Cached_QueriesOnce() {
+        MyUserDetailsService service = new MyUserDetailsService(userRepository, Duration.ofMinutes(1), 10);
+
+        assertSame(user, service.loadAuthenticatedUser("reader"));
+        assertSame(user, service.loadAuthenticatedUser("Reader"));
+
+        verify(userRepository, times(1)).findByUsername("reader");
+    }
+
+    @Test
+    @DisplayName("loadAuthenticatedUser should reload evicted and expired users")
+    void loadAuthenticatedUser_EvictedOrExpired_Reloads() {
+        MyUserDetailsService cached = new MyUserDetailsService(userRepository, Duration.ofMinutes(1), 10);
+        cached.loadAuthenticatedUser("reader");
+        cached.evict("READER");
+        cached.loadAuthenticatedUser("reader");
+
+        MyUserDetailsService expiring = new MyUserDetailsService(userRepository, Duration.ZERO, 10);
+        expiring.loadAuthenticatedUser("reader");
+        expiring.loadAuthenticatedUser("reader");
+
+        verify(userRepository, times(4)).findByUsername("reader");
+    }
+
+    @Test
+    @DisplayName("loadAuthenticatedUser should not cache unknown users")
+    void loadAuthenticatedUser_UnknownUser_Throws() {
+        MyUserDetailsService service = new MyUserDetailsService(userRepository, Duration.ofMinutes(1), 10);
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> service.loadAuthenticatedUser("ghost"));
+        assertThrows(UsernameNotFoundException.class, () -> service.loadAuthenticatedUser("ghost"));
+
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+}
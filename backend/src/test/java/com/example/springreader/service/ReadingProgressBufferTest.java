@@ -0,0 +1,132 @@
+package com.example.springreader.service;
+
+import com.example.springreader.exception.ProgressBufferFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the ReadingProgressBuffer class.
+ * Verifies that progress is coalesced per user and book, written in one batch, kept when the write fails,
+ * and bounded without ever being written by the saving thread.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReadingProgressBufferTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private ReadingProgressBuffer buffer;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new ReadingProgressBuffer(jdbcTemplate, taskScheduler, 100);
+        registry = new SimpleMeterRegistry();
+        buffer.bindTo(registry);
+    }
+
+    @Test
+    @DisplayName("flush should write only the latest progress of each book, in one batch")
+    @SuppressWarnings("unchecked")
+    void flush_WritesLatestProgressOnce() {
+        buffer.record(1L, 7L, 1);
+        buffer.record(1L, 7L, 2);
+        buffer.record(1L, 7L, 3);
+        buffer.record(2L, 7L, 5);
+
+        assertEquals(3, buffer.get(1L, 7L).chapterIndex());
+        buffer.flush();
+
+        ArgumentCaptor<Collection<Map.Entry<?, ReadingProgressBuffer.PendingProgress>>> batch = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(List.of(3, 5), batch.getValue().stream().map(entry -> entry.getValue().chapterIndex()).sorted().toList());
+        assertNull(buffer.get(1L, 7L));
+        assertTrue(buffer.isEmpty());
+        assertEquals(4, registry.get("springreader.progress.recorded").functionCounter().count());
+        assertEquals(2, registry.get("springreader.progress.written").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("flush should keep progress pending when the write fails, and not write an empty buffer")
+    @SuppressWarnings("unchecked")
+    void flush_WriteFails_KeepsProgress() {
+        buffer.flush();
+        verifyNoInteractions(jdbcTemplate);
+
+        buffer.record(1L, 7L, 3);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("database unavailable"));
+
+        buffer.flush();
+
+        assertEquals(3, buffer.get(1L, 7L).chapterIndex());
+    }
+
+    @Test
+    @DisplayName("record should reject new books once the buffer is full, still accept pending books, and never write itself")
+    void record_FullBuffer_RejectsNewBooks() {
+        ReadingProgressBuffer smallBuffer = new ReadingProgressBuffer(jdbcTemplate, taskScheduler, 4);
+        for (long bookId = 1; bookId <= 4; bookId++) {
+            smallBuffer.record(1L, bookId, 0);
+        }
+
+        assertThrows(ProgressBufferFullException.class, () -> smallBuffer.record(1L, 5L, 0));
+        smallBuffer.record(1L, 4L, 9);
+
+        assertNull(smallBuffer.get(1L, 5L));
+        assertEquals(9, smallBuffer.get(1L, 4L).chapterIndex());
+        //One early flush is handed to the scheduler while it has not run
+        verify(taskScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("record should leave retries to the scheduled flush after a write failed")
+    @SuppressWarnings("unchecked")
+    void record_AfterFailedFlush_DoesNotScheduleEarlyFlush() {
+        ReadingProgressBuffer smallBuffer = new ReadingProgressBuffer(jdbcTemplate, taskScheduler, 4);
+        smallBuffer.record(1L, 1L, 0);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("database unavailable"));
+        smallBuffer.flush();
+
+        smallBuffer.record(1L, 2L, 0);
+        smallBuffer.record(1L, 3L, 0);
+
+        verifyNoInteractions(taskScheduler);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    @DisplayName("discard should drop the pending progress of a book")
+    void discard_RemovesProgress() {
+        buffer.record(1L, 7L, 3);
+        buffer.record(1L, 8L, 4);
+
+        buffer.discard(1L, 7L);
+
+        assertNull(buffer.get(1L, 7L));
+        assertNotNull(buffer.get(1L, 8L));
+    }
+}
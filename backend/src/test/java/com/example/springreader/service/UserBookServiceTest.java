@@ -0,0 +1,175 @@
+package com.example.springreader.service;
+
+import com.example.springreader.dto.BookDTO;
+import com.example.springreader.dto.LibraryPageDTO;
+import com.example.springreader.dto.UserBookProgressDTO;
+import com.example.springreader.exception.ResourceNotFoundException;
+import com.example.springreader.model.LibrarySort;
+import com.example.springreader.model.User;
+import com.example.springreader.repository.UserBookRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the keyset pagination and buffered reading progress of the UserBookService class.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserBookServiceTest {
+
+    @Mock
+    private UserBookRepository userBookRepository;
+    @Mock
+    private ReadingProgressBuffer progressBuffer;
+
+    @InjectMocks
+    private UserBookService userBookService;
+
+    @Test
+    @DisplayName("getLibraryPage should return a cursor that continues after the last book of the page")
+    void getLibraryPage_MoreBooks_ContinuesAfterLastBook() {
+        when(userBookRepository.findLibraryByAuthor(1L, null, null, null, PageRequest.of(0, 3)))
+                .thenReturn(List.of(book(10L, "A. Title"), book(11L, "B.Title"), book(12L, "C")));
+
+        LibraryPageDTO firstPage = userBookService.getLibraryPage(1L, LibrarySort.AUTHOR, null, 2);
+
+        assertEquals(List.of(10L, 11L), firstPage.books().stream().map(BookDTO::getId).toList());
+        assertNotNull(firstPage.nextCursor());
+
+        when(userBookRepository.findLibraryByAuthor(1L, "Author", "B.Title", 11L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(book(12L, "C")));
+
+        LibraryPageDTO lastPage = userBookService.getLibraryPage(1L, LibrarySort.AUTHOR, firstPage.nextCursor(), 2);
+
+        assertEquals(List.of(12L), lastPage.books().stream().map(BookDTO::getId).toList());
+        assertNull(lastPage.nextCursor());
+    }
+
+    @Test
+    @DisplayName("getLibraryPage should continue recently read pages from the last book's read time")
+    void getLibraryPage_Recent_ContinuesFromReadTime() {
+        Instant readAt = Instant.parse("2026-01-02T03:04:05.123456Z");
+        BookDTO last = book(5L, "Title");
+        last.setLastReadAt(readAt);
+        when(userBookRepository.findLibraryByRecent(1L, null, null, PageRequest.of(0, 2)))
+                .thenReturn(List.of(last, book(4L, "Title")));
+
+        String cursor = userBookService.getLibraryPage(1L, LibrarySort.RECENT, null, 1).nextCursor();
+        userBookService.getLibraryPage(1L, LibrarySort.RECENT, cursor, 1);
+
+        verify(userBookRepository).findLibraryByRecent(1L, readAt, 5L, PageRequest.of(0, 2));
+    }
+
+    @Test
+    @DisplayName("getLibraryPage should continue after a book without a title or author as if they were empty")
+    void getLibraryPage_NullTitle_ContinuesAfterEmptyKey() {
+        BookDTO untitled = new BookDTO(3L, null, null, 0, null, "hash3", Instant.EPOCH);
+        when(userBookRepository.findLibraryByTitle(1L, null, null, PageRequest.of(0, 2)))
+                .thenReturn(List.of(untitled, book(4L, "A")));
+        when(userBookRepository.findLibraryByAuthor(1L, null, null, null, PageRequest.of(0, 2)))
+                .thenReturn(List.of(untitled, book(4L, "A")));
+
+        String titleCursor = userBookService.getLibraryPage(1L, LibrarySort.TITLE, null, 1).nextCursor();
+        String authorCursor = userBookService.getLibraryPage(1L, LibrarySort.AUTHOR, null, 1).nextCursor();
+        userBookService.getLibraryPage(1L, LibrarySort.TITLE, titleCursor, 1);
+        userBookService.getLibraryPage(1L, LibrarySort.AUTHOR, authorCursor, 1);
+
+        verify(userBookRepository).findLibraryByTitle(1L, "", 3L, PageRequest.of(0, 2));
+        verify(userBookRepository).findLibraryByAuthor(1L, "", "", 3L, PageRequest.of(0, 2));
+    }
+
+    @Test
+    @DisplayName("getLibraryPage should reject invalid limits, invalid cursors and cursors of another order")
+    void getLibraryPage_InvalidArguments_Throws() {
+        when(userBookRepository.findLibraryByTitle(1L, null, null, PageRequest.of(0, 2)))
+                .thenReturn(List.of(book(1L, "A"), book(2L, "B")));
+        String titleCursor = userBookService.getLibraryPage(1L, LibrarySort.TITLE, null, 1).nextCursor();
+
+        assertThrows(IllegalArgumentException.class, () -> userBookService.getLibraryPage(1L, LibrarySort.TITLE, null, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> userBookService.getLibraryPage(1L, LibrarySort.TITLE, null, UserBookService.MAX_LIBRARY_PAGE_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> userBookService.getLibraryPage(1L, LibrarySort.TITLE, "not a cursor!", 1));
+        assertThrows(IllegalArgumentException.class, () -> userBookService.getLibraryPage(1L, LibrarySort.RECENT, titleCursor, 1));
+        verify(userBookRepository, never()).findLibraryByRecent(any(), any(), any(), any());
+        verify(userBookRepository, times(1)).findLibraryByTitle(eq(1L), isNull(), isNull(), any());
+    }
+
+    @Test
+    @DisplayName("saveBookProgress should buffer progress, checking the library only when none is pending")
+    void saveBookProgress_BuffersProgress() {
+        User user = new User("reader", "password");
+        user.setId(1L);
+        when(userBookRepository.existsByUserIdAndBookId(1L, 7L)).thenReturn(true);
+        when(progressBuffer.get(1L, 7L))
+                .thenReturn(null)
+                .thenReturn(new ReadingProgressBuffer.PendingProgress(3, Instant.EPOCH));
+
+        userBookService.saveBookProgress(new UserBookProgressDTO(7L, 3), user);
+        userBookService.saveBookProgress(new UserBookProgressDTO(7L, 4), user);
+
+        verify(userBookRepository, times(1)).existsByUserIdAndBookId(1L, 7L);
+        verify(progressBuffer).record(1L, 7L, 3);
+        verify(progressBuffer).record(1L, 7L, 4);
+        verify(userBookRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("saveBookProgress should reject books that are not in the user's library")
+    void saveBookProgress_NotInLibrary_Throws() {
+        User user = new User("reader", "password");
+        user.setId(1L);
+        when(userBookRepository.existsByUserIdAndBookId(1L, 7L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> userBookService.saveBookProgress(new UserBookProgressDTO(7L, 3), user));
+
+        verify(progressBuffer, never()).record(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("getLibraryPage should show pending progress but continue from the stored read time")
+    void getLibraryPage_PendingProgress_Overlaid() {
+        Instant storedReadAt = Instant.parse("2026-01-02T03:04:05Z");
+        Instant pendingReadAt = Instant.parse("2026-01-03T00:00:00Z");
+        BookDTO last = book(5L, "Title");
+        last.setLastReadAt(storedReadAt);
+        when(userBookRepository.findLibraryByRecent(1L, null, null, PageRequest.of(0, 2)))
+                .thenReturn(List.of(last, book(4L, "Title")));
+        when(progressBuffer.get(1L, 5L)).thenReturn(new ReadingProgressBuffer.PendingProgress(9, pendingReadAt));
+
+        LibraryPageDTO page = userBookService.getLibraryPage(1L, LibrarySort.RECENT, null, 1);
+
+        assertEquals(9, page.books().get(0).getLastChapterIndex());
+        assertEquals(pendingReadAt, page.books().get(0).getLastReadAt());
+        userBookService.getLibraryPage(1L, LibrarySort.RECENT, page.nextCursor(), 1);
+        verify(userBookRepository).findLibraryByRecent(1L, storedReadAt, 5L, PageRequest.of(0, 2));
+    }
+
+    @Test
+    @DisplayName("getBookProgress should return pending progress without querying the database")
+    void getBookProgress_PendingProgress_ReadsBuffer() {
+        User user = new User("reader", "password");
+        user.setId(1L);
+        when(progressBuffer.get(1L, 7L)).thenReturn(new ReadingProgressBuffer.PendingProgress(4, Instant.EPOCH));
+
+        assertEquals(4, userBookService.getBookProgress(7L, user));
+
+        verify(userBookRepository, never()).findByUserIdAndBookId(any(), any());
+    }
+
+    private static BookDTO book(Long id, String title) {
+        return new BookDTO(id, title, "Author", 0, null, "hash" + id, Instant.EPOCH);
+    }
+}
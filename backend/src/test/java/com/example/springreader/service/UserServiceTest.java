@@ -1,6 +1,7 @@
 package com.example.springreader.service;
 
 import com.example.springreader.dto.LoginRequest;
+import com.example.springreader.exception.PasswordHashingBusyException;
 import com.example.springreader.exception.UsernameAlreadyExistsException;
 import com.example.springreader.model.Book;
 import com.example.springreader.model.User;
@@ -13,13 +14,18 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -43,6 +49,10 @@ class UserServiceTest {
     private BookRepository bookRepository;
     @Mock
     private UserBookRepository userBookRepository;
+    @Mock
+    private MyUserDetailsService userDetailsService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
 
     @InjectMocks
     private UserService userService;
@@ -63,6 +73,12 @@ class UserServiceTest {
 
         loginRequest = new LoginRequest("testuser", "rawPassword");
         registrationRequest = new LoginRequest("newuser", "newPassword");
+
+        //Runs transaction callbacks directly
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
     }
 
     // --- Authentication Tests ---
@@ -127,6 +143,47 @@ class UserServiceTest {
         verify(jwtService, never()).generateToken(any(User.class));
     }
 
+    @Test
+    @DisplayName("authenticate should re-hash the password when its hash uses a lower cost than configured")
+    void authenticate_OutdatedHash_UpgradesHash() {
+        when(userRepository.findByUsername(loginRequest.username()))
+                .thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches(loginRequest.password(), "hashedPassword"))
+                .thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("hashedPassword"))
+                .thenReturn(true);
+        when(passwordEncoder.encode(loginRequest.password()))
+                .thenReturn("strongerHash");
+        when(jwtService.generateToken(testUser))
+                .thenReturn("mockJwtToken");
+
+        assertEquals("mockJwtToken", userService.authenticate(loginRequest));
+
+        assertEquals("strongerHash", testUser.getPassword());
+        verify(userRepository).save(testUser);
+        verify(userDetailsService).evict("testuser");
+    }
+
+    @Test
+    @DisplayName("authenticate should still succeed without upgrading the hash when password hashing is busy")
+    void authenticate_OutdatedHashWhileBusy_SkipsUpgrade() {
+        when(userRepository.findByUsername(loginRequest.username()))
+                .thenReturn(Optional.of(testUser));
+        when(passwordEncoder.matches(loginRequest.password(), "hashedPassword"))
+                .thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("hashedPassword"))
+                .thenReturn(true);
+        when(passwordEncoder.encode(loginRequest.password()))
+                .thenThrow(new PasswordHashingBusyException("busy"));
+        when(jwtService.generateToken(testUser))
+                .thenReturn("mockJwtToken");
+
+        assertEquals("mockJwtToken", userService.authenticate(loginRequest));
+
+        assertEquals("hashedPassword", testUser.getPassword());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
     // --- Registration Tests ---
 
     @Test
@@ -152,6 +209,7 @@ class UserServiceTest {
         verify(userRepository).findByUsername(registrationRequest.username());
         verify(passwordEncoder).encode(registrationRequest.password());
         verify(userRepository).save(userCaptor.capture()); // Capture the saved User
+        verify(userDetailsService).evict("newuser");
         verify(bookRepository).findByisDefaultTrue();
         verify(userBookRepository).save(userBookCaptor.capture()); // Capture the saved UserBook
 
@@ -166,6 +224,38 @@ class UserServiceTest {
         assertEquals(defaultBook.getId(), savedUserBook.getBook().getId());
     }
 
+    @Test
+    @DisplayName("register should hash the password before starting its transaction")
+    void register_HashesOutsideTransaction() {
+        when(userRepository.findByUsername(registrationRequest.username()))
+                .thenReturn(Optional.empty());
+        when(passwordEncoder.encode(registrationRequest.password()))
+                .thenReturn("encodedNewPassword");
+
+        userService.register(registrationRequest);
+
+        InOrder inOrder = inOrder(userRepository, passwordEncoder, transactionTemplate);
+        inOrder.verify(userRepository).findByUsername("newuser");
+        inOrder.verify(passwordEncoder).encode("newPassword");
+        inOrder.verify(transactionTemplate).executeWithoutResult(any());
+        inOrder.verify(userRepository).save(any(User.class));
+    }
+
+    @Test
+    @DisplayName("register should throw UsernameAlreadyExistsException if the username was registered concurrently")
+    void register_ConcurrentRegistration_Throws() {
+        when(userRepository.findByUsername(registrationRequest.username()))
+                .thenReturn(Optional.empty());
+        when(passwordEncoder.encode(registrationRequest.password()))
+                .thenReturn("encodedNewPassword");
+        doThrow(new DataIntegrityViolationException("duplicate username"))
+                .when(transactionTemplate).executeWithoutResult(any());
+
+        assertThrows(UsernameAlreadyExistsException.class, () -> userService.register(registrationRequest));
+
+        verify(userDetailsService, never()).evict(anyString());
+    }
+
     @Test
     @DisplayName("register should throw UsernameAlreadyExistsException if username exists")
     void register_UsernameExists() {
@@ -0,0 +1,102 @@
+package com.example.springreader.utility;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the BoundedByteCache class.
+ * Verifies byte based eviction, LRU ordering, invalidation and the hit/miss/eviction counters.
+ */
+class BoundedByteCacheTest {
+
+    @Test
+    @DisplayName("get should return cached value and count hits and misses")
+    void get_CountsHitsAndMisses() {
+        BoundedByteCache<String, String> cache = new BoundedByteCache<>(100, String::length);
+        cache.put("a", "aaaa");
+
+        assertEquals("aaaa", cache.get("a"));
+        assertNull(cache.get("b"));
+
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(4, cache.sizeInBytes());
+    }
+
+    @Test
+    @DisplayName("put should evict least recently used entries once the byte budget is exceeded")
+    void put_EvictsLeastRecentlyUsed() {
+        BoundedByteCache<String, String> cache = new BoundedByteCache<>(10, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.get("a"); //"b" is now least recently used
+
+        cache.put("c", "cccc");
+
+        assertNull(cache.get("b"), "Least recently used entry should be evicted");
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.evictionCount());
+        assertEquals(8, cache.sizeInBytes());
+    }
+
+    @Test
+    @DisplayName("put should skip values larger than the whole budget")
+    void put_ValueLargerThanBudget_NotCached() {
+        BoundedByteCache<String, String> cache = new BoundedByteCache<>(3, String::length);
+        cache.put("a", "aaaa");
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.sizeInBytes());
+    }
+
+    @Test
+    @DisplayName("put should replace an existing value and adjust the size")
+    void put_ReplacesExistingValue() {
+        BoundedByteCache<String, String> cache = new BoundedByteCache<>(100, String::length);
+        cache.put("a", "aaaa");
+        cache.put("a", "aa");
+
+        assertEquals("aa", cache.get("a"));
+        assertEquals(2, cache.sizeInBytes());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("invalidateIf should remove only matching keys")
+    void invalidateIf_RemovesMatchingKeys() {
+        BoundedByteCache<String, String> cache = new BoundedByteCache<>(100, String::length);
+        cache.put("book1-0", "aaaa");
+        cache.put("book1-1", "bbbb");
+        cache.put("book2-0", "cccc");
+
+        cache.invalidateIf(key -> key.startsWith("book1"));
+
+        assertEquals(1, cache.size());
+        assertEquals(4, cache.sizeInBytes());
+        assertNotNull(cache.get("book2-0"));
+    }
+
+    @Test
+    @DisplayName("invalidate should remove a single key and adjust the size")
+    void invalidate_RemovesKey() {
+        BoundedByteCache<String, String> cache = new BoundedByteCache<>(100, String::length);
+        cache.put("a", "aaaa");
+        cache.put("b", "bb");
+
+        cache.invalidate("a");
+        cache.invalidate("missing");
+
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.sizeInBytes());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    @DisplayName("Constructor should reject a non positive budget")
+    void constructor_InvalidBudget() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedByteCache<String, String>(0, String::length));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.springreader.utility;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the EpubArchivePool class.
+ * Verifies handle reuse, LRU trimming of idle handles and reference counted eviction with each archive reader.
+ */
+class EpubArchivePoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @EnumSource(EpubArchive.Reader.class)
+    @DisplayName("acquire should reuse the open handle for the same path")
+    void acquire_SamePath_ReusesHandle(EpubArchive.Reader reader) throws IOException {
+        EpubArchivePool pool = new EpubArchivePool(4, reader);
+        Path zip = createZip("a.zip");
+
+        try (EpubArchivePool.Lease first = pool.acquire(zip); EpubArchivePool.Lease second = pool.acquire(zip)) {
+            assertSame(first.archive(), second.archive());
+        }
+        assertEquals(1, pool.openCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(EpubArchive.Reader.class)
+    @DisplayName("acquire should close idle handles least recently used first once over the cap")
+    void acquire_OverCap_ClosesLeastRecentlyUsedIdleHandle(EpubArchive.Reader reader) throws IOException {
+        EpubArchivePool pool = new EpubArchivePool(2, reader);
+        Path a = createZip("a.zip");
+        Path b = createZip("b.zip");
+        Path c = createZip("c.zip");
+
+        EpubArchive archiveA;
+        try (EpubArchivePool.Lease lease = pool.acquire(a)) {
+            archiveA = lease.archive();
+        }
+        try (EpubArchivePool.Lease lease = pool.acquire(b)) {
+            assertNotNull(lease.archive());
+        }
+        try (EpubArchivePool.Lease lease = pool.acquire(c)) {
+            assertNotNull(lease.archive());
+        }
+
+        assertEquals(2, pool.openCount());
+        assertThrows(IllegalStateException.class, archiveA::size, "Least recently used handle should be closed");
+    }
+
+    @ParameterizedTest
+    @EnumSource(EpubArchive.Reader.class)
+    @DisplayName("evict should keep a leased handle open until its last reader releases it")
+    void evict_WhileLeased_ClosesAfterRelease(EpubArchive.Reader reader) throws IOException {
+        EpubArchivePool pool = new EpubArchivePool(4, reader);
+        Path zip = createZip("a.zip");
+
+        EpubArchivePool.Lease lease = pool.acquire(zip);
+        pool.evict(zip);
+
+        assertEquals(0, pool.openCount());
+        assertEquals(1, lease.archive().size(), "Leased handle should stay usable after eviction");
+
+        lease.close();
+        assertThrows(IllegalStateException.class, () -> lease.archive().size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(EpubArchive.Reader.class)
+    @DisplayName("acquire should throw for files that are not zip archives")
+    void acquire_InvalidZip_Throws(EpubArchive.Reader reader) throws IOException {
+        EpubArchivePool pool = new EpubArchivePool(4, reader);
+        Path notZip = Files.writeString(tempDir.resolve("invalid.txt"), "not a zip");
+
+        assertThrows(IOException.class, () -> pool.acquire(notZip));
+        assertEquals(0, pool.openCount());
+    }
+
+    private Path createZip(String name) throws IOException {
+        Path path = tempDir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(path); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("mimetype"));
+            zip.write("application/epub+zip".getBytes());
+            zip.closeEntry();
+        }
+        return path;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.springreader.utility;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EpubParser.parseContentFile.
+ * Segments a content file holding several chapters, written into a small EPUB in a temporary directory.
+ */
+class EpubParserContentFileTest {
+
+    private static final String CONTENT_FILE = "OEBPS/text/part.xhtml";
+
+    @TempDir
+    Path tempDir;
+
+    private EpubArchivePool epubArchivePool;
+    private EpubParser epubParser;
+    private Path epub;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        epubArchivePool = new EpubArchivePool(4, EpubArchive.Reader.ZIP_FILE);
+        epubParser = new EpubParser(epubArchivePool, new EpubXmlParser());
+        epub = new TestEpub()
+                .contentFile("text/part.xhtml", """
+                        <h2 id="one">One</h2><p>First paragraph.</p><p>Second paragraph.</p>
+                        <h2 id="two">Two</h2><p>Third paragraph.</p><div>Skipped container.</div><p>Fourth paragraph.</p>
+                        <h2 id="three">Three</h2><p>Last paragraph.</p>""")
+                .tocEntry("One", "text/part.xhtml#one")
+                .tocEntry("Two", "text/part.xhtml#two")
+                .tocEntry("Three", "text/part.xhtml#three")
+                .write(tempDir.resolve("book.epub"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        epubArchivePool.close();
+    }
+
+    @Test
+    @DisplayName("parseContentFile should give each anchor the text up to the next sibling anchor")
+    void parseContentFile_SiblingAnchors_Segmented() throws Exception {
+        Map<String, String> texts = epubParser.parseContentFile(epub, CONTENT_FILE, List.of("one", "two", "three"));
+
+        assertEquals(List.of("one", "two", "three"), List.copyOf(texts.keySet()));
+        assertEquals("One\n\nFirst paragraph.\n\nSecond paragraph.", texts.get("one"));
+        assertEquals("Two\n\nThird paragraph.\n\nFourth paragraph.", texts.get("two"));
+        assertEquals("Three\n\nLast paragraph.", texts.get("three"));
+    }
+
+    @Test
+    @DisplayName("parseContentFile should match parseContent for every anchor, in the order given")
+    void parseContentFile_MatchesParseContent() throws Exception {
+        Map<String, String> texts = epubParser.parseContentFile(epub, CONTENT_FILE, List.of("three", "", "one"));
+
+        assertEquals(List.of("three", "", "one"), List.copyOf(texts.keySet()));
+        for (Map.Entry<String, String> text : texts.entrySet()) {
+            assertEquals(epubParser.parseContent(epub, CONTENT_FILE, text.getKey()), text.getValue(), text.getKey());
+        }
+        assertTrue(texts.get("").startsWith("One\n\nTwo\n\nThree\n\nFirst paragraph."), "No anchor covers the whole file");
+    }
+
+    @Test
+    @DisplayName("parseContentFile should keep a repeated anchor once and report a missing one")
+    void parseContentFile_RepeatedAndMissingAnchors() throws Exception {
+        Map<String, String> texts = epubParser.parseContentFile(epub, CONTENT_FILE, List.of("two", "missing", "two"));
+
+        assertEquals(2, texts.size());
+        assertEquals("Two\n\nThird paragraph.\n\nFourth paragraph.", texts.get("two"));
+        assertEquals("Anchor not found: missing", texts.get("missing"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.springreader.utility;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the EpubSignature class, against ZIP archives written with java.util.zip.
+ */
+class EpubSignatureTest {
+
+    @Test
+    @DisplayName("verify should accept an archive starting with the stored mimetype entry")
+    void verify_StoredMimetype_Accepts() throws IOException {
+        byte[] epub = archive("mimetype", "application/epub+zip", true);
+
+        assertDoesNotThrow(() -> verifyPrefix(epub));
+    }
+
+    @Test
+    @DisplayName("verify should accept a compressed mimetype entry without checking its content")
+    void verify_CompressedMimetype_Accepts() throws IOException {
+        byte[] epub = archive("mimetype", "application/epub+zip", false);
+
+        assertDoesNotThrow(() -> verifyPrefix(epub));
+    }
+
+    @Test
+    @DisplayName("verify should reject content that is not a ZIP archive, or too short to be one")
+    void verify_NotZip_Rejects() {
+        byte[] text = "<html>not an epub</html>".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class, () -> verifyPrefix(text));
+        assertThrows(IllegalArgumentException.class, () -> verifyPrefix(new byte[]{'P', 'K', 3, 4}));
+    }
+
+    @Test
+    @DisplayName("verify should reject archives whose first entry is not an EPUB mimetype entry")
+    void verify_WrongFirstEntry_Rejects() throws IOException {
+        byte[] otherEntry = archive("META-INF/container.xml", "<container/>", true);
+        byte[] longerName = archive("mimetypes", "application/epub+zip", true);
+        byte[] wrongMediaType = archive("mimetype", "application/zip", true);
+
+        assertThrows(IllegalArgumentException.class, () -> verifyPrefix(otherEntry));
+        assertThrows(IllegalArgumentException.class, () -> verifyPrefix(longerName));
+        assertThrows(IllegalArgumentException.class, () -> verifyPrefix(wrongMediaType));
+    }
+
+    private static void verifyPrefix(byte[] upload) {
+        byte[] prefix = Arrays.copyOf(upload, Math.min(upload.length, EpubSignature.PREFIX_BYTES));
+        EpubSignature.verify(prefix, prefix.length);
+    }
+
+    private static byte[] archive(String firstEntry, String content, boolean stored) throws IOException {
+        byte[] data = content.getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            ZipEntry entry = new ZipEntry(firstEntry);
+            if (stored) {
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(data.length);
+                entry.setCrc(crc.getValue());
+            }
+            zip.putNextEntry(entry);
+            zip.write(data);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("OEBPS/content.opf"));
+            zip.write("<package/>".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+}
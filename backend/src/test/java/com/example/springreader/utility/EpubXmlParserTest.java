@@ -0,0 +1,135 @@
+package com.example.springreader.utility;
+
+import com.example.springreader.exception.EpubProcessingException;
+import com.example.springreader.model.NavPoint;
+import com.example.springreader.model.OpfData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the EpubXmlParser class.
+ * Reads container.xml, OPF and NCX documents from in-memory strings.
+ */
+class EpubXmlParserTest {
+
+    private final EpubXmlParser epubXmlParser = new EpubXmlParser();
+
+    @Test
+    @DisplayName("readRootFilePath should return the full-path of the first rootfile")
+    void readRootFilePath_ReturnsFirstRootFile() throws EpubProcessingException {
+        String container = """
+                <?xml version="1.0"?>
+                <container version="1.0" xmlns="urn:oasis:names:tc:opendocument:xmlns:container">
+                  <rootfiles>
+                    <rootfile full-path="OEBPS/content.opf" media-type="application/oebps-package+xml"/>
+                    <rootfile full-path="other.opf" media-type="application/oebps-package+xml"/>
+                  </rootfiles>
+                </container>
+                """;
+
+        assertEquals("OEBPS/content.opf", epubXmlParser.readRootFilePath(stream(container)));
+    }
+
+    @Test
+    @DisplayName("readOpf should read the first title and creator and resolve manifest paths")
+    void readOpf_ReadsMetadataAndManifest() throws EpubProcessingException {
+        String opf = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <package xmlns="http://www.idpf.org/2007/opf" version="3.0">
+                  <metadata xmlns:dc="http://purl.org/dc/elements/1.1/">
+                    <dc:title>Main Title</dc:title>
+                    <dc:title>Subtitle</dc:title>
+                    <dc:creator>Jane Doe</dc:creator>
+                  </metadata>
+                  <manifest>
+                    <item id="ncx" href="toc.ncx" media-type="application/x-dtbncx+xml"/>
+                    <item id="cover" href="../images/cover.jpg" media-type="image/jpeg" properties="cover-image"/>
+                  </manifest>
+                  <spine toc="ncx"><itemref idref="ncx"/></spine>
+                </package>
+                """;
+
+        OpfData opfData = epubXmlParser.readOpf(stream(opf), "OEBPS/content.opf");
+
+        assertEquals("Main Title", opfData.title());
+        assertEquals("Jane Doe", opfData.author());
+        assertEquals("OEBPS", opfData.opfParent());
+        assertEquals(List.of("ncx", "cover"), List.copyOf(opfData.manifest().keySet()));
+        assertEquals("OEBPS/toc.ncx", opfData.manifest().get("ncx").path());
+        assertEquals("images/cover.jpg", opfData.manifest().get("cover").path());
+        assertEquals("cover-image", opfData.manifest().get("cover").properties());
+        assertEquals("", opfData.manifest().get("ncx").properties());
+    }
+
+    @Test
+    @DisplayName("readNavPoints should return nested navPoints in document order with depth and parent")
+    void readNavPoints_NestedNavPoints() throws EpubProcessingException {
+        String ncx = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <!DOCTYPE ncx PUBLIC "-//NISO//DTD ncx 2005-1//EN" "http://www.daisy.org/z3986/2005/ncx-2005-1.dtd">
+                <ncx xmlns="http://www.daisy.org/z3986/2005/ncx/" version="2005-1">
+                  <navMap>
+                    <navPoint id="p1">
+                      <navLabel><text>Part &amp; One</text></navLabel>
+                      <content src="one.xhtml"/>
+                      <navPoint id="p1c1">
+                        <navLabel><text><![CDATA[Chapter]]> 1</text></navLabel>
+                        <content src="one.xhtml#c1"/>
+                      </navPoint>
+                    </navPoint>
+                    <navPoint id="p2">
+                      <navLabel><text>Part Two</text></navLabel>
+                      <content src="two.xhtml"/>
+                    </navPoint>
+                  </navMap>
+                </ncx>
+                """;
+
+        List<NavPoint> navPoints = epubXmlParser.readNavPoints(stream(ncx));
+
+        assertEquals(List.of(
+                new NavPoint("p1", "Part & One", "one.xhtml", 0, -1),
+                new NavPoint("p1c1", "Chapter 1", "one.xhtml#c1", 1, 0),
+                new NavPoint("p2", "Part Two", "two.xhtml", 0, -1)
+        ), navPoints);
+    }
+
+    @Test
+    @DisplayName("readNavPoints should take a missing label and src from the first nested navPoint")
+    void readNavPoints_MissingLabelAndSrc_UsesFirstDescendant() throws EpubProcessingException {
+        String ncx = """
+                <ncx><navMap>
+                  <navPoint id="outer">
+                    <navPoint id="inner">
+                      <navLabel><text>Inner</text></navLabel>
+                      <content src="inner.xhtml"/>
+                    </navPoint>
+                  </navPoint>
+                  <navPoint id="empty"><navLabel><text>Empty</text></navLabel></navPoint>
+                </navMap></ncx>
+                """;
+
+        List<NavPoint> navPoints = epubXmlParser.readNavPoints(stream(ncx));
+
+        assertEquals(new NavPoint("outer", "Inner", "inner.xhtml", 0, -1), navPoints.get(0));
+        assertNull(navPoints.get(2).src(), "navPoint without content should have no src");
+    }
+
+    @Test
+    @DisplayName("readNavPoints should throw EpubProcessingException for malformed XML")
+    void readNavPoints_MalformedXml_Throws() {
+        assertThrows(EpubProcessingException.class,
+                () -> epubXmlParser.readNavPoints(stream("<ncx><navMap><navPoint></navMap></ncx>")));
+    }
+
+    private static InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.springreader.utility;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the MappedEpubArchive class.
+ * Reads archives written with ZipOutputStream and checks the content against java.util.zip.ZipFile.
+ */
+class MappedEpubArchiveTest {
+
+    private static final byte[] MIMETYPE = "application/epub+zip".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CHAPTER = "<html><body><p>Chapter text é</p></body></html>".repeat(500).getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("getInputStream should return the same content as ZipFile for stored and deflated entries")
+    void getInputStream_MatchesZipFile() throws IOException {
+        Path epub = createEpub("book.epub", null);
+
+        try (MappedEpubArchive archive = MappedEpubArchive.open(epub); ZipFile zipFile = new ZipFile(epub.toFile())) {
+            assertEquals(zipFile.size(), archive.size());
+            for (String entryPath : new String[]{"mimetype", "OEBPS/chapter.xhtml"}) {
+                try (InputStream mapped = archive.getInputStream(entryPath);
+                     InputStream expected = zipFile.getInputStream(zipFile.getEntry(entryPath))) {
+                    assertArrayEquals(expected.readAllBytes(), mapped.readAllBytes(), entryPath);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("getStoredContent should return a read-only view of stored entries only")
+    void getStoredContent_StoredEntriesOnly() throws IOException {
+        Path epub = createEpub("book.epub", null);
+
+        try (MappedEpubArchive archive = MappedEpubArchive.open(epub)) {
+            ByteBuffer mimetype = archive.getStoredContent("mimetype").orElseThrow();
+            byte[] content = new byte[mimetype.remaining()];
+            mimetype.get(content);
+
+            assertArrayEquals(MIMETYPE, content);
+            assertTrue(mimetype.isReadOnly());
+            assertEquals(Optional.empty(), archive.getStoredContent("OEBPS/chapter.xhtml"));
+        }
+    }
+
+    @Test
+    @DisplayName("open should find the central directory behind an archive comment")
+    void open_ArchiveComment_FindsCentralDirectory() throws IOException {
+        Path epub = createEpub("commented.epub", "x".repeat(1000));
+
+        try (MappedEpubArchive archive = MappedEpubArchive.open(epub); InputStream in = archive.getInputStream("OEBPS/chapter.xhtml")) {
+            assertTrue(archive.hasEntry("mimetype"));
+            assertArrayEquals(CHAPTER, in.readAllBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("open should throw ZipException for files that are not zip archives or are truncated")
+    void open_MalformedArchive_ThrowsZipException() throws IOException {
+        Path notZip = Files.writeString(tempDir.resolve("invalid.txt"), "not a zip");
+        byte[] epub = Files.readAllBytes(createEpub("book.epub", null));
+        Path truncated = Files.write(tempDir.resolve("truncated.epub"), Arrays.copyOf(epub, epub.length - 30));
+
+        assertThrows(ZipException.class, () -> MappedEpubArchive.open(notZip));
+        assertThrows(ZipException.class, () -> MappedEpubArchive.open(truncated));
+    }
+
+    @Test
+    @DisplayName("getInputStream should throw NoSuchFileException for missing entries")
+    void getInputStream_MissingEntry_Throws() throws IOException {
+        try (MappedEpubArchive archive = MappedEpubArchive.open(createEpub("book.epub", null))) {
+            assertFalse(archive.hasEntry("OEBPS/missing.xhtml"));
+            assertThrows(NoSuchFileException.class, () -> archive.getInputStream("OEBPS/missing.xhtml"));
+        }
+    }
+
+    @Test
+    @DisplayName("a closed archive should throw IllegalStateException like ZipFile")
+    void close_ThenRead_ThrowsIllegalState() throws IOException {
+        MappedEpubArchive archive = MappedEpubArchive.open(createEpub("book.epub", null));
+        archive.close();
+
+        assertThrows(IllegalStateException.class, archive::size);
+        assertThrows(IllegalStateException.class, () -> archive.getInputStream("mimetype"));
+    }
+
+    /**
+     * Writes an EPUB-like archive with a stored mimetype entry and a deflated chapter, like real EPUBs.
+     */
+    private Path createEpub(String name, String comment) throws IOException {
+        Path path = tempDir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(path); ZipOutputStream zip = new ZipOutputStream(out)) {
+            ZipEntry mimetype = new ZipEntry("mimetype");
+            CRC32 crc = new CRC32();
+            crc.update(MIMETYPE);
+            mimetype.setMethod(ZipEntry.STORED);
+            mimetype.setSize(MIMETYPE.length);
+            mimetype.setCrc(crc.getValue());
+            zip.putNextEntry(mimetype);
+            zip.write(MIMETYPE);
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry("OEBPS/chapter.xhtml"));
+            zip.write(CHAPTER);
+            zip.closeEntry();
+
+            if (comment != null) {
+                zip.setComment(comment);
+            }
+        }
+        return path;
+    }
+}
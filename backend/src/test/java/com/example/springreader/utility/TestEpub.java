@@ -0,0 +1,171 @@
+package com.example.springreader.utility;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes EPUB files for tests and benchmarks, complete enough for EpubParser to ingest: a stored mimetype,
+ * container.xml, an OPF listing every content file in its spine, an NCX with one navPoint per TOC entry
+ * and, optionally, a stored cover image. Content files are deflated, like in real EPUBs.
+ */
+public final class TestEpub {
+
+    /**
+     * The archive path of the cover image, when the EPUB has one.
+     */
+    public static final String COVER = "OEBPS/images/cover.jpg";
+
+    private String title = "Test Title";
+    private String author = "Test Author";
+    private final Map<String, String> contentFiles = new LinkedHashMap<>();
+    private final List<String[]> tocEntries = new ArrayList<>();
+    private byte[] cover;
+
+    /**
+     * A book of chapters of the same length, each in a content file of its own at chapterPath(index),
+     * made of a heading followed by paragraphs of about 90 characters.
+     *
+     * @param chapterCount the number of chapters
+     * @param paragraphsPerChapter the number of paragraphs of each chapter
+     */
+    public static TestEpub ofChapters(int chapterCount, int paragraphsPerChapter) {
+        String paragraph = "<p>It was the best of times, it was the worst of times, it was the age of wisdom.</p>\n";
+        TestEpub epub = new TestEpub();
+        for (int i = 0; i < chapterCount; i++) {
+            epub.contentFile("chapter" + i + ".xhtml", "<h1>Chapter " + i + "</h1>\n" + paragraph.repeat(paragraphsPerChapter))
+                    .tocEntry("Chapter " + i, "chapter" + i + ".xhtml");
+        }
+        return epub;
+    }
+
+    /**
+     * @return the archive path of a chapter of a book written by ofChapters
+     */
+    public static String chapterPath(int index) {
+        return "OEBPS/chapter" + index + ".xhtml";
+    }
+
+    public TestEpub title(String title) {
+        this.title = title;
+        return this;
+    }
+
+    public TestEpub author(String author) {
+        this.author = author;
+        return this;
+    }
+
+    /**
+     * Adds a content file to the manifest and the spine.
+     *
+     * @param href the file's path relative to the OPF, e.g. "text/one.xhtml"; its archive path is "OEBPS/" + href
+     * @param body the HTML inside the file's body element
+     */
+    public TestEpub contentFile(String href, String body) {
+        contentFiles.put(href, body);
+        return this;
+    }
+
+    /**
+     * Adds a top level entry to the table of contents.
+     *
+     * @param label the chapter title
+     * @param src the content file's href, followed by #anchor for chapters starting inside the file
+     */
+    public TestEpub tocEntry(String label, String src) {
+        tocEntries.add(new String[]{label, src});
+        return this;
+    }
+
+    /**
+     * Adds a JPEG cover image, stored uncompressed at COVER as EPUB tools commonly do for images.
+     */
+    public TestEpub cover(byte[] jpeg) {
+        this.cover = jpeg;
+        return this;
+    }
+
+    /**
+     * Writes the EPUB.
+     *
+     * @param path the file to write, replaced if it exists
+     * @return path
+     */
+    public Path write(Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path); ZipOutputStream zip = new ZipOutputStream(out)) {
+            writeStored(zip, "mimetype", "application/epub+zip".getBytes(StandardCharsets.US_ASCII));
+            writeDeflated(zip, "META-INF/container.xml", """
+                    <?xml version="1.0"?>
+                    <container version="1.0" xmlns="urn:oasis:names:tc:opendocument:xmlns:container">
+                    <rootfiles><rootfile full-path="OEBPS/content.opf" media-type="application/oebps-package+xml"/></rootfiles>
+                    </container>""");
+            writeDeflated(zip, "OEBPS/content.opf", opf());
+            writeDeflated(zip, "OEBPS/toc.ncx", ncx());
+            for (Map.Entry<String, String> contentFile : contentFiles.entrySet()) {
+                writeDeflated(zip, "OEBPS/" + contentFile.getKey(),
+                        "<html><head><title>" + contentFile.getKey() + "</title></head><body>" + contentFile.getValue() + "</body></html>");
+            }
+            if (cover != null) {
+                writeStored(zip, COVER, cover);
+            }
+        }
+        return path;
+    }
+
+    private String opf() {
+        StringBuilder manifest = new StringBuilder("<item id=\"ncx\" href=\"toc.ncx\" media-type=\"application/x-dtbncx+xml\"/>");
+        StringBuilder spine = new StringBuilder();
+        int item = 0;
+        for (String href : contentFiles.keySet()) {
+            manifest.append("<item id=\"item").append(item).append("\" href=\"").append(href)
+                    .append("\" media-type=\"application/xhtml+xml\"/>");
+            spine.append("<itemref idref=\"item").append(item).append("\"/>");
+            item++;
+        }
+        if (cover != null) {
+            manifest.append("<item id=\"cover-image\" href=\"images/cover.jpg\" media-type=\"image/jpeg\" properties=\"cover-image\"/>");
+        }
+        return "<?xml version=\"1.0\"?><package xmlns=\"http://www.idpf.org/2007/opf\" version=\"2.0\">"
+                + "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><dc:title>" + title + "</dc:title>"
+                + "<dc:creator>" + author + "</dc:creator></metadata>"
+                + "<manifest>" + manifest + "</manifest><spine toc=\"ncx\">" + spine + "</spine></package>";
+    }
+
+    private String ncx() {
+        StringBuilder ncx = new StringBuilder("<?xml version=\"1.0\"?><ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\" version=\"2005-1\"><navMap>");
+        for (int i = 0; i < tocEntries.size(); i++) {
+            ncx.append("<navPoint id=\"np").append(i).append("\" playOrder=\"").append(i + 1).append("\">")
+                    .append("<navLabel><text>").append(tocEntries.get(i)[0]).append("</text></navLabel>")
+                    .append("<content src=\"").append(tocEntries.get(i)[1]).append("\"/></navPoint>");
+        }
+        return ncx.append("</navMap></ncx>").toString();
+    }
+
+    private static void writeDeflated(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private static void writeStored(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+    }
+}
@@ -88,7 +88,8 @@ function Library() {
     setIsUploading(true);
     setError("");
     try {
-      await apiService.uploadBook(selectedFile);
+      const job = await apiService.uploadBook(selectedFile);
+      await apiService.waitForIngestion(job);
       loadBooks();
       setShowUploadForm(false);
       setSelectedFile(null);
@@ -273,7 +274,7 @@ function Library() {
                 <img
                   src={
                     book.hasCoverImage
-                      ? apiService.getCoverImage(book.id)
+                      ? apiService.getCoverImage(book.id, "medium", book.version)
                       : "book-opened.svg"
                   }
                   alt={book.title}
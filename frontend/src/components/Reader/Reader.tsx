@@ -99,7 +99,8 @@ function Reader() {
       try {
         const chapterData = await apiService.getChapterContent(
           bookId,
-          chapter.index
+          chapter.index,
+          meta?.version
         );
         setChapterContent(chapterData.content);
       } catch (error) {
@@ -122,7 +123,7 @@ function Reader() {
         }
       }
     },
-    [bookId, flattenedToc, navigate]
+    [bookId, flattenedToc, meta, navigate]
   );
 
   useEffect(() => {
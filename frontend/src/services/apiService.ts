@@ -9,24 +9,51 @@ interface Book {
   author: string;
   lastChapterIndex: number;
   hasCoverImage: boolean;
+  version: string | null;
+  lastReadAt: string;
 }
 
+type CoverSize = "small" | "medium" | "large" | "original";
+
 interface Chapter {
   title: string;
   anchor: string;
   index: number;
+  depth: number;
+  parentIndex: number;
+  childCount: number;
+}
+
+interface TocPage {
+  chapters: Chapter[];
+  page: number;
+  size: number;
+  totalChapters: number;
+  hasNext: boolean;
 }
 
 interface BookMeta {
   title: string;
   author: string;
   chapters: Chapter[];
+  version: string | null;
 }
 
 interface ChapterContent {
   content: string;
 }
 
+type IngestionJobStatus = "QUEUED" | "PROCESSING" | "COMPLETED" | "FAILED";
+
+interface IngestionJob {
+  jobId: string;
+  status: IngestionJobStatus;
+  bookId: number | null;
+  error: string | null;
+  submittedAt: string;
+  finishedAt: string | null;
+}
+
 interface UserBookProgress {
   bookId: number;
   lastChapterIndex: number;
@@ -52,6 +79,13 @@ class ApiError extends Error {
 
 const API_URL = import.meta.env.VITE_API_URL || "http://localhost:8080/api";
 
+//How often an upload's ingestion job is polled until the book is added
+const INGESTION_POLL_INTERVAL_MS = 1000;
+
+//Book URLs versioned with the book's content hash (v) are cached by the browser as immutable
+const versionQuery = (version: string | null | undefined, separator: "?" | "&"): string =>
+  version ? `${separator}v=${encodeURIComponent(version)}` : "";
+
 //Auth
 
 export const apiService = {
@@ -140,19 +174,46 @@ export const apiService = {
     return;
   },
 
-  uploadBook: async (file: File): Promise<void> => {
-    const formData = new FormData();
-    formData.append("file", file);
+  //Resolves once the upload is accepted; the book is added in the background, see waitForIngestion
+  //The file is sent as the raw body, which the server streams to disk in one pass
+  uploadBook: async (file: File): Promise<IngestionJob> => {
     const response = await fetch(`${API_URL}/library/upload`, {
       method: "POST",
+      headers: {
+        "Content-Type": "application/epub+zip",
+      },
       credentials: "include",
-      body: formData,
+      body: file,
     });
 
     if (!response.ok) {
       await handleApiError(response);
     }
-    return;
+    return response.json();
+  },
+
+  getIngestionJob: async (jobId: string): Promise<IngestionJob> => {
+    const response = await fetch(`${API_URL}/library/jobs/${jobId}`, {
+      method: "GET",
+      credentials: "include",
+    });
+    if (!response.ok) {
+      await handleApiError(response);
+    }
+    return response.json();
+  },
+
+  //Polls an ingestion job until it finishes; throws if the book could not be added
+  waitForIngestion: async (job: IngestionJob): Promise<IngestionJob> => {
+    let current = job;
+    while (current.status === "QUEUED" || current.status === "PROCESSING") {
+      await new Promise((resolve) => setTimeout(resolve, INGESTION_POLL_INTERVAL_MS));
+      current = await apiService.getIngestionJob(current.jobId);
+    }
+    if (current.status === "FAILED") {
+      throw new Error(current.error || "The book could not be added.");
+    }
+    return current;
   },
 
   downloadBook: async (bookId: string): Promise<Response> => {
@@ -166,8 +227,12 @@ export const apiService = {
     return response;
   },
 
-  getCoverImage: (bookId: string): string => {
-    return `${API_URL}/epub/${bookId}/cover`;
+  getCoverImage: (
+    bookId: string,
+    size: CoverSize = "original",
+    version?: string | null
+  ): string => {
+    return `${API_URL}/epub/${bookId}/cover?size=${size}${versionQuery(version, "&")}`;
   },
 
   //Reading
@@ -183,12 +248,34 @@ export const apiService = {
     return response.json();
   },
 
+  getBookToc: async (
+    bookId: string,
+    page: number,
+    size: number,
+    parent?: number
+  ): Promise<TocPage> => {
+    const params = new URLSearchParams({ page: String(page), size: String(size) });
+    if (parent !== undefined) {
+      params.set("parent", String(parent));
+    }
+    const response = await fetch(`${API_URL}/epub/${bookId}/toc?${params}`, {
+      credentials: "include",
+    });
+
+    if (!response.ok) {
+      await handleApiError(response);
+    }
+
+    return response.json();
+  },
+
   getChapterContent: async (
     bookId: string,
-    chapterIndex: number
+    chapterIndex: number,
+    version?: string | null
   ): Promise<ChapterContent> => {
     const response = await fetch(
-      `${API_URL}/epub/${bookId}/chapter/${chapterIndex}`,
+      `${API_URL}/epub/${bookId}/chapter/${chapterIndex}${versionQuery(version, "?")}`,
       {
         credentials: "include",
       }
@@ -252,9 +339,13 @@ export type {
   UserCredentials,
   Book,
   Chapter,
+  CoverSize,
   BookMeta,
+  TocPage,
   ChapterContent,
   UserBookProgress,
+  IngestionJob,
+  IngestionJobStatus,
   ApiErrorDetail,
 };
 